@@ -0,0 +1,183 @@
+package com.maxim.benchmark;
+
+import com.maxim.dto.Mapper;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.server.BinaryIngestionServer;
+import com.maxim.server.LightweightServer;
+import com.maxim.service.CachedClock;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.BucketStatisticEngine;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records transactions through POST /transactions on the lightweight server and through binary frames on
+ * {@link BinaryIngestionServer}, each with one event loop in this JVM, from four client threads. JSON clients send one
+ * request at a time per keep-alive connection; binary clients write {@code BATCH} frames at a time and keep up to
+ * {@code WINDOW} unacknowledged. The secondary {@code eventLoopCpu} result is the CPU seconds per second the event loop
+ * spent, so the score divided by it is what one core of the server sustains. The bucket engine keeps memory flat at
+ * millions of transactions per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class BinaryIngestionBenchmark {
+	private static final int BATCH = 256;
+	private static final int WINDOW = 4096;
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private CachedClock clock;
+	private LightweightServer json;
+	private BinaryIngestionServer binary;
+	private long jsonEventLoop;
+	private long binaryEventLoop;
+	// CPU time of each event loop when a client last read it, so the clients' shares add up to the event loop's
+	private final AtomicLong jsonCpuNanos = new AtomicLong();
+	private final AtomicLong binaryCpuNanos = new AtomicLong();
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class EventLoopCpu {
+		public double eventLoopCpu;
+	}
+
+	@State(Scope.Thread)
+	public static class JsonClient {
+		private KeepAliveClient client;
+
+		@Setup(Level.Trial)
+		public void setUp(final BinaryIngestionBenchmark benchmark) throws IOException {
+			client = new KeepAliveClient("localhost", benchmark.json.getPort());
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			client.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class BinaryClient {
+		private final ByteBuffer frames = ByteBuffer.allocateDirect(BATCH * BinaryIngestionServer.FRAME_BYTES);
+		private final ByteBuffer acknowledgements = ByteBuffer.allocateDirect(64 * BinaryIngestionServer.ACK_BYTES);
+		private SocketChannel channel;
+		private long sent;
+		private long acknowledged;
+
+		@Setup(Level.Trial)
+		public void setUp(final BinaryIngestionBenchmark benchmark) throws IOException {
+			channel = SocketChannel.open(new InetSocketAddress("localhost", benchmark.binary.getPort()));
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			while (acknowledged < sent) {
+				readAcknowledgements();
+			}
+			channel.close();
+		}
+
+		private void readAcknowledgements() throws IOException {
+			if (channel.read(acknowledgements) < 0) {
+				throw new IOException("Server closed the connection");
+			}
+			acknowledgements.flip();
+			while (acknowledgements.remaining() >= BinaryIngestionServer.ACK_BYTES) {
+				acknowledged = acknowledgements.getLong();
+				acknowledgements.position(acknowledgements.position() + BinaryIngestionServer.ACK_BYTES - 8);
+			}
+			acknowledgements.compact();
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		clock = new CachedClock(1);
+		final TransactionMetrics metrics = new TransactionMetrics(true, 16);
+		final TransactionService service = TransactionService.builder(new BucketStatisticEngine(60_000, 1000)).clock(clock).build();
+		json = new LightweightServer(new InetSocketAddress("localhost", 0), 1, service, metrics, new Mapper(), clock);
+		binary = new BinaryIngestionServer(new InetSocketAddress("localhost", 0), 1, service, metrics, clock);
+		jsonEventLoop = threadId("event-loop-0");
+		binaryEventLoop = threadId("binary-event-loop-0");
+	}
+
+	@Setup(Level.Iteration)
+	public void resetCpu() {
+		jsonCpuNanos.set(threads.getThreadCpuTime(jsonEventLoop));
+		binaryCpuNanos.set(threads.getThreadCpuTime(binaryEventLoop));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		json.close();
+		binary.close();
+		clock.close();
+	}
+
+	@Benchmark
+	public String json(final JsonClient client, final EventLoopCpu cpu) throws IOException {
+		final String body = "{\"amount\":" + ThreadLocalRandom.current().nextInt(1000) + ",\"timestamp\":" + System.currentTimeMillis() + "}";
+		final String head = client.client.exchange("POST /transactions HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+				+ body.length() + "\r\n\r\n" + body);
+		cpu.eventLoopCpu += cpuSince(jsonEventLoop, jsonCpuNanos);
+		return head;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long binary(final BinaryClient client, final EventLoopCpu cpu) throws IOException {
+		while (client.sent - client.acknowledged + BATCH > WINDOW) {
+			client.readAcknowledgements();
+		}
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final long now = System.currentTimeMillis();
+		client.frames.clear();
+		for (int i = 0; i < BATCH; i++) {
+			client.frames.putInt(BinaryIngestionServer.PAYLOAD_BYTES).putLong(now).putDouble(random.nextInt(1000));
+		}
+		client.frames.flip();
+		while (client.frames.hasRemaining()) {
+			client.channel.write(client.frames);
+		}
+		client.sent += BATCH;
+		cpu.eventLoopCpu += cpuSince(binaryEventLoop, binaryCpuNanos);
+		return client.sent;
+	}
+
+	private double cpuSince(final long thread, final AtomicLong lastCpuNanos) {
+		final long cpuNanos = threads.getThreadCpuTime(thread);
+		return (cpuNanos - lastCpuNanos.getAndSet(cpuNanos)) / 1e9;
+	}
+
+	private static long threadId(final String name) {
+		return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals(name)).findFirst()
+				.orElseThrow(() -> new IllegalStateException("No thread " + name)).getId();
+	}
+}
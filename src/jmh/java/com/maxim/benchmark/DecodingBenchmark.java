@@ -0,0 +1,71 @@
+package com.maxim.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.maxim.dto.Mapper;
+import com.maxim.dto.TransactionDecoder;
+import com.maxim.dto.TransactionRequestDto;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A POST /transactions body from bytes into the service: through {@link TransactionDecoder} and the primitive
+ * {@link TransactionService#record(long, double)}, and through Jackson, {@link Mapper} and
+ * {@link TransactionService#recordTransaction}. Run with {@code -prof gc}: the decoder path should report
+ * {@code gc.alloc.rate.norm} of about 0 B/op with the bucket and striped engines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodingBenchmark {
+	@Param({"sorted", "bucket", "striped"})
+	private String engine;
+
+	private final TransactionDecoder decoder = new TransactionDecoder();
+	private final Mapper mapper = new Mapper();
+	private final ObjectReader requestReader = Jackson2ObjectMapperBuilder.json().build().readerFor(TransactionRequestDto.class);
+
+	private TransactionService service;
+	private byte[] body;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		service = TransactionService.builder(new StatisticEngineConfiguration().statisticEngine(engine, 1000, 10, "60s", 0, 0, false, -1, 10_000))
+				.transactionMetrics(new TransactionMetrics(true, 16)).build();
+		body = ("{\"amount\":12.3,\"timestamp\":" + System.currentTimeMillis() + "}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public boolean decoder() {
+		return decoder.decode(body, 0, body.length) && service.record(decoder.getTimestamp(), decoder.getAmount());
+	}
+
+	@Benchmark
+	public void jackson() throws IOException {
+		final TransactionRequestDto requestDto = requestReader.readValue(body);
+		if (!service.isOlderThan60Seconds(requestDto.getTimestamp())) {
+			service.recordTransaction(mapper.toTransaction(requestDto));
+		}
+	}
+}
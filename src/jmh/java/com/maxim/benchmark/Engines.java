@@ -0,0 +1,18 @@
+package com.maxim.benchmark;
+
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+
+/**
+ * Builds services the way the application context does, from the same engine names and window lists as
+ * {@code transaction.engine} and {@code transaction.windows}.
+ */
+final class Engines {
+	private Engines() {
+	}
+
+	static TransactionService service(final String engine, final String windows) {
+		final StatisticEngineConfiguration configuration = new StatisticEngineConfiguration();
+		return TransactionService.builder(configuration.statisticEngine(engine, 1000, 10, windows, 0, 0, false, -1, 10_000)).build();
+	}
+}
@@ -0,0 +1,57 @@
+package com.maxim.benchmark;
+
+import com.maxim.model.Transaction;
+import com.maxim.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link TransactionService#removeTransactionsOlderThan60Seconds} sweep over a backlog of which half has just
+ * left the window, as after a burst or a stalled scheduler.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvictionBenchmark {
+	@Param({"sorted", "bucket", "striped"})
+	private String engine;
+
+	@Param({"100000", "1000000"})
+	private int backlog;
+
+	private TransactionService service;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		service = Engines.service(engine, "60s");
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final long now = System.currentTimeMillis();
+		for (int i = 0; i < backlog; i++) {
+			final long age = TimeUnit.SECONDS.toMillis(i % 2 == 0 ? 61 : 1) + random.nextLong(TimeUnit.SECONDS.toMillis(30));
+			service.recordTransaction(new Transaction(Instant.ofEpochMilli(now - age), random.nextDouble(1000)));
+		}
+	}
+
+	@Benchmark
+	public TransactionService removeTransactionsOlderThan60Seconds() {
+		service.removeTransactionsOlderThan60Seconds();
+		return service;
+	}
+}
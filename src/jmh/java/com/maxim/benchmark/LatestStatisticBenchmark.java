@@ -0,0 +1,54 @@
+package com.maxim.benchmark;
+
+import com.maxim.model.Statistic;
+import com.maxim.model.Transaction;
+import com.maxim.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransactionService#getLatestStatistic} over a window already holding {@code backlog} transactions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LatestStatisticBenchmark {
+	@Param({"sorted", "bucket", "striped"})
+	private String engine;
+
+	@Param({"100000"})
+	private int backlog;
+
+	private TransactionService service;
+
+	@Setup
+	public void setUp() {
+		service = Engines.service(engine, "60s");
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final long now = System.currentTimeMillis();
+		for (int i = 0; i < backlog; i++) {
+			service.recordTransaction(new Transaction(Instant.ofEpochMilli(now - random.nextLong(TimeUnit.SECONDS.toMillis(30))), random.nextDouble(1000)));
+		}
+	}
+
+	@Benchmark
+	public Statistic getLatestStatistic() {
+		return service.getLatestStatistic();
+	}
+}
@@ -0,0 +1,76 @@
+package com.maxim.benchmark;
+
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares write latency while the 1s sweep evicts a second's worth of transactions at once with lazy eviction, where
+ * every write and read evicts the few transactions aged out since the previous one. Each iteration fills the window
+ * with {@code PREFILLED} transactions spread over the last 60 seconds while a reader polls statistics every
+ * millisecond; the upper percentiles show the writes that waited behind a sweep.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyEvictionBenchmark {
+	private static final long WINDOW = StatisticEngineConfiguration.WINDOW.toMillis();
+	private static final int PREFILLED = 1_000_000;
+
+	@Param({"sorted", "bucket"})
+	private String engine;
+
+	@Param({"sweep", "lazy"})
+	private String eviction;
+
+	private TransactionService service;
+	private ScheduledExecutorService scheduler;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		final boolean lazy = eviction.equals("lazy");
+		service = TransactionService.builder(new StatisticEngineConfiguration().statisticEngine(engine, 1000, 10, "60s", 0, 0, false, -1, 10_000))
+				.transactionMetrics(new TransactionMetrics(false, 1)).lazyEviction(lazy).build();
+		final long prefillStart = System.currentTimeMillis() - WINDOW;
+		for (int i = 0; i < PREFILLED; i++) {
+			service.submit(prefillStart + i * WINDOW / PREFILLED, ThreadLocalRandom.current().nextDouble(1000));
+		}
+		scheduler = Executors.newScheduledThreadPool(2);
+		scheduler.scheduleAtFixedRate(service::getLatestStatistic, 1, 1, TimeUnit.MILLISECONDS);
+		if (!lazy) {
+			scheduler.scheduleAtFixedRate(service::removeTransactionsOlderThan60Seconds, 0, 1, TimeUnit.SECONDS);
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws InterruptedException {
+		scheduler.shutdownNow();
+		scheduler.awaitTermination(1, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	public boolean submit() {
+		return service.submit(System.currentTimeMillis(), ThreadLocalRandom.current().nextDouble(1000));
+	}
+}
@@ -0,0 +1,62 @@
+package com.maxim.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.maxim.dto.Mapper;
+import com.maxim.dto.StatisticResponseDto;
+import com.maxim.dto.TransactionRequestDto;
+import com.maxim.model.Statistic;
+import com.maxim.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP mapping layer: a POST /transactions body through Jackson (and {@code UnixTimestampDeserializer}) into a
+ * {@link Transaction}, and a {@link Statistic} back out as the GET /statistics body. The ObjectMapper is configured
+ * like the one Spring Boot registers for MVC.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+	private final Mapper mapper = new Mapper();
+	private final byte[] request = "{\"amount\":12.3,\"timestamp\":1478192204000}".getBytes(StandardCharsets.UTF_8);
+	private final Statistic statistic = new Statistic(1000.0, 200.0, 50.0, 100.0, 10);
+
+	private ObjectReader requestReader;
+	private ObjectWriter statisticWriter;
+
+	@Setup
+	public void setUp() {
+		final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		requestReader = objectMapper.readerFor(TransactionRequestDto.class);
+		statisticWriter = objectMapper.writerFor(StatisticResponseDto.class);
+	}
+
+	@Benchmark
+	public Transaction readTransaction() throws IOException {
+		return mapper.toTransaction(requestReader.readValue(request));
+	}
+
+	@Benchmark
+	public byte[] writeStatistic() throws IOException {
+		return statisticWriter.writeValueAsBytes(mapper.toStatisticResponseDto(statistic));
+	}
+}
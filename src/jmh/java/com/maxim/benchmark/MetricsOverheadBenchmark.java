@@ -0,0 +1,73 @@
+package com.maxim.benchmark;
+
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.model.Transaction;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.KeyedStatisticStore;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransactionService#recordTransaction} with {@link TransactionMetrics} enabled and disabled, to keep the
+ * instrumentation cheap enough to leave on in production.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+	private static final long WINDOW_MILLIS = StatisticEngineConfiguration.WINDOW.toMillis();
+
+	@Param({"sorted", "bucket", "striped"})
+	private String engine;
+
+	@Param({"true", "false"})
+	private boolean metrics;
+
+	@Param({"1", "16"})
+	private int sampleRate;
+
+	private TransactionService service;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		service = TransactionService.builder(new StatisticEngineConfiguration().statisticEngine(engine, 1000, 10, "60s", 0, 0, false, -1, 10_000))
+				.keyedStatisticStore(new KeyedStatisticStore(WINDOW_MILLIS, 1000, 16, 10_000)).transactionMetrics(new TransactionMetrics(metrics, sampleRate)).build();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void record1() {
+		record();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void record4() {
+		record();
+	}
+
+	private void record() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final Instant timestamp = Instant.ofEpochMilli(System.currentTimeMillis() - random.nextLong(WINDOW_MILLIS));
+		service.recordTransaction(new Transaction(timestamp, random.nextDouble(1000)));
+	}
+}
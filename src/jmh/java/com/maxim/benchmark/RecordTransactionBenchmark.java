@@ -0,0 +1,73 @@
+package com.maxim.benchmark;
+
+import com.maxim.model.Transaction;
+import com.maxim.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransactionService#recordTransaction} from 1, 4 and all available threads, per engine and per configured
+ * window list. The service is rebuilt every iteration since nothing evicts during a run, which keeps the sorted
+ * engine's backlog at one iteration's worth of transactions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordTransactionBenchmark {
+	private static final long WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+	@Param({"sorted", "bucket", "striped"})
+	private String engine;
+
+	@Param({"60s", "1s,10s,60s,5m"})
+	private String windows;
+
+	private TransactionService service;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		service = Engines.service(engine, windows);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void record1() {
+		record();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void record4() {
+		record();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void recordMax() {
+		record();
+	}
+
+	private void record() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final Instant timestamp = Instant.ofEpochMilli(System.currentTimeMillis() - random.nextLong(WINDOW_MILLIS));
+		service.recordTransaction(new Transaction(timestamp, random.nextDouble(1000)));
+	}
+}
@@ -0,0 +1,102 @@
+package com.maxim.benchmark;
+
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.model.Transaction;
+import com.maxim.service.RingBufferPipeline;
+import com.maxim.service.TransactionPipeline;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records transactions through TransactionService with the synchronous and the ring buffer pipeline while one reader
+ * waits for everything accepted so far to show up in statistics. {@code record} is the latency per call as seen by
+ * the request thread, with the secondary {@code accepted} and {@code shed} results in throughput mode; {@code lag} is
+ * the staleness under full load. Run {@code -tg 8,1} for eight writers instead of four.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class RingBufferPipelineBenchmark {
+	@Param({"sorted", "bucket"})
+	private String engine;
+
+	@Param({"synchronous", "ring-buffer"})
+	private String pipeline;
+
+	private TransactionPipeline transactionPipeline;
+	private TransactionService service;
+	private final LongAdder accepted = new LongAdder();
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Outcomes {
+		public long accepted;
+		public long shed;
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		transactionPipeline = pipeline.equals("synchronous") ? TransactionPipeline.synchronous()
+				: new RingBufferPipeline(65536, 58982, 1024, TimeUnit.MICROSECONDS.toNanos(100));
+		service = TransactionService.builder(new StatisticEngineConfiguration().statisticEngine(engine, 1000, 10, "60s", 0, 0, false, -1, 10_000))
+				.transactionMetrics(new TransactionMetrics(false, 1)).transactionPipeline(transactionPipeline).build();
+		accepted.reset();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		transactionPipeline.close();
+	}
+
+	@Benchmark
+	@Group("pipeline")
+	@GroupThreads(4)
+	public boolean record(final Outcomes outcomes) {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final Transaction transaction = new Transaction(Instant.ofEpochMilli(System.currentTimeMillis() - random.nextLong(1000)), random.nextDouble(1000));
+		if (service.recordTransaction(transaction)) {
+			accepted.increment();
+			outcomes.accepted++;
+			return true;
+		}
+		outcomes.shed++;
+		return false;
+	}
+
+	@Benchmark
+	@Group("pipeline")
+	@GroupThreads(1)
+	public long lag() {
+		final long target = accepted.sum();
+		long count;
+		while ((count = service.getLatestStatistic().getCount()) < target) {
+			Thread.yield();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,135 @@
+package com.maxim.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application in its own JVM with Spring Boot and with {@code --transaction.server=lightweight}.
+ * {@code startup} is the time until the first GET /statistics succeeds; {@code post} samples POST /transactions from
+ * keep-alive clients against an application started once per trial, with 8 clients unless run with e.g. {@code -t 1}
+ * or {@code -t 32}. The child JVM is the benchmark JVM with its classpath, so the {@code java} on the path must be one
+ * Spring Boot 1.5 runs on, such as Java 8.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerComparisonBenchmark {
+	private static final int PORT = 18181;
+	private static final int STARTUP_PORT = 18182;
+
+	@Param({"spring", "lightweight"})
+	private String server;
+
+	@State(Scope.Benchmark)
+	public static class Running {
+		private Process process;
+
+		@Setup(Level.Trial)
+		public void setUp(final ServerComparisonBenchmark benchmark) throws IOException, InterruptedException {
+			process = benchmark.start(PORT);
+			awaitStatistics(process, PORT);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws InterruptedException {
+			stop(process);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Client {
+		private KeepAliveClient client;
+
+		@Setup(Level.Trial)
+		public void setUp(final Running running) throws IOException {
+			client = new KeepAliveClient("localhost", PORT);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			client.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Started {
+		private Process process;
+
+		@TearDown(Level.Invocation)
+		public void tearDown() throws InterruptedException {
+			stop(process);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 5)
+	public Process startup(final Started started) throws IOException, InterruptedException {
+		started.process = start(STARTUP_PORT);
+		awaitStatistics(started.process, STARTUP_PORT);
+		return started.process;
+	}
+
+	@Benchmark
+	@Threads(8)
+	public String post(final Client client) throws IOException {
+		final String body = "{\"amount\":" + ThreadLocalRandom.current().nextInt(1000) + ",\"timestamp\":" + System.currentTimeMillis() + "}";
+		return client.client.exchange("POST /transactions HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+				+ body.length() + "\r\n\r\n" + body);
+	}
+
+	private Process start(final int port) throws IOException {
+		final List<String> command = new ArrayList<>(Arrays.asList(
+				System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+				"-cp", System.getProperty("java.class.path"), "com.maxim.App", "--server.port=" + port));
+		if (server.equals("lightweight")) {
+			command.add("--transaction.server=lightweight");
+		}
+		return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(new File("/dev/null")).start();
+	}
+
+	private static void stop(final Process process) throws InterruptedException {
+		process.destroy();
+		process.waitFor();
+	}
+
+	private static void awaitStatistics(final Process process, final int port) throws InterruptedException {
+		while (true) {
+			if (!process.isAlive()) {
+				throw new IllegalStateException("Application exited with " + process.exitValue());
+			}
+			try (KeepAliveClient client = new KeepAliveClient("localhost", port)) {
+				if (client.exchange("GET /statistics HTTP/1.1\r\nHost: localhost\r\n\r\n").startsWith("HTTP/1.1 200")) {
+					return;
+				}
+			} catch (IOException e) {
+				TimeUnit.MILLISECONDS.sleep(5);
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.maxim.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.maxim.dto.Mapper;
+import com.maxim.dto.StatisticEncoder;
+import com.maxim.dto.StatisticResponseDto;
+import com.maxim.model.Transaction;
+import com.maxim.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code GET /statistics} poll between two writes, without the HTTP layer: mapping and serializing the
+ * statistic as before, serving the cached JSON, and answering a poll that sends the current ETag.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class StatisticPollBenchmark {
+	@Param({"sorted", "bucket"})
+	private String engine;
+
+	private TransactionService service;
+	private Mapper mapper;
+	private ObjectWriter writer;
+	private StatisticEncoder encoder;
+	private String etag;
+
+	@Setup
+	public void setUp() {
+		service = Engines.service(engine, "60s");
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final long now = System.currentTimeMillis();
+		for (int i = 0; i < 10_000; i++) {
+			service.recordTransaction(new Transaction(Instant.ofEpochMilli(now - random.nextLong(TimeUnit.SECONDS.toMillis(30))), random.nextDouble(1000)));
+		}
+		mapper = new Mapper();
+		writer = new ObjectMapper().writerFor(StatisticResponseDto.class);
+		encoder = new StatisticEncoder(mapper);
+		etag = encoder.encode(service.getLatestStatistic()).getEtag();
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return writer.writeValueAsBytes(mapper.toStatisticResponseDto(service.getLatestStatistic()));
+	}
+
+	@Benchmark
+	public byte[] cached() {
+		return encoder.encode(service.getLatestStatistic()).getJson();
+	}
+
+	@Benchmark
+	public boolean notModified() {
+		return encoder.encode(service.getLatestStatistic()).matches(etag);
+	}
+}
@@ -0,0 +1,101 @@
+package com.maxim.benchmark;
+
+import com.maxim.model.Transaction;
+import com.maxim.service.engine.TransactionRing;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap and direct memory per retained transaction for one million transactions: the previous layout of
+ * {@link Transaction} objects in a {@link PriorityQueue}, and {@link TransactionRing} on and off heap. The footprint of
+ * the last fill of each iteration is reported in the secondary {@code heapBytes} and {@code directBytes} results; the
+ * primary score is the time to fill, including the collections that settle the heap before measuring it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class TransactionRingFootprintBenchmark {
+	private static final int NUMBER_OF_TRANSACTIONS = 1_000_000;
+
+	@Param({"priority-queue", "on-heap", "off-heap"})
+	private String layout;
+
+	private long now;
+	// Keeps the last fill reachable until the next one starts, so its footprint is measured before it can be collected
+	private Object retained;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public double heapBytes;
+		public double directBytes;
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		now = System.currentTimeMillis();
+	}
+
+	@Benchmark
+	public Object fill(final Footprint footprint) {
+		retained = null;
+		final long heap = usedHeap();
+		final long direct = usedDirect();
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		switch (layout) {
+			case "priority-queue":
+				final PriorityQueue<Transaction> queue = new PriorityQueue<>((o1, o2) -> o1.getTimestamp().compareTo(o2.getTimestamp()));
+				for (int i = 0; i < NUMBER_OF_TRANSACTIONS; i++) {
+					queue.add(new Transaction(Instant.ofEpochMilli(now + i), random.nextDouble(1000)));
+				}
+				retained = queue;
+				break;
+			default:
+				final TransactionRing ring = layout.equals("on-heap") ? TransactionRing.onHeap(1024) : TransactionRing.offHeap(1024);
+				for (int i = 0; i < NUMBER_OF_TRANSACTIONS; i++) {
+					ring.add(now + i, random.nextDouble(1000));
+				}
+				retained = ring;
+		}
+		footprint.heapBytes = (double) (usedHeap() - heap) / NUMBER_OF_TRANSACTIONS;
+		footprint.directBytes = (double) (usedDirect() - direct) / NUMBER_OF_TRANSACTIONS;
+		return retained;
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static long usedDirect() {
+		long used = 0;
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			used += pool.getMemoryUsed();
+		}
+		return used;
+	}
+}
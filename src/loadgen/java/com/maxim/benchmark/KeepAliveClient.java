@@ -0,0 +1,85 @@
+package com.maxim.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keep-alive HTTP client that reconnects whenever the server announces {@code Connection: close}, as Tomcat
+ * does after 100 requests on one connection.
+ */
+final class KeepAliveClient implements Closeable {
+	private final String host;
+	private final int port;
+	private Socket socket;
+	private OutputStream output;
+	private InputStream input;
+
+	KeepAliveClient(final String host, final int port) throws IOException {
+		this.host = host;
+		this.port = port;
+		connect();
+	}
+
+	private void connect() throws IOException {
+		socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		output = socket.getOutputStream();
+		input = new BufferedInputStream(socket.getInputStream());
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+	/**
+	 * Sends a complete request and reads the response, discarding its body.
+	 *
+	 * @return the status line and headers, one per line
+	 */
+	String exchange(final String request) throws IOException {
+		output.write(request.getBytes(StandardCharsets.ISO_8859_1));
+		output.flush();
+
+		final StringBuilder head = new StringBuilder();
+		int contentLength = 0;
+		String line;
+		while (!(line = readLine()).isEmpty()) {
+			head.append(line).append('\n');
+			if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+				contentLength = Integer.parseInt(line.substring(15).trim());
+			}
+		}
+		for (int i = 0; i < contentLength; i++) {
+			input.read();
+		}
+		if (head.toString().toLowerCase().contains("connection: close")) {
+			close();
+			connect();
+		}
+		return head.toString();
+	}
+
+	static int statusOf(final String head) {
+		return Integer.parseInt(head.substring(9, 12));
+	}
+
+	private String readLine() throws IOException {
+		final StringBuilder line = new StringBuilder();
+		int next;
+		while ((next = input.read()) != '\n') {
+			if (next < 0) {
+				throw new IOException("Connection closed");
+			}
+			if (next != '\r') {
+				line.append((char) next);
+			}
+		}
+		return line.toString();
+	}
+}
@@ -0,0 +1,287 @@
+package com.maxim.benchmark;
+
+import com.maxim.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives POST /transactions and GET /statistics of a running instance over HTTP at a fixed arrival rate, then prints
+ * latency percentiles and writes them to a report file.
+ * <p>
+ * The load is open-loop: every request has an intended start on a fixed schedule, and each keep-alive connection
+ * owns every n-th slot of it. A connection that falls behind sends its next requests right away but still measures
+ * them from their intended start. Response time therefore includes the wait a real client at that rate would have
+ * seen, rather than hiding it the way a closed loop does (coordinated omission). Service time, measured from the
+ * actual send, is reported next to it; the two diverge once the server cannot keep up.
+ * <p>
+ * Run with {@code mvn -Ploadgen test-compile exec:exec -Dloadgen.args="..."} and {@code --name=value} or
+ * {@code name=value} options:
+ * <ul>
+ * <li>{@code host}, {@code port}: the instance, {@code localhost:8080}</li>
+ * <li>{@code spawn}: {@code spring} or {@code lightweight} starts the application on the port in a child JVM first</li>
+ * <li>{@code rate}: requests per second across all connections, 1000</li>
+ * <li>{@code connections}: 16; too few for the rate and latency shows up as schedule lag</li>
+ * <li>{@code duration-seconds}: 30 measured after {@code warmup-seconds}, 5</li>
+ * <li>{@code read-ratio}: share of GET /statistics, 0.1</li>
+ * <li>{@code skew-past-millis}, {@code skew-future-millis}: timestamps are spread uniformly this far around now, 0;
+ * past 60000 some writes are too old and answered 204</li>
+ * <li>{@code amounts}: {@code uniform:low:high} (default {@code uniform:0:1000}), {@code lognormal:mu:sigma} or
+ * {@code constant:value}</li>
+ * <li>{@code report}: file the report is written to, {@code load-report.txt}</li>
+ * </ul>
+ */
+public class LoadGenerator {
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 0.9999};
+	private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p99.9", "p99.99"};
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final String host;
+	private final int port;
+	private final double rate;
+	private final int connections;
+	private final long warmupNanos;
+	private final long durationNanos;
+	private final double readRatio;
+	private final long skewPastMillis;
+	private final long skewFutureMillis;
+	private final String amounts;
+	private final AmountDistribution amountDistribution;
+
+	private final LatencyHistogram writeResponse = new LatencyHistogram();
+	private final LatencyHistogram writeService = new LatencyHistogram();
+	private final LatencyHistogram readResponse = new LatencyHistogram();
+	private final LatencyHistogram readService = new LatencyHistogram();
+	private final ConcurrentMap<String, LongAdder> responses = new ConcurrentHashMap<>();
+	private final AtomicLong maxLagNanos = new AtomicLong();
+
+	private LoadGenerator(final Properties options) {
+		this.host = options.getProperty("host", "localhost");
+		this.port = Integer.parseInt(options.getProperty("port", "8080"));
+		this.rate = Double.parseDouble(options.getProperty("rate", "1000"));
+		this.connections = Integer.parseInt(options.getProperty("connections", "16"));
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getProperty("warmup-seconds", "5")));
+		this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getProperty("duration-seconds", "30")));
+		this.readRatio = Double.parseDouble(options.getProperty("read-ratio", "0.1"));
+		this.skewPastMillis = Long.parseLong(options.getProperty("skew-past-millis", "0"));
+		this.skewFutureMillis = Long.parseLong(options.getProperty("skew-future-millis", "0"));
+		this.amounts = options.getProperty("amounts", "uniform:0:1000");
+		this.amountDistribution = AmountDistribution.parse(amounts);
+		if (rate <= 0 || connections <= 0 || readRatio < 0 || readRatio > 1) {
+			throw new IllegalArgumentException("Rate and connections must be positive and read-ratio between 0 and 1");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		final Properties options = new Properties();
+		for (String arg : args) {
+			final String option = arg.startsWith("--") ? arg.substring(2) : arg;
+			final int equals = option.indexOf('=');
+			if (equals > 0) {
+				options.setProperty(option.substring(0, equals), option.substring(equals + 1));
+			}
+		}
+		final LoadGenerator generator = new LoadGenerator(options);
+		final String spawn = options.getProperty("spawn", "");
+		final Process process = spawn.isEmpty() ? null : generator.spawn(spawn);
+		try {
+			generator.awaitStatistics();
+			final long started = System.nanoTime();
+			generator.run();
+			final String report = generator.report(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			System.out.print(report);
+			Files.write(Paths.get(options.getProperty("report", "load-report.txt")), report.getBytes(StandardCharsets.UTF_8));
+		} finally {
+			if (process != null) {
+				process.destroy();
+				process.waitFor();
+			}
+		}
+	}
+
+	private Process spawn(final String server) throws IOException {
+		final List<String> command = new ArrayList<>(Arrays.asList(
+				System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+				"-cp", System.getProperty("java.class.path"), "com.maxim.App", "--server.port=" + port, "--transaction.server=" + server));
+		return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(new File("/dev/null")).start();
+	}
+
+	private void awaitStatistics() throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+		while (true) {
+			try (KeepAliveClient client = new KeepAliveClient(host, port)) {
+				if (KeepAliveClient.statusOf(client.exchange("GET /statistics HTTP/1.1\r\nHost: " + host + "\r\n\r\n")) == 200) {
+					return;
+				}
+			} catch (IOException e) {
+				if (System.nanoTime() > deadline) {
+					throw new IllegalStateException("No instance answering on " + host + ":" + port, e);
+				}
+				TimeUnit.MILLISECONDS.sleep(50);
+			}
+		}
+	}
+
+	private void run() throws InterruptedException {
+		final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+		final long measureFrom = start + warmupNanos;
+		final long end = measureFrom + durationNanos;
+		final CountDownLatch done = new CountDownLatch(connections);
+		for (int i = 0; i < connections; i++) {
+			final long first = start + i * intervalNanos;
+			new Thread(() -> {
+				try {
+					drive(first, intervalNanos * connections, measureFrom, end);
+				} finally {
+					done.countDown();
+				}
+			}, "load-" + i).start();
+		}
+		done.await();
+	}
+
+	private void drive(final long first, final long intervalNanos, final long measureFrom, final long end) {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		KeepAliveClient client = null;
+		for (long intended = first; intended < end; intended += intervalNanos) {
+			awaitNanoTime(intended);
+			final boolean read = random.nextDouble() < readRatio;
+			final String request = read ? "GET /statistics HTTP/1.1\r\nHost: " + host + "\r\n\r\n" : writeRequest(random);
+			final long sent = System.nanoTime();
+			String outcome;
+			try {
+				if (client == null) {
+					client = new KeepAliveClient(host, port);
+				}
+				outcome = (read ? "GET " : "POST ") + KeepAliveClient.statusOf(client.exchange(request));
+			} catch (IOException e) {
+				outcome = (read ? "GET " : "POST ") + e.getClass().getSimpleName();
+				close(client);
+				client = null;
+			}
+			final long completed = System.nanoTime();
+			if (intended < measureFrom) {
+				continue;
+			}
+			(read ? readResponse : writeResponse).record(completed - intended);
+			(read ? readService : writeService).record(completed - sent);
+			responses.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+			maxLagNanos.accumulateAndGet(sent - intended, Math::max);
+		}
+		close(client);
+	}
+
+	/**
+	 * Parks until shortly before the deadline and spins the rest, since a park can overshoot by tens of microseconds
+	 * and that would count as response time.
+	 */
+	private static void awaitNanoTime(final long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+		}
+		while (System.nanoTime() < deadline) {
+			// spin
+		}
+	}
+
+	private String writeRequest(final ThreadLocalRandom random) {
+		final long timestamp = System.currentTimeMillis() + (skewPastMillis + skewFutureMillis == 0 ? 0 : random.nextLong(-skewPastMillis, skewFutureMillis + 1));
+		final String body = "{\"amount\":" + Math.round(amountDistribution.next(random) * 100) / 100.0 + ",\"timestamp\":" + timestamp + "}";
+		return "POST /transactions HTTP/1.1\r\nHost: " + host + "\r\nContent-Type: application/json\r\nContent-Length: "
+				+ body.length() + "\r\n\r\n" + body;
+	}
+
+	private static void close(final KeepAliveClient client) {
+		if (client != null) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				// already broken
+			}
+		}
+	}
+
+	private String report(final long elapsedMillis) {
+		final StringWriter text = new StringWriter();
+		final PrintWriter out = new PrintWriter(text);
+		final long seconds = TimeUnit.NANOSECONDS.toSeconds(durationNanos);
+		out.printf("Open-loop load against %s:%d: %,.0f requests/s for %d s after %d s warm-up, %d connections, %.0f%% reads%n", host, port,
+				rate, seconds, TimeUnit.NANOSECONDS.toSeconds(warmupNanos), connections, readRatio * 100);
+		out.printf("Timestamps now -%d/+%d ms, amounts %s, run took %,d ms%n", skewPastMillis, skewFutureMillis, amounts, elapsedMillis);
+
+		final Map<String, Long> counts = new TreeMap<>();
+		responses.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+		final long total = counts.values().stream().mapToLong(Long::longValue).sum();
+		out.printf("Measured %,d requests (%,.0f/s), at most %,.1f ms behind schedule; responses %s%n%n", total, (double) total / seconds,
+				maxLagNanos.get() / 1e6, counts);
+
+		out.printf("%-15s %10s", "(microseconds)", "count");
+		for (String quantile : QUANTILE_NAMES) {
+			out.printf(" %9s", quantile);
+		}
+		out.printf(" %9s%n", "max");
+		row(out, "write response", writeResponse.drain());
+		row(out, "write service", writeService.drain());
+		row(out, "read response", readResponse.drain());
+		row(out, "read service", readService.drain());
+		out.printf("%nResponse time counts from the scheduled start and includes queueing behind earlier requests; service time%n"
+				+ "counts from the actual send. Values are bucket upper bounds within 12.5%%.%n");
+		out.flush();
+		return text.toString();
+	}
+
+	private static void row(final PrintWriter out, final String name, final LatencyHistogram.Snapshot snapshot) {
+		out.printf("%-15s %,10d", name, snapshot.getCount());
+		for (double quantile : QUANTILES) {
+			out.printf(" %,9.0f", snapshot.getValueAtQuantile(quantile) / 1e3);
+		}
+		out.printf(" %,9.0f%n", snapshot.getMax() / 1e3);
+	}
+
+	private interface AmountDistribution {
+		double next(ThreadLocalRandom random);
+
+		static AmountDistribution parse(final String specification) {
+			final String[] parts = specification.split(":");
+			switch (parts[0]) {
+				case "uniform": {
+					final double low = Double.parseDouble(parts[1]);
+					final double high = Double.parseDouble(parts[2]);
+					return random -> low + random.nextDouble() * (high - low);
+				}
+				case "lognormal": {
+					final double mu = Double.parseDouble(parts[1]);
+					final double sigma = Double.parseDouble(parts[2]);
+					return random -> Math.exp(mu + sigma * random.nextGaussian());
+				}
+				case "constant": {
+					final double value = Double.parseDouble(parts[1]);
+					return random -> value;
+				}
+				default:
+					throw new IllegalArgumentException("Unknown amount distribution '" + specification + "', expected uniform:low:high, lognormal:mu:sigma or constant:value");
+			}
+		}
+	}
+}
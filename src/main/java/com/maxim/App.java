@@ -1,13 +1,22 @@
 package com.maxim;
 
+import com.maxim.server.LightweightServer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 @EnableScheduling
 public class App {
-	public static void main(String[] args) {
-		SpringApplication.run(App.class, args);
+	private static final String LIGHTWEIGHT_SERVER = "--transaction.server=lightweight";
+
+	public static void main(String[] args) throws Exception {
+		if (Arrays.asList(args).contains(LIGHTWEIGHT_SERVER) || "lightweight".equals(System.getProperty("transaction.server"))) {
+			LightweightServer.main(args);
+		} else {
+			SpringApplication.run(App.class, args);
+		}
 	}
 }
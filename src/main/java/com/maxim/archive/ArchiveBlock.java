@@ -0,0 +1,151 @@
+package com.maxim.archive;
+
+/**
+ * Gorilla-style compression of one block of transactions, which is decoded as a whole. The first transaction is
+ * stored in full; after it, a timestamp is stored as the zigzag-encoded change of its delta to the previous one in
+ * 1, 9, 12, 16 or 68 bits, and an amount as the XOR of its bits with the previous amount's: a single 0 bit if equal,
+ * otherwise only the meaningful bits, reusing the previous leading and trailing zero counts when they fit. Evicted
+ * transactions are about equally spaced and many amounts repeat, so a transaction typically takes 2 to 8 bytes
+ * instead of 16. Timestamps going backwards are allowed, they just take more bits.
+ */
+final class ArchiveBlock {
+	private final BitOutput output = new BitOutput();
+	private int count;
+	private long minTimestamp;
+	private long maxTimestamp;
+	private long previousTimestamp;
+	private long previousDelta;
+	private long previousBits;
+	private int previousLeading;
+	private int previousTrailing;
+
+	void add(final long timestampMillis, final double amount) {
+		final long bits = Double.doubleToRawLongBits(amount);
+		if (count == 0) {
+			output.write(timestampMillis, 64);
+			output.write(bits, 64);
+			minTimestamp = timestampMillis;
+			maxTimestamp = timestampMillis;
+			previousDelta = 0;
+			previousLeading = -1;
+		} else {
+			final long delta = timestampMillis - previousTimestamp;
+			writeDeltaOfDelta(delta - previousDelta);
+			writeXor(bits ^ previousBits);
+			previousDelta = delta;
+			minTimestamp = Math.min(minTimestamp, timestampMillis);
+			maxTimestamp = Math.max(maxTimestamp, timestampMillis);
+		}
+		previousTimestamp = timestampMillis;
+		previousBits = bits;
+		count++;
+	}
+
+	int count() {
+		return count;
+	}
+
+	long minTimestamp() {
+		return minTimestamp;
+	}
+
+	long maxTimestamp() {
+		return maxTimestamp;
+	}
+
+	int byteLength() {
+		return output.byteLength();
+	}
+
+	byte[] array() {
+		return output.array();
+	}
+
+	void reset() {
+		output.reset();
+		count = 0;
+	}
+
+	private void writeDeltaOfDelta(final long deltaOfDelta) {
+		final long zigzag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+		if (zigzag == 0) {
+			output.write(0b0, 1);
+		} else if (zigzag >>> 7 == 0) {
+			output.write(0b10, 2);
+			output.write(zigzag, 7);
+		} else if (zigzag >>> 9 == 0) {
+			output.write(0b110, 3);
+			output.write(zigzag, 9);
+		} else if (zigzag >>> 12 == 0) {
+			output.write(0b1110, 4);
+			output.write(zigzag, 12);
+		} else {
+			output.write(0b1111, 4);
+			output.write(zigzag, 64);
+		}
+	}
+
+	private void writeXor(final long xor) {
+		if (xor == 0) {
+			output.writeBit(false);
+			return;
+		}
+		output.writeBit(true);
+		final int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+		final int trailing = Long.numberOfTrailingZeros(xor);
+		if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+			output.writeBit(false);
+			output.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+		} else {
+			final int meaningful = 64 - leading - trailing;
+			output.writeBit(true);
+			output.write(leading, 5);
+			output.write(meaningful - 1, 6);
+			output.write(xor >>> trailing, meaningful);
+			previousLeading = leading;
+			previousTrailing = trailing;
+		}
+	}
+
+	static void decode(final byte[] bytes, final int count, final ArchiveReader.EntryConsumer consumer) {
+		final BitInput input = new BitInput(bytes);
+		long timestamp = 0;
+		long delta = 0;
+		long bits = 0;
+		int leading = 0;
+		int trailing = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0) {
+				timestamp = input.read(64);
+				bits = input.read(64);
+			} else {
+				delta += readDeltaOfDelta(input);
+				timestamp += delta;
+				if (input.readBit()) {
+					if (input.readBit()) {
+						leading = (int) input.read(5);
+						trailing = 64 - leading - ((int) input.read(6) + 1);
+					}
+					bits ^= input.read(64 - leading - trailing) << trailing;
+				}
+			}
+			consumer.accept(timestamp, Double.longBitsToDouble(bits));
+		}
+	}
+
+	private static long readDeltaOfDelta(final BitInput input) {
+		final long zigzag;
+		if (!input.readBit()) {
+			return 0;
+		} else if (!input.readBit()) {
+			zigzag = input.read(7);
+		} else if (!input.readBit()) {
+			zigzag = input.read(9);
+		} else if (!input.readBit()) {
+			zigzag = input.read(12);
+		} else {
+			zigzag = input.read(64);
+		}
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+}
@@ -0,0 +1,37 @@
+package com.maxim.archive;
+
+import com.maxim.service.engine.EvictionListener;
+import com.maxim.service.engine.SortedStatisticEngine;
+import com.maxim.service.engine.StatisticEngine;
+import com.maxim.service.engine.TransactionHistory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class ArchiveConfiguration {
+	/**
+	 * Hands evicted transactions to the history and, when enabled, the archive as well.
+	 */
+	@Bean
+	public EvictionListener transactionArchive(final StatisticEngine statisticEngine,
+	                                           final TransactionHistory transactionHistory,
+	                                           @Value("${transaction.archive.enabled:false}") final boolean enabled,
+	                                           @Value("${transaction.archive.directory:archive}") final String directory,
+	                                           @Value("${transaction.archive.segment-bytes:67108864}") final long segmentBytes,
+	                                           @Value("${transaction.archive.buffer-capacity:65536}") final int bufferCapacity,
+	                                           @Value("${transaction.archive.flush-interval-millis:1000}") final long flushIntervalMillis) throws IOException {
+		if (!enabled) {
+			return EvictionListener.NONE;
+		}
+		if (!(statisticEngine instanceof SortedStatisticEngine)) {
+			throw new IllegalArgumentException("transaction.archive.enabled needs transaction.engine=sorted, the only engine evicting single transactions");
+		}
+		final TransactionArchive archive = new TransactionArchive(Paths.get(directory), segmentBytes, bufferCapacity, flushIntervalMillis);
+		statisticEngine.setEvictionListener(transactionHistory.andThen(archive));
+		return archive;
+	}
+}
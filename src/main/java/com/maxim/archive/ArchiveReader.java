@@ -0,0 +1,81 @@
+package com.maxim.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streams archived transactions back out of the segments a {@link TransactionArchive} wrote to a directory, while
+ * it is still writing or long after. Only blocks whose index entry overlaps the range are read and decoded.
+ */
+public class ArchiveReader {
+	public interface EntryConsumer {
+		void accept(long timestampMillis, double amount);
+	}
+
+	private final Path directory;
+
+	public ArchiveReader(final Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Hands every archived transaction from {@code fromMillis} inclusive to {@code toMillis} exclusive to the
+	 * consumer, in the order they were archived, which is time order but for transactions recorded late.
+	 *
+	 * @return number of transactions handed over
+	 */
+	public long scan(final long fromMillis, final long toMillis, final EntryConsumer consumer) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return 0;
+		}
+		final List<Path> indexes = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TransactionArchive.INDEX_SUFFIX)) {
+			for (Path file : files) {
+				indexes.add(file);
+			}
+		}
+		Collections.sort(indexes);
+
+		final long[] scanned = new long[1];
+		final EntryConsumer filter = (timestampMillis, amount) -> {
+			if (timestampMillis >= fromMillis && timestampMillis < toMillis) {
+				consumer.accept(timestampMillis, amount);
+				scanned[0]++;
+			}
+		};
+		for (Path indexFile : indexes) {
+			final String name = indexFile.getFileName().toString();
+			final Path segmentFile = directory.resolve(name.substring(0, name.length() - TransactionArchive.INDEX_SUFFIX.length()) + TransactionArchive.SEGMENT_SUFFIX);
+			// An entry torn by a crash is left out, its block was never acknowledged
+			final ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+			try (FileChannel segment = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+				while (index.remaining() >= TransactionArchive.INDEX_ENTRY_BYTES) {
+					final long offset = index.getLong();
+					final int length = index.getInt();
+					final int count = index.getInt();
+					final long minTimestamp = index.getLong();
+					final long maxTimestamp = index.getLong();
+					if (maxTimestamp < fromMillis || minTimestamp >= toMillis) {
+						continue;
+					}
+					final ByteBuffer block = ByteBuffer.allocate(length);
+					while (block.hasRemaining()) {
+						if (segment.read(block, offset + block.position()) < 0) {
+							throw new IOException("Segment " + segmentFile + " ends before the block at " + offset + " indexed for " + length + " bytes");
+						}
+					}
+					ArchiveBlock.decode(block.array(), count, filter);
+				}
+			}
+		}
+		return scanned[0];
+	}
+}
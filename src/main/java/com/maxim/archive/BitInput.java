@@ -0,0 +1,34 @@
+package com.maxim.archive;
+
+/**
+ * Reads what {@link BitOutput} wrote.
+ */
+final class BitInput {
+	private final byte[] bytes;
+	private long position;
+
+	BitInput(final byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	boolean readBit() {
+		return read(1) != 0;
+	}
+
+	long read(int bits) {
+		long value = 0;
+		while (bits > 0) {
+			final int index = (int) (position >>> 3);
+			if (index >= bytes.length) {
+				throw new IllegalStateException("Block ends after " + bytes.length + " bytes");
+			}
+			final int available = 8 - (int) (position & 7);
+			final int taken = Math.min(available, bits);
+			final int chunk = (bytes[index] >>> (available - taken)) & ((1 << taken) - 1);
+			value = (value << taken) | chunk;
+			position += taken;
+			bits -= taken;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,46 @@
+package com.maxim.archive;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer written a few bits at a time, most significant bit first.
+ */
+final class BitOutput {
+	private byte[] bytes = new byte[256];
+	private long bitLength;
+
+	void writeBit(final boolean bit) {
+		write(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * Writes the lowest {@code bits} bits of the value.
+	 */
+	void write(final long value, int bits) {
+		while (bits > 0) {
+			final int index = (int) (bitLength >>> 3);
+			if (index == bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			final int free = 8 - (int) (bitLength & 7);
+			final int written = Math.min(free, bits);
+			final int chunk = (int) (value >>> (bits - written)) & ((1 << written) - 1);
+			bytes[index] |= chunk << (free - written);
+			bitLength += written;
+			bits -= written;
+		}
+	}
+
+	int byteLength() {
+		return (int) ((bitLength + 7) >>> 3);
+	}
+
+	byte[] array() {
+		return bytes;
+	}
+
+	void reset() {
+		Arrays.fill(bytes, 0, byteLength(), (byte) 0);
+		bitLength = 0;
+	}
+}
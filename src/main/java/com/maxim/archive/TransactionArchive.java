@@ -0,0 +1,266 @@
+package com.maxim.archive;
+
+import com.maxim.service.engine.EvictionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the transactions the engine evicts, compressed in {@link ArchiveBlock}s of up to {@code BLOCK_TRANSACTIONS}
+ * appended to numbered segment files of about {@code segmentBytes}. Every block gets an entry in the segment's index
+ * file, {@code [offset][length][count][min timestamp][max timestamp]}, written after the block itself, so
+ * {@link ArchiveReader} only ever sees complete blocks and skips those outside the range it scans.
+ * <p>
+ * Eviction only copies the transaction into a buffer of {@code bufferCapacity} under a lock; a background thread
+ * swaps buffers, sorts what it took by timestamp and encodes it, writing a block once it is full or
+ * {@code flushIntervalMillis} old. Should eviction outpace the writer until the buffer is full, further transactions
+ * are dropped and counted rather than holding up the engine, which calls this under its own lock.
+ */
+public class TransactionArchive implements EvictionListener, Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransactionArchive.class);
+
+	static final String SEGMENT_SUFFIX = ".arc";
+	static final String INDEX_SUFFIX = ".idx";
+	static final int INDEX_ENTRY_BYTES = 8 + 4 + 4 + 8 + 8;
+	static final int BLOCK_TRANSACTIONS = 4096;
+
+	private final Path directory;
+	private final long segmentBytes;
+	private final long flushIntervalNanos;
+
+	private final ReentrantLock reentrantLock = new ReentrantLock();
+	private final Condition halfFull = reentrantLock.newCondition();
+	private long[] pendingTimestamps;
+	private double[] pendingAmounts;
+	private int pendingSize;
+	private long dropped;
+
+	// Owned by the writer thread
+	private long[] drainingTimestamps;
+	private double[] drainingAmounts;
+	private final ArchiveBlock block = new ArchiveBlock();
+	private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+	private long blockStarted;
+	private long nextSegment;
+	private FileChannel segment;
+	private FileChannel index;
+	private long segmentEnd;
+	private long droppedReported;
+
+	private final Thread writer;
+	private volatile boolean running = true;
+	private volatile long archived;
+
+	/**
+	 * @param directory           where segments go, created if missing; segments already there are kept and new
+	 *                            ones numbered after them
+	 * @param segmentBytes        size after which the next block starts a new segment
+	 * @param bufferCapacity      most evicted transactions waiting for the writer
+	 * @param flushIntervalMillis longest a transaction waits before its block is written
+	 */
+	public TransactionArchive(final Path directory, final long segmentBytes, final int bufferCapacity, final long flushIntervalMillis) throws IOException {
+		if (segmentBytes <= 0 || bufferCapacity <= 0 || flushIntervalMillis <= 0) {
+			throw new IllegalArgumentException("Segment bytes, buffer capacity and flush interval must be positive: segmentBytes=" + segmentBytes
+					+ ", bufferCapacity=" + bufferCapacity + ", flushInterval=" + flushIntervalMillis + "ms");
+		}
+		this.directory = Files.createDirectories(directory);
+		this.segmentBytes = segmentBytes;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		this.pendingTimestamps = new long[bufferCapacity];
+		this.pendingAmounts = new double[bufferCapacity];
+		this.drainingTimestamps = new long[bufferCapacity];
+		this.drainingAmounts = new double[bufferCapacity];
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+			for (Path file : files) {
+				final String name = file.getFileName().toString();
+				nextSegment = Math.max(nextSegment, Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())) + 1);
+			}
+		}
+		this.writer = new Thread(this::write, "transaction-archive");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Buckets evicted by engines other than the sorted one are not transactions and are ignored.
+	 */
+	@Override
+	public void evicted(final long timestampMillis, final long count, final double sum, final double max, final double min) {
+		if (count != 1) {
+			return;
+		}
+		try {
+			reentrantLock.lock();
+
+			if (pendingSize == pendingTimestamps.length) {
+				dropped++;
+				return;
+			}
+			pendingTimestamps[pendingSize] = timestampMillis;
+			pendingAmounts[pendingSize] = sum;
+			if (++pendingSize == pendingTimestamps.length / 2) {
+				halfFull.signal();
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	public long getArchivedCount() {
+		return archived;
+	}
+
+	public long getDroppedCount() {
+		try {
+			reentrantLock.lock();
+
+			return dropped;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes what was evicted so far and stops the writer.
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		try {
+			reentrantLock.lock();
+
+			halfFull.signal();
+		} finally {
+			reentrantLock.unlock();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void write() {
+		boolean stopping = false;
+		while (!stopping) {
+			stopping = !running;
+			final int drained;
+			final long droppedSoFar;
+			try {
+				reentrantLock.lock();
+
+				if (pendingSize == 0 && !stopping) {
+					halfFull.awaitNanos(flushIntervalNanos);
+				}
+				final long[] timestamps = pendingTimestamps;
+				final double[] amounts = pendingAmounts;
+				pendingTimestamps = drainingTimestamps;
+				pendingAmounts = drainingAmounts;
+				drainingTimestamps = timestamps;
+				drainingAmounts = amounts;
+				drained = pendingSize;
+				pendingSize = 0;
+				droppedSoFar = dropped;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				reentrantLock.unlock();
+			}
+
+			try {
+				sortByTimestamp(drained);
+				for (int i = 0; i < drained; i++) {
+					if (block.count() == 0) {
+						blockStarted = System.nanoTime();
+					}
+					block.add(drainingTimestamps[i], drainingAmounts[i]);
+					if (block.count() == BLOCK_TRANSACTIONS) {
+						writeBlock();
+					}
+				}
+				if (block.count() > 0 && (stopping || System.nanoTime() - blockStarted >= flushIntervalNanos)) {
+					writeBlock();
+				}
+			} catch (IOException e) {
+				LOGGER.error("Archiving {} evicted transactions to {} failed", drained, directory, e);
+				block.reset();
+			}
+			if (droppedSoFar > droppedReported) {
+				LOGGER.warn("Archive buffer full, dropped {} evicted transactions ({} in total)", droppedSoFar - droppedReported, droppedSoFar);
+				droppedReported = droppedSoFar;
+			}
+		}
+		closeSegment();
+	}
+
+	/**
+	 * Insertion sort: the engine evicts in time order except for late transactions, so almost nothing moves.
+	 */
+	private void sortByTimestamp(final int size) {
+		for (int i = 1; i < size; i++) {
+			final long timestamp = drainingTimestamps[i];
+			final double amount = drainingAmounts[i];
+			int j = i - 1;
+			while (j >= 0 && drainingTimestamps[j] > timestamp) {
+				drainingTimestamps[j + 1] = drainingTimestamps[j];
+				drainingAmounts[j + 1] = drainingAmounts[j];
+				j--;
+			}
+			drainingTimestamps[j + 1] = timestamp;
+			drainingAmounts[j + 1] = amount;
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		final int length = block.byteLength();
+		if (segment == null || segmentEnd > 0 && segmentEnd + length > segmentBytes) {
+			closeSegment();
+			final String name = String.format("%020d", nextSegment++);
+			segment = FileChannel.open(directory.resolve(name + SEGMENT_SUFFIX), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			index = FileChannel.open(directory.resolve(name + INDEX_SUFFIX), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			segmentEnd = 0;
+		}
+		final ByteBuffer bytes = ByteBuffer.wrap(block.array(), 0, length);
+		while (bytes.hasRemaining()) {
+			segment.write(bytes, segmentEnd + bytes.position());
+		}
+		segment.force(false);
+
+		indexEntry.clear();
+		indexEntry.putLong(segmentEnd).putInt(length).putInt(block.count()).putLong(block.minTimestamp()).putLong(block.maxTimestamp());
+		indexEntry.flip();
+		while (indexEntry.hasRemaining()) {
+			index.write(indexEntry);
+		}
+		index.force(false);
+
+		segmentEnd += length;
+		archived += block.count();
+		block.reset();
+	}
+
+	private void closeSegment() {
+		try {
+			if (segment != null) {
+				segment.close();
+				index.close();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Closing archive segment in {} failed", directory, e);
+		}
+		segment = null;
+		index = null;
+	}
+}
@@ -0,0 +1,138 @@
+package com.maxim.cluster;
+
+import com.maxim.model.Statistic;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.PartialAggregate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serves the statistic of the whole cluster: fetches the partial aggregates of every peer in parallel from
+ * {@code /cluster/partials}, merges them with this node's own and keeps the result for {@code cacheMillis}, so a
+ * burst of reads costs one fan-out. Peers that fail or do not answer within {@code timeoutMillis} are left out of
+ * that result and logged. Without peers it answers with this node's statistic.
+ */
+public class ClusterAggregator implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClusterAggregator.class);
+	private static final Duration WINDOW = Duration.ofSeconds(60);
+
+	private final TransactionService transactionService;
+	private final List<URL> peers;
+	private final int timeoutMillis;
+	private final long cacheNanos;
+	private final TransactionClock clock;
+	private final ExecutorService executor;
+
+	private volatile Cached cached;
+
+	public ClusterAggregator(final TransactionService transactionService, final List<String> peers, final int timeoutMillis, final long cacheMillis,
+	                         final TransactionClock clock) {
+		this.transactionService = transactionService;
+		this.peers = new ArrayList<>(peers.size());
+		for (String peer : peers) {
+			try {
+				this.peers.add(new URL("http://" + peer + "/cluster/partials"));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Peer must be given as host:port: " + peer, e);
+			}
+		}
+		this.timeoutMillis = timeoutMillis;
+		this.cacheNanos = TimeUnit.MILLISECONDS.toNanos(cacheMillis);
+		this.clock = clock;
+		this.executor = peers.isEmpty() ? null : Executors.newFixedThreadPool(peers.size(), runnable -> {
+			final Thread thread = new Thread(runnable, "cluster-fan-out");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public Statistic getStatistic() {
+		final Cached current = cached;
+		if (current != null && System.nanoTime() - current.createdNanos < cacheNanos) {
+			return current.statistic;
+		}
+		return refresh();
+	}
+
+	public int getPeerCount() {
+		return peers.size();
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	private synchronized Statistic refresh() {
+		// Readers that waited for the lock take the result of the refresh that was running meanwhile
+		final Cached current = cached;
+		if (current != null && System.nanoTime() - current.createdNanos < cacheNanos) {
+			return current.statistic;
+		}
+
+		final long start = System.nanoTime();
+		final List<Future<PartialAggregate>> responses = new ArrayList<>(peers.size());
+		for (URL peer : peers) {
+			responses.add(executor.submit(() -> fetch(peer)));
+		}
+		PartialAggregate merged = transactionService.getPartialAggregate();
+		for (int i = 0; i < responses.size(); i++) {
+			try {
+				final long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - (System.nanoTime() - start);
+				merged = merged.merge(responses.get(i).get(Math.max(0, remaining), TimeUnit.NANOSECONDS));
+			} catch (ExecutionException | TimeoutException e) {
+				responses.get(i).cancel(true);
+				LOGGER.warn("Leaving peer {} out of the cluster statistic: {}", peers.get(i), e instanceof ExecutionException ? e.getCause() : "timed out");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		final Statistic statistic = merged.toStatistic(clock.millis() - WINDOW.toMillis());
+		cached = new Cached(statistic, System.nanoTime());
+		return statistic;
+	}
+
+	private PartialAggregate fetch(final URL peer) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) peer.openConnection();
+		connection.setConnectTimeout(timeoutMillis);
+		connection.setReadTimeout(timeoutMillis);
+		if (connection.getResponseCode() != 200) {
+			throw new IOException("HTTP " + connection.getResponseCode());
+		}
+		try (InputStream body = connection.getInputStream()) {
+			return PartialAggregate.readFrom(new DataInputStream(new BufferedInputStream(body)));
+		}
+	}
+
+	private static final class Cached {
+		private final Statistic statistic;
+		private final long createdNanos;
+
+		private Cached(final Statistic statistic, final long createdNanos) {
+			this.statistic = statistic;
+			this.createdNanos = createdNanos;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.maxim.cluster;
+
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Configuration
+public class ClusterConfiguration {
+	@Bean(destroyMethod = "close")
+	public ClusterAggregator clusterAggregator(final TransactionService transactionService,
+	                                           @Value("${transaction.cluster.peers:}") final String peers,
+	                                           @Value("${transaction.cluster.timeout-millis:200}") final int timeoutMillis,
+	                                           @Value("${transaction.cluster.cache-millis:1000}") final long cacheMillis,
+	                                           final TransactionClock transactionClock) {
+		return new ClusterAggregator(transactionService, parsePeers(peers), timeoutMillis, cacheMillis, transactionClock);
+	}
+
+	static List<String> parsePeers(final String peers) {
+		if (peers.trim().isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Arrays.stream(peers.split(",")).map(String::trim).filter(peer -> !peer.isEmpty()).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,35 @@
+package com.maxim.controller;
+
+import com.maxim.cluster.ClusterAggregator;
+import com.maxim.dto.Mapper;
+import com.maxim.dto.StatisticResponseDto;
+import com.maxim.service.TransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ClusterController {
+	private final TransactionService transactionService;
+	private final ClusterAggregator clusterAggregator;
+	private final Mapper mapper;
+
+	@Autowired
+	public ClusterController(TransactionService transactionService, ClusterAggregator clusterAggregator, Mapper mapper) {
+		this.transactionService = transactionService;
+		this.clusterAggregator = clusterAggregator;
+		this.mapper = mapper;
+	}
+
+	@RequestMapping(value = "/cluster/partials", method = RequestMethod.GET, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public byte[] getPartialAggregate() {
+		return transactionService.getPartialAggregate().toByteArray();
+	}
+
+	@RequestMapping(value = "/cluster/statistics", method = RequestMethod.GET)
+	public StatisticResponseDto getStatistic() {
+		return mapper.toStatisticResponseDto(clusterAggregator.getStatistic());
+	}
+}
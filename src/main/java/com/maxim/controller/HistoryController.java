@@ -0,0 +1,50 @@
+package com.maxim.controller;
+
+import com.maxim.dto.HistoryPointDto;
+import com.maxim.dto.Mapper;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.WindowFormat;
+import com.maxim.service.engine.TransactionHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class HistoryController {
+	private final TransactionHistory transactionHistory;
+	private final Mapper mapper;
+	private final TransactionClock clock;
+
+	@Autowired
+	public HistoryController(TransactionHistory transactionHistory, Mapper mapper, TransactionClock clock) {
+		this.transactionHistory = transactionHistory;
+		this.mapper = mapper;
+		this.clock = clock;
+	}
+
+	/**
+	 * @param from epoch millis, an hour before {@code to} by default
+	 * @param to   epoch millis, now by default
+	 * @param step a whole number of minutes such as 5m or 1h
+	 */
+	@RequestMapping(value = "/statistics/history", method = RequestMethod.GET)
+	public List<HistoryPointDto> getHistory(@RequestParam(value = "from", required = false) final Long from,
+	                                        @RequestParam(value = "to", required = false) final Long to,
+	                                        @RequestParam(value = "step", defaultValue = "1m") final String step) {
+		final long toMillis = to == null ? clock.millis() : to;
+		final long fromMillis = from == null ? toMillis - TransactionHistory.HOUR_MILLIS : from;
+		return mapper.toHistoryPointDtos(transactionHistory.getHistory(fromMillis, toMillis, WindowFormat.parse(step).toMillis()));
+	}
+
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> handleInvalidRange(final IllegalArgumentException exception) {
+		return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
+	}
+}
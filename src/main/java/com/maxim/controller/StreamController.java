@@ -0,0 +1,53 @@
+package com.maxim.controller;
+
+import com.maxim.dto.EncodedStatistic;
+import com.maxim.stream.StatisticBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+public class StreamController {
+	private final StatisticBroadcaster statisticBroadcaster;
+	private final long timeoutMillis;
+
+	@Autowired
+	public StreamController(StatisticBroadcaster statisticBroadcaster, @Value("${transaction.stream.timeout-millis:0}") long timeoutMillis) {
+		this.statisticBroadcaster = statisticBroadcaster;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	@RequestMapping(value = "/statistics/stream", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> stream() {
+		final SseEmitter emitter = new SseEmitter(timeoutMillis);
+		final StatisticBroadcaster.Subscriber subscriber = new StatisticBroadcaster.Subscriber() {
+			@Override
+			public void send(final EncodedStatistic statistic) throws IOException {
+				emitter.send(SseEmitter.event()
+						.id(statistic.getEtag())
+						.name("statistic")
+						.data(new String(statistic.getJson(), StandardCharsets.UTF_8), MediaType.TEXT_PLAIN));
+			}
+
+			@Override
+			public void close() {
+				emitter.complete();
+			}
+		};
+		emitter.onCompletion(() -> statisticBroadcaster.unsubscribe(subscriber));
+		emitter.onTimeout(() -> statisticBroadcaster.unsubscribe(subscriber));
+		if (!statisticBroadcaster.subscribe(subscriber)) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		return new ResponseEntity<>(emitter, HttpStatus.OK);
+	}
+}
@@ -1,40 +1,135 @@
 package com.maxim.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.maxim.dto.BatchResponseDto;
+import com.maxim.dto.EncodedStatistic;
 import com.maxim.dto.Mapper;
+import com.maxim.dto.StatisticEncoder;
 import com.maxim.dto.StatisticResponseDto;
+import com.maxim.dto.TransactionBatchReader;
 import com.maxim.dto.TransactionRequestDto;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.model.Transaction;
+import com.maxim.model.TransactionBatch;
+import com.maxim.service.TransactionClock;
 import com.maxim.service.TransactionService;
+import com.maxim.service.UnsupportedWindowException;
+import com.maxim.service.WindowFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 public class TransactionController {
 	private final TransactionService transactionService;
 	private final Mapper mapper;
+	private final TransactionBatchReader batchReader;
+	private final TransactionMetrics transactionMetrics;
+	private final StatisticEncoder statisticEncoder;
+	private final TransactionClock clock;
 
 	@Autowired
-	public TransactionController(TransactionService transactionService, Mapper mapper) {
+	public TransactionController(TransactionService transactionService, Mapper mapper, TransactionBatchReader batchReader,
+	                             TransactionMetrics transactionMetrics, StatisticEncoder statisticEncoder, TransactionClock clock) {
 		this.transactionService = transactionService;
 		this.mapper = mapper;
+		this.batchReader = batchReader;
+		this.transactionMetrics = transactionMetrics;
+		this.statisticEncoder = statisticEncoder;
+		this.clock = clock;
 	}
 
 	@RequestMapping(value = "/transactions", method = RequestMethod.POST)
 	public ResponseEntity<Void> recordTransaction(@RequestBody final TransactionRequestDto transactionRequestDto) {
-		if (transactionService.isOlderThan60Seconds(transactionRequestDto.getTimestamp())) {
+		if (Transaction.isKeyTooLong(transactionRequestDto.getKey())) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		final long nowMillis = clock.millis();
+		final long timestampMillis = transactionRequestDto.getTimestamp().toEpochMilli();
+		if (transactionService.isOlderThan60Seconds(timestampMillis, nowMillis)) {
+			transactionMetrics.rejectedTooOld(1);
 			return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-		} else {
-			transactionService.recordTransaction(mapper.toTransaction(transactionRequestDto));
+		} else if (transactionService.isTooFarInFuture(timestampMillis, nowMillis)) {
+			transactionMetrics.rejectedFuture(1);
+			return new ResponseEntity<>(HttpStatus.UNPROCESSABLE_ENTITY);
+		} else if (transactionService.recordTransaction(mapper.toTransaction(transactionRequestDto))) {
 			return new ResponseEntity<>(HttpStatus.CREATED);
+		} else {
+			transactionMetrics.shed(1);
+			return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS);
+		}
+	}
+
+	@RequestMapping(value = "/transactions/batch", method = RequestMethod.POST)
+	public ResponseEntity<BatchResponseDto> recordTransactions(final InputStream body) throws IOException {
+		final TransactionBatch batch = batchReader.read(body);
+		final int received = batch.size();
+		final int tooOld = transactionService.takeTooOldTransactions(batch);
+		// Held only once the rest is accepted, so a shed batch leaves nothing behind when the producer retries it
+		final TransactionBatch future = transactionService.takeFutureTransactions(batch);
+		if (!transactionService.recordTransactions(batch)) {
+			transactionMetrics.shed(batch.size() + future.size());
+			return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS);
 		}
+		final int tooFarInFuture = transactionService.holdFutureTransactions(future);
+		transactionMetrics.rejectedTooOld(tooOld);
+		transactionMetrics.rejectedFuture(tooFarInFuture);
+		final int accepted = received - tooOld - tooFarInFuture;
+		final HttpStatus status = accepted == 0 ? HttpStatus.OK : HttpStatus.CREATED;
+		return new ResponseEntity<>(new BatchResponseDto(accepted, tooOld, tooFarInFuture), status);
 	}
 
 	@RequestMapping(value = "/statistics", method = RequestMethod.GET)
+	public ResponseEntity<byte[]> getLatestStatistic(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch) {
+		final EncodedStatistic encoded = statisticEncoder.encode(transactionService.getLatestStatistic());
+		if (encoded.matches(ifNoneMatch)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(encoded.getEtag()).build();
+		}
+		return ResponseEntity.ok().eTag(encoded.getEtag()).contentType(MediaType.APPLICATION_JSON_UTF8).body(encoded.getJson());
+	}
+
+	/**
+	 * The body of {@code GET /statistics} as a DTO, for callers inside the JVM.
+	 */
 	public StatisticResponseDto getStatistic() {
 		return mapper.toStatisticResponseDto(transactionService.getLatestStatistic());
 	}
-}
\ No newline at end of file
+
+	@RequestMapping(value = "/statistics", method = RequestMethod.GET, params = "window")
+	public StatisticResponseDto getStatistic(@RequestParam("window") final String window) {
+		return mapper.toStatisticResponseDto(transactionService.getStatistic(WindowFormat.parse(window)));
+	}
+
+	@RequestMapping(value = "/statistics/{key:.+}", method = RequestMethod.GET)
+	public StatisticResponseDto getKeyedStatistic(@PathVariable("key") final String key) {
+		return mapper.toStatisticResponseDto(transactionService.getKeyedStatistic(key));
+	}
+
+	@ExceptionHandler(JsonProcessingException.class)
+	public ResponseEntity<Void> handleMalformedBatch() {
+		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+	}
+
+	@ExceptionHandler(ArithmeticException.class)
+	public ResponseEntity<String> handleFixedPointOverflow(final ArithmeticException exception) {
+		return new ResponseEntity<>(exception.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+	}
+
+	@ExceptionHandler(UnsupportedWindowException.class)
+	public ResponseEntity<String> handleUnsupportedWindow(final UnsupportedWindowException exception) {
+		return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
+	}
+}
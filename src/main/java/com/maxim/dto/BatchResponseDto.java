@@ -0,0 +1,28 @@
+package com.maxim.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public class BatchResponseDto {
+	private final int accepted;
+	private final int tooOld;
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	private final int tooFarInFuture;
+
+	public BatchResponseDto(int accepted, int tooOld, int tooFarInFuture) {
+		this.accepted = accepted;
+		this.tooOld = tooOld;
+		this.tooFarInFuture = tooFarInFuture;
+	}
+
+	public int getAccepted() {
+		return accepted;
+	}
+
+	public int getTooOld() {
+		return tooOld;
+	}
+
+	public int getTooFarInFuture() {
+		return tooFarInFuture;
+	}
+}
@@ -0,0 +1,49 @@
+package com.maxim.dto;
+
+import com.maxim.model.Statistic;
+
+public class EncodedStatistic {
+	private final Statistic statistic;
+	private final byte[] json;
+	private final String etag;
+
+	EncodedStatistic(final Statistic statistic, final byte[] json, final String etag) {
+		this.statistic = statistic;
+		this.json = json;
+		this.etag = etag;
+	}
+
+	public Statistic getStatistic() {
+		return statistic;
+	}
+
+	/**
+	 * Shared by every response of this statistic, must not be modified.
+	 */
+	public byte[] getJson() {
+		return json;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * @param ifNoneMatch value of an {@code If-None-Match} header, a list of strong or weak ETags or {@code *}
+	 */
+	public boolean matches(final String ifNoneMatch) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		if (ifNoneMatch.equals(etag)) {
+			return true;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			final String tag = candidate.trim();
+			if (tag.equals("*") || tag.equals(etag) || tag.startsWith("W/") && tag.substring(2).equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
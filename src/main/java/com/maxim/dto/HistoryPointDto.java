@@ -0,0 +1,49 @@
+package com.maxim.dto;
+
+public class HistoryPointDto {
+	private final long from;
+	private final long to;
+	private final double sum;
+	private final double avg;
+	private final double max;
+	private final double min;
+	private final long count;
+
+	public HistoryPointDto(long from, long to, double sum, double avg, double max, double min, long count) {
+		this.from = from;
+		this.to = to;
+		this.sum = sum;
+		this.avg = avg;
+		this.max = max;
+		this.min = min;
+		this.count = count;
+	}
+
+	public long getFrom() {
+		return from;
+	}
+
+	public long getTo() {
+		return to;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	public double getAvg() {
+		return avg;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public long getCount() {
+		return count;
+	}
+}
@@ -1,16 +1,37 @@
 package com.maxim.dto;
 
+import com.maxim.model.Percentiles;
 import com.maxim.model.Statistic;
+import com.maxim.model.StatisticHistory;
 import com.maxim.model.Transaction;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class Mapper {
 	public StatisticResponseDto toStatisticResponseDto(final Statistic statistic) {
-		return new StatisticResponseDto(statistic.getSum(), statistic.getAvg(), statistic.getMax(), statistic.getMin(), statistic.getCount());
+		final Percentiles percentiles = statistic.getPercentiles();
+		if (percentiles == null) {
+			return new StatisticResponseDto(statistic.getSum(), statistic.getAvg(), statistic.getMax(), statistic.getMin(), statistic.getCount());
+		}
+		return new StatisticResponseDto(statistic.getSum(), statistic.getAvg(), statistic.getMax(), statistic.getMin(), statistic.getCount(),
+				percentiles.getP50(), percentiles.getP95(), percentiles.getP99());
+	}
+
+	public List<HistoryPointDto> toHistoryPointDtos(final StatisticHistory history) {
+		final List<HistoryPointDto> points = new ArrayList<>(history.getStatistics().size());
+		long from = history.getFromMillis();
+		for (Statistic statistic : history.getStatistics()) {
+			points.add(new HistoryPointDto(from, from + history.getStepMillis(), statistic.getSum(), statistic.getAvg(), statistic.getMax(),
+					statistic.getMin(), statistic.getCount()));
+			from += history.getStepMillis();
+		}
+		return points;
 	}
 
 	public Transaction toTransaction(final TransactionRequestDto requestDto) {
-		return new Transaction(requestDto.getTimestamp(), requestDto.getAmount());
+		return new Transaction(requestDto.getTimestamp(), requestDto.getAmount(), requestDto.getKey());
 	}
 }
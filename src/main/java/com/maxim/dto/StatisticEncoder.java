@@ -0,0 +1,56 @@
+package com.maxim.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.maxim.model.Statistic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Keeps the JSON of the last {@link Statistic} it encoded, so polls between two changes are answered from the
+ * same bytes without mapping or serializing again. A statistic equal to the last one, such as the bucket engine
+ * merging unchanged buckets into a new instance, reuses it too. The ETag is a hash of the JSON, so it only changes
+ * with the content and is the same on every node serving the same statistic.
+ */
+@Component
+public class StatisticEncoder {
+	private final Mapper mapper;
+	private final ObjectWriter writer = new ObjectMapper().writerFor(StatisticResponseDto.class);
+
+	private volatile EncodedStatistic latest;
+
+	@Autowired
+	public StatisticEncoder(final Mapper mapper) {
+		this.mapper = mapper;
+	}
+
+	public EncodedStatistic encode(final Statistic statistic) {
+		final EncodedStatistic current = latest;
+		if (current != null && (current.getStatistic() == statistic || current.getStatistic().equals(statistic))) {
+			return current;
+		}
+		final byte[] json;
+		try {
+			json = writer.writeValueAsBytes(mapper.toStatisticResponseDto(statistic));
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+		// Racing encoders may leave an older statistic here, which only costs the next poll an encoding
+		final EncodedStatistic encoded = new EncodedStatistic(statistic, json, etagOf(json));
+		latest = encoded;
+		return encoded;
+	}
+
+	private static String etagOf(final byte[] json) {
+		// 64-bit FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : json) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return "\"" + Long.toHexString(hash) + "\"";
+	}
+}
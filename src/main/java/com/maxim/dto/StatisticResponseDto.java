@@ -1,18 +1,31 @@
 package com.maxim.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class StatisticResponseDto {
 	private final double sum;
 	private final double avg;
 	private final double max;
 	private final double min;
 	private final long count;
+	private final Double p50;
+	private final Double p95;
+	private final Double p99;
 
 	public StatisticResponseDto(double sum, double avg, double max, double min, long count) {
+		this(sum, avg, max, min, count, null, null, null);
+	}
+
+	public StatisticResponseDto(double sum, double avg, double max, double min, long count, Double p50, Double p95, Double p99) {
 		this.sum = sum;
 		this.avg = avg;
 		this.max = max;
 		this.min = min;
 		this.count = count;
+		this.p50 = p50;
+		this.p95 = p95;
+		this.p99 = p99;
 	}
 
 	public double getSum() {
@@ -34,4 +47,16 @@ public class StatisticResponseDto {
 	public long getCount() {
 		return count;
 	}
+
+	public Double getP50() {
+		return p50;
+	}
+
+	public Double getP95() {
+		return p95;
+	}
+
+	public Double getP99() {
+		return p99;
+	}
 }
@@ -0,0 +1,80 @@
+package com.maxim.dto;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.maxim.model.Transaction;
+import com.maxim.model.TransactionBatch;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streams transactions out of either a JSON array or newline-delimited JSON objects straight into a
+ * {@link TransactionBatch}, without binding a {@link TransactionRequestDto} per element.
+ */
+@Component
+public class TransactionBatchReader {
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	public TransactionBatch read(final InputStream inputStream) throws IOException {
+		final TransactionBatch batch = new TransactionBatch();
+		try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+			JsonToken token = parser.nextToken();
+			final boolean array = token == JsonToken.START_ARRAY;
+			if (array) {
+				token = parser.nextToken();
+			}
+
+			while (token != null && token != JsonToken.END_ARRAY) {
+				readTransaction(parser, batch);
+				token = parser.nextToken();
+			}
+
+			if (array && token == null) {
+				throw new JsonParseException(parser, "Unexpected end of input inside transaction array");
+			}
+			if (array && parser.nextToken() != null) {
+				throw new JsonParseException(parser, "Unexpected content after transaction array");
+			}
+		}
+		return batch;
+	}
+
+	private void readTransaction(final JsonParser parser, final TransactionBatch batch) throws IOException {
+		if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+			throw new JsonParseException(parser, "Expected transaction object but found " + parser.getCurrentToken());
+		}
+
+		boolean hasTimestamp = false;
+		boolean hasAmount = false;
+		long timestamp = 0;
+		double amount = 0;
+		String key = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = parser.getCurrentName();
+			parser.nextToken();
+			if ("timestamp".equals(field)) {
+				timestamp = parser.getLongValue();
+				hasTimestamp = true;
+			} else if ("amount".equals(field)) {
+				amount = parser.getDoubleValue();
+				hasAmount = true;
+			} else if ("key".equals(field)) {
+				key = parser.getValueAsString();
+			} else {
+				parser.skipChildren();
+			}
+		}
+
+		if (!hasTimestamp || !hasAmount) {
+			throw new JsonParseException(parser, "Transaction requires both timestamp and amount");
+		}
+		if (Transaction.isKeyTooLong(key)) {
+			throw new JsonParseException(parser, "Transaction key is longer than " + Transaction.MAX_KEY_BYTES + " bytes");
+		}
+		batch.add(timestamp, amount, key);
+	}
+}
@@ -0,0 +1,249 @@
+package com.maxim.dto;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes a {@code {"timestamp":...,"amount":...}} body, optionally with a {@code "key"}, straight from its bytes
+ * into primitives, without a {@link TransactionRequestDto} or an {@code Instant}; only a key allocates, as the
+ * {@code String} it is recorded under. Only that exact shape is handled: bodies with other fields, escaped names or
+ * keys, strings where numbers belong or nesting return false and are left to Jackson, which also reports them if they
+ * are malformed. Amounts of up to 15 significant digits and a decimal exponent within
+ * &plusmn;22 are converted exactly with one multiplication or division; longer ones fall back to
+ * {@link Double#parseDouble}. Instances are reusable but not thread-safe.
+ */
+public final class TransactionDecoder {
+	private static final byte[] TIMESTAMP = "timestamp".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] AMOUNT = "amount".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] KEY = "key".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	private static final int MAX_EXACT_DIGITS = 15;
+	private static final int MAX_LONG_DIGITS = 18;
+
+	private byte[] bytes;
+	private int position;
+	private int end;
+
+	private long timestamp;
+	private double amount;
+	private String key;
+
+	/**
+	 * @return true if the body was a transaction with exactly a numeric timestamp and amount, and possibly a key
+	 */
+	public boolean decode(final byte[] bytes, final int offset, final int length) {
+		this.bytes = bytes;
+		this.position = offset;
+		this.end = offset + length;
+		this.key = null;
+		try {
+			return decodeObject();
+		} finally {
+			this.bytes = null;
+		}
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public double getAmount() {
+		return amount;
+	}
+
+	/**
+	 * @return the key, or {@code null} if the body had none or a {@code null} one
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	private boolean decodeObject() {
+		boolean hasTimestamp = false;
+		boolean hasAmount = false;
+		if (!expect('{')) {
+			return false;
+		}
+		if (expect('}')) {
+			return false;
+		}
+		do {
+			if (!expect('"')) {
+				return false;
+			}
+			final int nameStart = position;
+			while (position < end && bytes[position] != '"' && bytes[position] != '\\') {
+				position++;
+			}
+			if (position == end || bytes[position] == '\\') {
+				return false;
+			}
+			final int nameEnd = position++;
+			if (!expect(':')) {
+				return false;
+			}
+			skipWhitespace();
+			if (nameEquals(nameStart, nameEnd, TIMESTAMP)) {
+				if (!decodeTimestamp()) {
+					return false;
+				}
+				hasTimestamp = true;
+			} else if (nameEquals(nameStart, nameEnd, AMOUNT)) {
+				if (!decodeAmount()) {
+					return false;
+				}
+				hasAmount = true;
+			} else if (nameEquals(nameStart, nameEnd, KEY)) {
+				if (!decodeKey()) {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} while (expect(','));
+		if (!expect('}')) {
+			return false;
+		}
+		skipWhitespace();
+		return position == end && hasTimestamp && hasAmount;
+	}
+
+	private boolean decodeTimestamp() {
+		final boolean negative = consume('-');
+		final int digitsStart = position;
+		long value = 0;
+		while (position < end && isDigit(bytes[position])) {
+			value = value * 10 + (bytes[position++] - '0');
+		}
+		final int digits = position - digitsStart;
+		if (digits == 0 || digits > MAX_LONG_DIGITS || position < end && isNumberContinuation(bytes[position])) {
+			return false;
+		}
+		timestamp = negative ? -value : value;
+		return true;
+	}
+
+	private boolean decodeKey() {
+		if (position + NULL.length <= end && nameEquals(position, position + NULL.length, NULL)) {
+			position += NULL.length;
+			key = null;
+			return true;
+		}
+		if (!consume('"')) {
+			return false;
+		}
+		final int start = position;
+		while (position < end && bytes[position] != '"' && bytes[position] != '\\' && (bytes[position] & 0xff) >= 0x20) {
+			position++;
+		}
+		if (position == end || bytes[position] != '"') {
+			return false;
+		}
+		key = new String(bytes, start, position++ - start, StandardCharsets.UTF_8);
+		return true;
+	}
+
+	private boolean decodeAmount() {
+		final int start = position;
+		final boolean negative = consume('-');
+		long mantissa = 0;
+		int significantDigits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+		while (position < end && isDigit(bytes[position])) {
+			final int digit = bytes[position++] - '0';
+			anyDigit = true;
+			if (significantDigits > 0 || digit != 0) {
+				if (significantDigits < MAX_LONG_DIGITS) {
+					mantissa = mantissa * 10 + digit;
+				} else {
+					exponent++;
+				}
+				significantDigits++;
+			}
+		}
+		if (consume('.')) {
+			while (position < end && isDigit(bytes[position])) {
+				final int digit = bytes[position++] - '0';
+				anyDigit = true;
+				if (significantDigits > 0 || digit != 0) {
+					if (significantDigits < MAX_LONG_DIGITS) {
+						mantissa = mantissa * 10 + digit;
+						exponent--;
+					}
+					significantDigits++;
+				} else {
+					exponent--;
+				}
+			}
+		}
+		if (!anyDigit) {
+			return false;
+		}
+		if (position < end && (bytes[position] == 'e' || bytes[position] == 'E')) {
+			position++;
+			final boolean negativeExponent = consume('-');
+			if (!negativeExponent) {
+				consume('+');
+			}
+			final int exponentStart = position;
+			int explicit = 0;
+			while (position < end && isDigit(bytes[position])) {
+				explicit = Math.min(explicit * 10 + (bytes[position++] - '0'), 10_000);
+			}
+			if (position == exponentStart) {
+				return false;
+			}
+			exponent += negativeExponent ? -explicit : explicit;
+		}
+
+		if (significantDigits <= MAX_EXACT_DIGITS && Math.abs(exponent) < POWERS_OF_TEN.length) {
+			final double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+			amount = negative ? -value : value;
+		} else {
+			amount = Double.parseDouble(new String(bytes, start, position - start, StandardCharsets.US_ASCII));
+		}
+		return true;
+	}
+
+	private boolean nameEquals(final int start, final int nameEnd, final byte[] name) {
+		if (nameEnd - start != name.length) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (bytes[start + i] != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean expect(final char expected) {
+		skipWhitespace();
+		return consume(expected);
+	}
+
+	private boolean consume(final char expected) {
+		if (position < end && bytes[position] == expected) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+		while (position < end && (bytes[position] == ' ' || bytes[position] == '\t' || bytes[position] == '\n' || bytes[position] == '\r')) {
+			position++;
+		}
+	}
+
+	private static boolean isDigit(final byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static boolean isNumberContinuation(final byte b) {
+		return b == '.' || b == 'e' || b == 'E' || isDigit(b);
+	}
+}
@@ -10,6 +10,8 @@ public class TransactionRequestDto {
 
 	private double amount;
 
+	private String key;
+
 	public double getAmount() {
 		return amount;
 	}
@@ -25,4 +27,12 @@ public class TransactionRequestDto {
 	public void setTimestamp(Instant timestamp) {
 		this.timestamp = timestamp;
 	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
 }
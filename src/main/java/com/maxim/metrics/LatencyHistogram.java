@@ -0,0 +1,95 @@
+package com.maxim.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of non-negative values: 8 sub-buckets per power of two, so a recorded value is
+ * reported within 12.5% of itself. Recording is one atomic increment; {@link #drain()} takes the counts recorded
+ * since the previous drain without losing concurrent increments.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	public void record(final long value) {
+		counts.incrementAndGet(indexOf(Math.max(0, value)));
+	}
+
+	public Snapshot drain() {
+		final long[] drained = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			if (counts.get(i) != 0) {
+				drained[i] = counts.getAndSet(i, 0);
+			}
+		}
+		return new Snapshot(drained);
+	}
+
+	static int indexOf(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = index / SUB_BUCKETS - 1;
+		final long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+
+	/**
+	 * Counts recorded between two drains. Values are reported as the upper bound of their bucket.
+	 */
+	public static final class Snapshot {
+		public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS]);
+
+		private final long[] counts;
+		private final long count;
+
+		private Snapshot(final long[] counts) {
+			this.counts = counts;
+			long total = 0;
+			for (long bucketCount : counts) {
+				total += bucketCount;
+			}
+			this.count = total;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getValueAtQuantile(final double quantile) {
+			if (count == 0) {
+				return 0;
+			}
+			final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return upperBoundOf(i);
+				}
+			}
+			return getMax();
+		}
+
+		public long getMax() {
+			for (int i = counts.length - 1; i >= 0; i--) {
+				if (counts[i] != 0) {
+					return upperBoundOf(i);
+				}
+			}
+			return 0;
+		}
+	}
+}
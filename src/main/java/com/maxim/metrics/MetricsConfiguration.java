@@ -0,0 +1,20 @@
+package com.maxim.metrics;
+
+import com.maxim.service.TransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+	@Bean
+	public TransactionMetrics transactionMetrics(@Value("${transaction.metrics.enabled:true}") final boolean enabled,
+	                                             @Value("${transaction.metrics.record-sample-rate:16}") final int recordSampleRate) {
+		return new TransactionMetrics(enabled, recordSampleRate);
+	}
+
+	@Bean
+	public TransactionPublicMetrics transactionPublicMetrics(final TransactionMetrics transactionMetrics, final TransactionService transactionService) {
+		return new TransactionPublicMetrics(transactionMetrics, transactionService);
+	}
+}
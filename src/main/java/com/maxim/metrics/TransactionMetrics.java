@@ -0,0 +1,160 @@
+package com.maxim.metrics;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot-path instrumentation: record latency, contended lock waits, eviction sweeps, too-old, future and shed rejections.
+ * Histograms are drained every interval, so percentiles describe the last completed interval while the counts
+ * are totals since startup. Record latency is sampled, one in {@code recordSampleRate} writes reads the clock
+ * twice, since two clock reads cost as much as a whole write into the bucket engines. When disabled every call
+ * returns without reading the clock.
+ */
+public class TransactionMetrics {
+	private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+	private final boolean enabled;
+	private final int recordSampleRate;
+
+	private final LatencyHistogram recordLatency = new LatencyHistogram();
+	private final LatencyHistogram lockWait = new LatencyHistogram();
+	private final LatencyHistogram evictionDuration = new LatencyHistogram();
+	private final LongAdder evicted = new LongAdder();
+	private final LongAdder rejectedTooOld = new LongAdder();
+	private final LongAdder rejectedFuture = new LongAdder();
+	private final LongAdder shed = new LongAdder();
+
+	private volatile long lastEvictionBatch;
+	private volatile Interval lastInterval = new Interval(LatencyHistogram.Snapshot.EMPTY, LatencyHistogram.Snapshot.EMPTY, LatencyHistogram.Snapshot.EMPTY);
+	private long records;
+	private long lockWaits;
+	private long evictions;
+
+	public TransactionMetrics(final boolean enabled, final int recordSampleRate) {
+		if (recordSampleRate < 1) {
+			throw new IllegalArgumentException("Record sample rate must be at least 1: " + recordSampleRate);
+		}
+		this.enabled = enabled;
+		this.recordSampleRate = recordSampleRate;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return start time to pass to {@link #recorded(long)}
+	 */
+	public long startRecord() {
+		if (!enabled || recordSampleRate > 1 && ThreadLocalRandom.current().nextInt(recordSampleRate) != 0) {
+			return NOT_SAMPLED;
+		}
+		return System.nanoTime();
+	}
+
+	public void recorded(final long startNanos) {
+		if (startNanos != NOT_SAMPLED) {
+			recordLatency.record(System.nanoTime() - startNanos);
+		}
+	}
+
+	public void lockWaited(final long nanos) {
+		if (enabled) {
+			lockWait.record(nanos);
+		}
+	}
+
+	public void evicted(final long transactions, final long nanos) {
+		if (enabled) {
+			evictionDuration.record(nanos);
+			evicted.add(transactions);
+			lastEvictionBatch = transactions;
+		}
+	}
+
+	public void rejectedTooOld(final int transactions) {
+		if (enabled) {
+			rejectedTooOld.add(transactions);
+		}
+	}
+
+	public void rejectedFuture(final int transactions) {
+		if (enabled) {
+			rejectedFuture.add(transactions);
+		}
+	}
+
+	public void shed(final int transactions) {
+		if (enabled) {
+			shed.add(transactions);
+		}
+	}
+
+	@Scheduled(fixedRateString = "${transaction.metrics.interval-millis:10000}")
+	public synchronized void rotate() {
+		final Interval interval = new Interval(recordLatency.drain(), lockWait.drain(), evictionDuration.drain());
+		records += interval.recordLatency.getCount();
+		lockWaits += interval.lockWait.getCount();
+		evictions += interval.evictionDuration.getCount();
+		lastInterval = interval;
+	}
+
+	public LatencyHistogram.Snapshot getRecordLatency() {
+		return lastInterval.recordLatency;
+	}
+
+	public LatencyHistogram.Snapshot getLockWait() {
+		return lastInterval.lockWait;
+	}
+
+	public LatencyHistogram.Snapshot getEvictionDuration() {
+		return lastInterval.evictionDuration;
+	}
+
+	public synchronized long getSampledRecords() {
+		return records;
+	}
+
+	public synchronized long getLockWaits() {
+		return lockWaits;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public long getEvicted() {
+		return evicted.sum();
+	}
+
+	public long getLastEvictionBatch() {
+		return lastEvictionBatch;
+	}
+
+	public long getRejectedTooOld() {
+		return rejectedTooOld.sum();
+	}
+
+	public long getRejectedFuture() {
+		return rejectedFuture.sum();
+	}
+
+	public long getShed() {
+		return shed.sum();
+	}
+
+	private static final class Interval {
+		private final LatencyHistogram.Snapshot recordLatency;
+		private final LatencyHistogram.Snapshot lockWait;
+		private final LatencyHistogram.Snapshot evictionDuration;
+
+		private Interval(final LatencyHistogram.Snapshot recordLatency, final LatencyHistogram.Snapshot lockWait,
+		                 final LatencyHistogram.Snapshot evictionDuration) {
+			this.recordLatency = recordLatency;
+			this.lockWait = lockWait;
+			this.evictionDuration = evictionDuration;
+		}
+	}
+}
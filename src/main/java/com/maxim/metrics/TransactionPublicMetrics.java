@@ -0,0 +1,50 @@
+package com.maxim.metrics;
+
+import com.maxim.service.TransactionService;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publishes {@link TransactionMetrics} on the actuator's /metrics endpoint. Durations are in nanoseconds;
+ * percentiles and maxima cover the last completed interval, everything else is a total or a current value.
+ */
+public class TransactionPublicMetrics implements PublicMetrics {
+	private final TransactionMetrics metrics;
+	private final TransactionService transactionService;
+
+	public TransactionPublicMetrics(final TransactionMetrics metrics, final TransactionService transactionService) {
+		this.metrics = metrics;
+		this.transactionService = transactionService;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		final List<Metric<?>> result = new ArrayList<>();
+		result.add(new Metric<>("transaction.retained", transactionService.getLatestStatistic().getCount()));
+		result.add(new Metric<>("transaction.keys", transactionService.getKeyCount()));
+		result.add(new Metric<>("transaction.rejected.too-old", metrics.getRejectedTooOld()));
+		result.add(new Metric<>("transaction.rejected.future", metrics.getRejectedFuture()));
+		result.add(new Metric<>("transaction.rejected.shed", metrics.getShed()));
+		result.add(new Metric<>("transaction.future.held", transactionService.getFutureTransactionCount()));
+		result.add(new Metric<>("transaction.record.sampled", metrics.getSampledRecords()));
+		addLatency(result, "transaction.record.nanos", metrics.getRecordLatency());
+		result.add(new Metric<>("transaction.lock.wait.count", metrics.getLockWaits()));
+		addLatency(result, "transaction.lock.wait.nanos", metrics.getLockWait());
+		result.add(new Metric<>("transaction.eviction.count", metrics.getEvictions()));
+		result.add(new Metric<>("transaction.eviction.evicted", metrics.getEvicted()));
+		result.add(new Metric<>("transaction.eviction.last-batch", metrics.getLastEvictionBatch()));
+		addLatency(result, "transaction.eviction.nanos", metrics.getEvictionDuration());
+		return result;
+	}
+
+	private static void addLatency(final List<Metric<?>> result, final String name, final LatencyHistogram.Snapshot snapshot) {
+		result.add(new Metric<>(name + ".p50", snapshot.getValueAtQuantile(0.5)));
+		result.add(new Metric<>(name + ".p99", snapshot.getValueAtQuantile(0.99)));
+		result.add(new Metric<>(name + ".p999", snapshot.getValueAtQuantile(0.999)));
+		result.add(new Metric<>(name + ".max", snapshot.getMax()));
+	}
+}
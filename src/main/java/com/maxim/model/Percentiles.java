@@ -0,0 +1,44 @@
+package com.maxim.model;
+
+import java.util.Objects;
+
+public class Percentiles {
+	private final double p50;
+	private final double p95;
+	private final double p99;
+
+	public Percentiles(double p50, double p95, double p99) {
+		this.p50 = p50;
+		this.p95 = p95;
+		this.p99 = p99;
+	}
+
+	public double getP50() {
+		return p50;
+	}
+
+	public double getP95() {
+		return p95;
+	}
+
+	public double getP99() {
+		return p99;
+	}
+
+	@Override
+	public boolean equals(final Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof Percentiles)) {
+			return false;
+		}
+		final Percentiles percentiles = (Percentiles) other;
+		return Double.compare(p50, percentiles.p50) == 0 && Double.compare(p95, percentiles.p95) == 0 && Double.compare(p99, percentiles.p99) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(p50, p95, p99);
+	}
+}
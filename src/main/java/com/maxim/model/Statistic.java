@@ -1,18 +1,26 @@
 package com.maxim.model;
 
+import java.util.Objects;
+
 public class Statistic {
 	private final double sum;
 	private final double max;
 	private final double min;
 	private final double avg;
 	private final long count;
+	private final Percentiles percentiles;
 
 	public Statistic(double sum, double max, double min, double avg, long count) {
+		this(sum, max, min, avg, count, null);
+	}
+
+	public Statistic(double sum, double max, double min, double avg, long count, Percentiles percentiles) {
 		this.sum = sum;
 		this.max = max;
 		this.min = min;
 		this.avg = avg;
 		this.count = count;
+		this.percentiles = percentiles;
 	}
 
 	public double getSum() {
@@ -34,4 +42,26 @@ public class Statistic {
 	public long getCount() {
 		return count;
 	}
+
+	public Percentiles getPercentiles() {
+		return percentiles;
+	}
+
+	@Override
+	public boolean equals(final Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof Statistic)) {
+			return false;
+		}
+		final Statistic statistic = (Statistic) other;
+		return Double.compare(sum, statistic.sum) == 0 && Double.compare(max, statistic.max) == 0 && Double.compare(min, statistic.min) == 0
+				&& Double.compare(avg, statistic.avg) == 0 && count == statistic.count && Objects.equals(percentiles, statistic.percentiles);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(sum, max, min, avg, count, percentiles);
+	}
 }
@@ -0,0 +1,30 @@
+package com.maxim.model;
+
+import java.util.List;
+
+/**
+ * Consecutive statistics of equal length, the first one starting at {@link #getFromMillis()}.
+ */
+public class StatisticHistory {
+	private final long fromMillis;
+	private final long stepMillis;
+	private final List<Statistic> statistics;
+
+	public StatisticHistory(long fromMillis, long stepMillis, List<Statistic> statistics) {
+		this.fromMillis = fromMillis;
+		this.stepMillis = stepMillis;
+		this.statistics = statistics;
+	}
+
+	public long getFromMillis() {
+		return fromMillis;
+	}
+
+	public long getStepMillis() {
+		return stepMillis;
+	}
+
+	public List<Statistic> getStatistics() {
+		return statistics;
+	}
+}
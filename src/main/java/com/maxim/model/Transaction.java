@@ -1,14 +1,26 @@
 package com.maxim.model;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 
 public class Transaction {
+	/**
+	 * Longest key in UTF-8 bytes, as stored by the journal; longer keys are rejected before anything is recorded.
+	 */
+	public static final int MAX_KEY_BYTES = 1024;
+
 	private final Instant timestamp;
 	private final double amount;
+	private final String key;
 
 	public Transaction(final Instant timestamp, final double amount) {
+		this(timestamp, amount, null);
+	}
+
+	public Transaction(final Instant timestamp, final double amount, final String key) {
 		this.timestamp = timestamp;
 		this.amount = amount;
+		this.key = key;
 	}
 
 	public Instant getTimestamp() {
@@ -18,4 +30,13 @@ public class Transaction {
 	public double getAmount() {
 		return amount;
 	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public static boolean isKeyTooLong(final String key) {
+		// A UTF-16 char never takes more than 3 bytes in UTF-8, so most keys are accepted without encoding them
+		return key != null && key.length() * 3 > MAX_KEY_BYTES && key.getBytes(StandardCharsets.UTF_8).length > MAX_KEY_BYTES;
+	}
 }
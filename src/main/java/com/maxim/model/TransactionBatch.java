@@ -0,0 +1,81 @@
+package com.maxim.model;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+public class TransactionBatch {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] timestamps = new long[INITIAL_CAPACITY];
+	private double[] amounts = new double[INITIAL_CAPACITY];
+	private String[] keys;
+	private int size;
+
+	public void add(final long timestampMillis, final double amount) {
+		add(timestampMillis, amount, null);
+	}
+
+	public void add(final long timestampMillis, final double amount, final String key) {
+		if (size == timestamps.length) {
+			timestamps = Arrays.copyOf(timestamps, size * 2);
+			amounts = Arrays.copyOf(amounts, size * 2);
+			if (keys != null) {
+				keys = Arrays.copyOf(keys, size * 2);
+			}
+		}
+		if (key != null && keys == null) {
+			// Key column is only allocated once a keyed transaction shows up
+			keys = new String[timestamps.length];
+		}
+		timestamps[size] = timestampMillis;
+		amounts[size] = amount;
+		if (keys != null) {
+			keys[size] = key;
+		}
+		size++;
+	}
+
+	public int removeIfTimestamp(final LongPredicate predicate) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (!predicate.test(timestamps[i])) {
+				timestamps[kept] = timestamps[i];
+				amounts[kept] = amounts[i];
+				if (keys != null) {
+					keys[kept] = keys[i];
+				}
+				kept++;
+			}
+		}
+		final int removed = size - kept;
+		size = kept;
+		return removed;
+	}
+
+	public void clear() {
+		if (keys != null) {
+			Arrays.fill(keys, 0, size, null);
+		}
+		size = 0;
+	}
+
+	public long getTimestamp(final int index) {
+		return timestamps[index];
+	}
+
+	public double getAmount(final int index) {
+		return amounts[index];
+	}
+
+	public String getKey(final int index) {
+		return keys == null ? null : keys[index];
+	}
+
+	public boolean hasKeys() {
+		return keys != null;
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,42 @@
+package com.maxim.persistence;
+
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionJournal;
+import com.maxim.service.engine.KeyedStatisticStore;
+import com.maxim.service.engine.StatisticEngine;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class PersistenceConfiguration {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceConfiguration.class);
+
+	@Bean(destroyMethod = "close")
+	public TransactionJournal transactionJournal(final StatisticEngine statisticEngine,
+	                                             final KeyedStatisticStore keyedStatisticStore,
+	                                             @Value("${transaction.persistence.enabled:false}") final boolean enabled,
+	                                             @Value("${transaction.persistence.directory:data}") final String directory,
+	                                             @Value("${transaction.persistence.segment-bytes:67108864}") final int segmentBytes,
+	                                             @Value("${transaction.persistence.fsync-interval-millis:10}") final long fsyncIntervalMillis,
+	                                             @Value("${transaction.persistence.snapshot-interval-millis:10000}") final long snapshotIntervalMillis,
+	                                             final TransactionClock transactionClock) throws IOException {
+		if (!enabled) {
+			return TransactionJournal.NONE;
+		}
+		final WriteAheadJournal journal = new WriteAheadJournal(
+				new WriteAheadLog(Paths.get(directory, "wal"), segmentBytes),
+				new SnapshotStore(Paths.get(directory)),
+				statisticEngine, keyedStatisticStore, StatisticEngineConfiguration.WINDOW.toMillis());
+		final long replayed = journal.recover(transactionClock.millis());
+		LOGGER.info("Recovered {} transactions from {}", replayed, directory);
+		journal.start(fsyncIntervalMillis, snapshotIntervalMillis, transactionClock);
+		return journal;
+	}
+}
@@ -0,0 +1,85 @@
+package com.maxim.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the latest engine snapshot together with the write-ahead log position it covers. A snapshot is written
+ * to a temporary file, forced and atomically moved over the previous one, so a crash leaves either the old or the
+ * new snapshot, never a partial one.
+ */
+public class SnapshotStore {
+	private static final int MAGIC = 0x54534E50;
+	private static final int VERSION = 1;
+	private static final String FILE_NAME = "engine.snapshot";
+
+	public static final class Snapshot {
+		private final long position;
+		private final byte[] state;
+
+		public Snapshot(final long position, final byte[] state) {
+			this.position = position;
+			this.state = state;
+		}
+
+		public long getPosition() {
+			return position;
+		}
+
+		public DataInputStream getState() {
+			return new DataInputStream(new ByteArrayInputStream(state));
+		}
+	}
+
+	private final Path file;
+	private final Path tmp;
+
+	public SnapshotStore(final Path directory) throws IOException {
+		Files.createDirectories(directory);
+		this.file = directory.resolve(FILE_NAME);
+		this.tmp = directory.resolve(FILE_NAME + ".tmp");
+	}
+
+	public void save(final Snapshot snapshot) throws IOException {
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			final OutputStream stream = Channels.newOutputStream(channel);
+			final DataOutputStream out = new DataOutputStream(stream);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(snapshot.position);
+			out.writeInt(snapshot.state.length);
+			out.write(snapshot.state);
+			out.flush();
+			channel.force(true);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return the latest snapshot, or {@code null} when none was taken yet
+	 */
+	public Snapshot load() throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unrecognised snapshot file " + file);
+			}
+			final long position = in.readLong();
+			final byte[] state = new byte[in.readInt()];
+			in.readFully(state);
+			return new Snapshot(position, state);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.maxim.persistence;
+
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionJournal;
+import com.maxim.service.engine.KeyedStatisticStore;
+import com.maxim.service.engine.SnapshotSupport;
+import com.maxim.service.engine.StatisticEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Journals transactions to a {@link WriteAheadLog} and periodically snapshots the engine. Appends go to the
+ * memory-mapped log, so a process crash loses nothing; the log is forced in the background every
+ * {@code fsyncIntervalMillis}, which bounds what a machine crash can lose (group commit: one fsync covers every
+ * transaction appended in that interval). Snapshots are only taken for engines implementing
+ * {@link SnapshotSupport}; recovery loads the snapshot and replays the log after it, other engines and the keyed
+ * store replay every transaction still inside the window.
+ */
+public class WriteAheadJournal implements TransactionJournal {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadJournal.class);
+
+	private final WriteAheadLog log;
+	private final SnapshotStore snapshots;
+	private final StatisticEngine statisticEngine;
+	private final KeyedStatisticStore keyedStatisticStore;
+	private final long windowMillis;
+	private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, "transaction-journal");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public WriteAheadJournal(final WriteAheadLog log, final SnapshotStore snapshots, final StatisticEngine statisticEngine,
+	                         final KeyedStatisticStore keyedStatisticStore, final long windowMillis) {
+		this.log = log;
+		this.snapshots = snapshots;
+		this.statisticEngine = statisticEngine;
+		this.keyedStatisticStore = keyedStatisticStore;
+		this.windowMillis = windowMillis;
+	}
+
+	/**
+	 * Rebuilds the engine and the keyed store from the latest snapshot and the log.
+	 *
+	 * @return number of transactions replayed from the log
+	 */
+	public long recover(final long nowMillis) throws IOException {
+		final long threshold = nowMillis - windowMillis;
+		long snapshotPosition = Long.MIN_VALUE;
+		final SnapshotStore.Snapshot snapshot = statisticEngine instanceof SnapshotSupport ? snapshots.load() : null;
+		if (snapshot != null) {
+			try {
+				((SnapshotSupport) statisticEngine).readSnapshot(snapshot.getState());
+				snapshotPosition = snapshot.getPosition();
+			} catch (IOException e) {
+				LOGGER.warn("Ignoring snapshot, replaying the whole log instead: {}", e.getMessage());
+			}
+		}
+
+		final long fromPosition = snapshotPosition;
+		final long[] replayed = new long[1];
+		log.replay((position, timestampMillis, amount, key) -> {
+			if (timestampMillis < threshold) {
+				return;
+			}
+			if (position > fromPosition) {
+				statisticEngine.record(timestampMillis, amount);
+			}
+			if (key != null) {
+				keyedStatisticStore.record(key, timestampMillis, amount);
+			}
+			replayed[0]++;
+		});
+		statisticEngine.evictOlderThan(threshold);
+		keyedStatisticStore.evictOlderThan(threshold);
+		return replayed[0];
+	}
+
+	/**
+	 * @param clock dates the snapshots, so the log segments they delete agree with the window of the service
+	 */
+	public void start(final long fsyncIntervalMillis, final long snapshotIntervalMillis, final TransactionClock clock) {
+		scheduler.scheduleWithFixedDelay(log::force, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				snapshot(clock.millis());
+			} catch (IOException | RuntimeException e) {
+				LOGGER.error("Snapshot failed", e);
+			}
+		}, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Snapshots the engine, if it supports it, and deletes log segments that fell out of the window.
+	 */
+	public void snapshot(final long nowMillis) throws IOException {
+		if (statisticEngine instanceof SnapshotSupport) {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final long position;
+			try {
+				snapshotLock.writeLock().lock();
+
+				position = log.position();
+				((SnapshotSupport) statisticEngine).writeSnapshot(new DataOutputStream(bytes));
+			} finally {
+				snapshotLock.writeLock().unlock();
+			}
+			log.force();
+			snapshots.save(new SnapshotStore.Snapshot(position, bytes.toByteArray()));
+		}
+		log.deleteSegmentsOlderThan(nowMillis - windowMillis);
+	}
+
+	@Override
+	public void append(final long timestampMillis, final double amount, final String key) {
+		log.append(timestampMillis, amount, key);
+	}
+
+	@Override
+	public Lock applyLock() {
+		return snapshotLock.readLock();
+	}
+
+	@Override
+	public void close() throws IOException {
+		scheduler.shutdownNow();
+		log.close();
+	}
+}
@@ -0,0 +1,212 @@
+package com.maxim.persistence;
+
+import com.maxim.model.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of transactions in memory-mapped segment files of a fixed size, named after the log position
+ * they start at. A record is {@code [length][crc32][timestamp][amount][key length][key]}; the length is written
+ * last, so a record that was torn by a crash either reads as the end of the segment or fails its checksum, and
+ * replay stops there. Appends only copy into the mapping, {@link #force()} makes them durable.
+ */
+public class WriteAheadLog implements Closeable {
+	public static final int MAX_KEY_BYTES = Transaction.MAX_KEY_BYTES;
+
+	private static final String SUFFIX = ".wal";
+	private static final int HEADER_BYTES = 8;
+	private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 4;
+	private static final int NO_KEY = -1;
+
+	public interface EntryConsumer {
+		void accept(long position, long timestampMillis, double amount, String key);
+	}
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+	private final CRC32 crc = new CRC32();
+	private final ByteBuffer scratch = ByteBuffer.allocate(FIXED_PAYLOAD_BYTES + MAX_KEY_BYTES);
+
+	private volatile Segment active;
+
+	public WriteAheadLog(final Path directory, final int segmentBytes) throws IOException {
+		if (segmentBytes < HEADER_BYTES + FIXED_PAYLOAD_BYTES + MAX_KEY_BYTES) {
+			throw new IllegalArgumentException("Segment of " + segmentBytes + " bytes cannot hold the largest record");
+		}
+		this.directory = Files.createDirectories(directory);
+		this.segmentBytes = segmentBytes;
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (Path file : files) {
+				final String name = file.getFileName().toString();
+				final long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+				segments.put(base, new Segment(base, file));
+			}
+		}
+		for (Segment segment : segments.values()) {
+			segment.scan(null);
+		}
+		active = segments.isEmpty() ? openSegment(0) : segments.lastEntry().getValue();
+	}
+
+	public synchronized long append(final long timestampMillis, final double amount, final String key) {
+		final byte[] keyBytes = key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+		if (keyBytes != null && keyBytes.length > MAX_KEY_BYTES) {
+			throw new IllegalArgumentException("Key is longer than " + MAX_KEY_BYTES + " bytes: " + key);
+		}
+
+		scratch.clear();
+		scratch.putLong(timestampMillis).putDouble(amount).putInt(keyBytes == null ? NO_KEY : keyBytes.length);
+		if (keyBytes != null) {
+			scratch.put(keyBytes);
+		}
+		final int length = scratch.position();
+		crc.reset();
+		crc.update(scratch.array(), 0, length);
+
+		if (active.end + HEADER_BYTES + length > segmentBytes) {
+			roll();
+		}
+		final Segment segment = active;
+		final MappedByteBuffer buffer = segment.buffer;
+		buffer.putInt(segment.end + 4, (int) crc.getValue());
+		buffer.position(segment.end + HEADER_BYTES);
+		buffer.put(scratch.array(), 0, length);
+		buffer.putInt(segment.end, length);
+		segment.end += HEADER_BYTES + length;
+		segment.maxTimestamp = Math.max(segment.maxTimestamp, timestampMillis);
+		return segment.base + segment.end;
+	}
+
+	public long position() {
+		final Segment segment = active;
+		return segment.base + segment.end;
+	}
+
+	public void force() {
+		active.buffer.force();
+	}
+
+	public void replay(final EntryConsumer consumer) throws IOException {
+		final List<Segment> snapshot;
+		synchronized (this) {
+			snapshot = new ArrayList<>(segments.values());
+		}
+		for (Segment segment : snapshot) {
+			segment.scan(consumer);
+		}
+	}
+
+	/**
+	 * Deletes closed segments whose newest transaction is older than {@code thresholdMillis}: replay would skip
+	 * all of them anyway. The active segment is never deleted.
+	 */
+	public synchronized int deleteSegmentsOlderThan(final long thresholdMillis) throws IOException {
+		int deleted = 0;
+		for (Map.Entry<Long, Segment> entry : new ArrayList<>(segments.entrySet())) {
+			final Segment segment = entry.getValue();
+			if (segment == active || segment.maxTimestamp >= thresholdMillis) {
+				continue;
+			}
+			segment.channel.close();
+			Files.deleteIfExists(segment.file);
+			segments.remove(entry.getKey());
+			deleted++;
+		}
+		return deleted;
+	}
+
+	public synchronized int segmentCount() {
+		return segments.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		force();
+		for (Segment segment : segments.values()) {
+			segment.channel.close();
+		}
+	}
+
+	private void roll() {
+		active.buffer.force();
+		try {
+			active = openSegment(active.base + segmentBytes);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot open write-ahead log segment in " + directory, e);
+		}
+	}
+
+	private Segment openSegment(final long base) throws IOException {
+		final Segment segment = new Segment(base, directory.resolve(String.format("%020d%s", base, SUFFIX)));
+		segments.put(base, segment);
+		return segment;
+	}
+
+	private final class Segment {
+		private final long base;
+		private final Path file;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private int end;
+		private long maxTimestamp = Long.MIN_VALUE;
+
+		private Segment(final long base, final Path file) throws IOException {
+			this.base = base;
+			this.file = file;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+		}
+
+		private void scan(final EntryConsumer consumer) {
+			final ByteBuffer view = buffer.duplicate();
+			final CRC32 checksum = new CRC32();
+			final byte[] payload = new byte[FIXED_PAYLOAD_BYTES + MAX_KEY_BYTES];
+			int offset = 0;
+			long newest = Long.MIN_VALUE;
+			while (offset + HEADER_BYTES + FIXED_PAYLOAD_BYTES <= segmentBytes) {
+				final int length = view.getInt(offset);
+				if (length < FIXED_PAYLOAD_BYTES || length > payload.length || offset + HEADER_BYTES + length > segmentBytes) {
+					break;
+				}
+				view.position(offset + HEADER_BYTES);
+				view.get(payload, 0, length);
+				checksum.reset();
+				checksum.update(payload, 0, length);
+				if ((int) checksum.getValue() != view.getInt(offset + 4)) {
+					break;
+				}
+
+				final ByteBuffer record = ByteBuffer.wrap(payload, 0, length);
+				final long timestamp = record.getLong();
+				final double amount = record.getDouble();
+				final int keyLength = record.getInt();
+				offset += HEADER_BYTES + length;
+				newest = Math.max(newest, timestamp);
+				if (consumer != null) {
+					final String key = keyLength == NO_KEY ? null : new String(payload, FIXED_PAYLOAD_BYTES, keyLength, StandardCharsets.UTF_8);
+					consumer.accept(base + offset, timestamp, amount, key);
+				}
+			}
+			if (consumer == null) {
+				end = offset;
+				maxTimestamp = newest;
+			}
+		}
+	}
+}
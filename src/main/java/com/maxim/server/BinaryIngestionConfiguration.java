@@ -0,0 +1,25 @@
+package com.maxim.server;
+
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+@Configuration
+public class BinaryIngestionConfiguration {
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "transaction.binary.enabled", havingValue = "true")
+	public BinaryIngestionServer binaryIngestionServer(final TransactionService transactionService,
+	                                                   final TransactionMetrics transactionMetrics,
+	                                                   final TransactionClock transactionClock,
+	                                                   @Value("${transaction.binary.port:9090}") final int port,
+	                                                   @Value("${transaction.binary.event-loops:1}") final int eventLoops) throws IOException {
+		return new BinaryIngestionServer(new InetSocketAddress(port), Math.max(1, eventLoops), transactionService, transactionMetrics, transactionClock);
+	}
+}
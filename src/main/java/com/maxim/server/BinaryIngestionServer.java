@@ -0,0 +1,252 @@
+package com.maxim.server;
+
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Takes transactions from internal producers as fixed-size binary frames over plain TCP, for rates JSON over HTTP
+ * cannot sustain. A frame is {@code [int length = 16][long epoch millis][double amount]}, big-endian. Whatever one read
+ * brings in is recorded under the age rules of {@code POST /transactions} against a single reading of the clock and
+ * answered with one acknowledgement, {@code [long frames acknowledged on this connection][int created][int too old]
+ * [int too far in future][int shed][int invalid]}, so producers pipeline freely and match acknowledgements by the
+ * running count. Invalid frames carry an amount that is not finite or that the engine refused, which POST
+ * /transactions answers with 422. While an acknowledgement cannot be written the connection is not read, which pushes
+ * back on the producer. A frame of any other length closes the connection once the frames before it are acknowledged,
+ * so a producer resending what was not acknowledged counts nothing twice. Connections are spread over event loops as in
+ * {@link LightweightServer}, each with direct buffers.
+ */
+public class BinaryIngestionServer implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BinaryIngestionServer.class);
+
+	public static final int PAYLOAD_BYTES = 8 + 8;
+	public static final int FRAME_BYTES = 4 + PAYLOAD_BYTES;
+	public static final int ACK_BYTES = 8 + 5 * 4;
+	private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+	private final TransactionService transactionService;
+	private final TransactionMetrics transactionMetrics;
+	private final TransactionClock clock;
+	private final ServerSocketChannel serverChannel;
+	private final EventLoop[] eventLoops;
+	private final Thread acceptor;
+	private volatile boolean running = true;
+
+	public BinaryIngestionServer(final InetSocketAddress address, final int numberOfEventLoops, final TransactionService transactionService,
+	                             final TransactionMetrics transactionMetrics, final TransactionClock clock) throws IOException {
+		this.transactionService = transactionService;
+		this.transactionMetrics = transactionMetrics;
+		this.clock = clock;
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		this.serverChannel.bind(address, 1024);
+		this.eventLoops = new EventLoop[numberOfEventLoops];
+		for (int i = 0; i < numberOfEventLoops; i++) {
+			eventLoops[i] = new EventLoop("binary-event-loop-" + i);
+			eventLoops[i].start();
+		}
+		this.acceptor = new Thread(this::accept, "binary-acceptor");
+		this.acceptor.start();
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverChannel.close();
+		for (EventLoop eventLoop : eventLoops) {
+			eventLoop.selector.close();
+		}
+	}
+
+	private void accept() {
+		int next = 0;
+		while (running) {
+			try {
+				final SocketChannel channel = serverChannel.accept();
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				eventLoops[next].register(channel);
+				next = (next + 1) % eventLoops.length;
+			} catch (ClosedChannelException e) {
+				return;
+			} catch (IOException e) {
+				LOGGER.warn("Accept failed", e);
+			}
+		}
+	}
+
+	private final class EventLoop extends Thread {
+		private final Selector selector;
+		private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+		private EventLoop(final String name) throws IOException {
+			super(name);
+			this.selector = Selector.open();
+		}
+
+		private void register(final SocketChannel channel) {
+			registrations.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (selector.isOpen()) {
+					selector.select();
+					SocketChannel channel;
+					while ((channel = registrations.poll()) != null) {
+						channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+					}
+					final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						final SelectionKey key = keys.next();
+						keys.remove();
+						try {
+							process(key);
+						} catch (RuntimeException e) {
+							LOGGER.error("Closing connection after unexpected failure on event loop {}", getName(), e);
+							close(key);
+						}
+					}
+				}
+			} catch (ClosedSelectorException e) {
+				// closed by BinaryIngestionServer.close()
+			} catch (IOException e) {
+				LOGGER.error("Event loop {} stopped", getName(), e);
+			}
+		}
+
+		private void process(final SelectionKey key) {
+			final Connection connection = (Connection) key.attachment();
+			try {
+				if (key.isReadable() && !connection.read()) {
+					close(key);
+					return;
+				}
+				if (!connection.flush()) {
+					key.interestOps(SelectionKey.OP_WRITE);
+				} else if (connection.malformed) {
+					close(key);
+				} else {
+					key.interestOps(SelectionKey.OP_READ);
+				}
+			} catch (IOException e) {
+				close(key);
+			}
+		}
+
+		private void close(final SelectionKey key) {
+			key.cancel();
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				LOGGER.debug("Closing connection failed", e);
+			}
+		}
+	}
+
+	private final class Connection {
+		private final SocketChannel channel;
+		private final ByteBuffer input = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+		private final ByteBuffer acknowledgement = ByteBuffer.allocateDirect(ACK_BYTES);
+		private long acknowledged;
+		// Set on a frame of another length, the connection then closes once the frames before it are acknowledged
+		private boolean malformed;
+
+		private Connection(final SocketChannel channel) {
+			this.channel = channel;
+			this.acknowledgement.limit(0);
+		}
+
+		/**
+		 * Records every complete frame read up to a malformed one and prepares their acknowledgement.
+		 *
+		 * @return false if the producer closed the connection, or sent a malformed frame with nothing before it to
+		 * acknowledge
+		 */
+		private boolean read() throws IOException {
+			if (channel.read(input) < 0) {
+				return false;
+			}
+			input.flip();
+			final long nowMillis = clock.millis();
+			int frames = 0;
+			int created = 0;
+			int tooOld = 0;
+			int tooFarInFuture = 0;
+			int shed = 0;
+			int invalid = 0;
+			while (input.remaining() >= FRAME_BYTES) {
+				if (input.getInt() != PAYLOAD_BYTES) {
+					malformed = true;
+					break;
+				}
+				final long timestampMillis = input.getLong();
+				final double amount = input.getDouble();
+				frames++;
+				if (!Double.isFinite(amount)) {
+					// JSON cannot carry these, and one would poison sum, min, max and avg for the whole window
+					invalid++;
+				} else if (transactionService.isOlderThan60Seconds(timestampMillis, nowMillis)) {
+					tooOld++;
+				} else if (transactionService.isTooFarInFuture(timestampMillis, nowMillis)) {
+					tooFarInFuture++;
+				} else {
+					try {
+						if (transactionService.submit(timestampMillis, amount)) {
+							created++;
+						} else {
+							shed++;
+						}
+					} catch (RuntimeException e) {
+						// Such as a fixed-point engine refusing the amount, which POST /transactions answers with 422
+						LOGGER.debug("Refused frame of {} at {}", amount, timestampMillis, e);
+						invalid++;
+					}
+				}
+			}
+			input.compact();
+			if (frames == 0) {
+				return !malformed;
+			}
+			transactionMetrics.rejectedTooOld(tooOld);
+			transactionMetrics.rejectedFuture(tooFarInFuture);
+			transactionMetrics.shed(shed);
+			acknowledged += frames;
+			acknowledgement.clear();
+			acknowledgement.putLong(acknowledged).putInt(created).putInt(tooOld).putInt(tooFarInFuture).putInt(shed).putInt(invalid);
+			acknowledgement.flip();
+			return true;
+		}
+
+		/**
+		 * @return true once the acknowledgement has been written
+		 */
+		private boolean flush() throws IOException {
+			channel.write(acknowledgement);
+			return !acknowledgement.hasRemaining();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.maxim.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * Per-connection buffers of the event loop. Bytes are read into {@code input} until a whole request (head and
+ * {@code Content-Length} body) is there, several pipelined requests may be parsed out of one read. A request stays in
+ * {@code input} until the next one is taken or more is read, so its body is handed out without a copy. Responses are
+ * queued and written as far as the socket accepts, the rest waits for {@link SelectionKey#OP_WRITE}.
+ */
+final class HttpConnection {
+	static final int MAX_REQUEST_BYTES = 1 << 20;
+
+	private static final int INITIAL_BUFFER_BYTES = 4096;
+	private static final byte[] HEAD_END = {'\r', '\n', '\r', '\n'};
+
+	private final SocketChannel channel;
+	private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+	private ByteBuffer input = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+	private int scanned;
+	// Length of the request last handed out, still at the start of input
+	private int taken;
+	private boolean closeAfterWrite;
+
+	HttpConnection(final SocketChannel channel) {
+		this.channel = channel;
+	}
+
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return false once the peer closed the connection
+	 */
+	boolean read() throws IOException {
+		consumeTaken();
+		if (!input.hasRemaining()) {
+			final ByteBuffer larger = ByteBuffer.allocate(input.capacity() * 2);
+			input.flip();
+			input = larger.put(input);
+		}
+		return channel.read(input) >= 0;
+	}
+
+	/**
+	 * @return the next complete request, or {@code null} until more bytes arrive
+	 */
+	HttpRequest nextRequest() throws HttpException {
+		consumeTaken();
+		final byte[] bytes = input.array();
+		final int headEnd = indexOfHeadEnd(bytes, input.position());
+		if (headEnd < 0) {
+			if (input.position() >= MAX_REQUEST_BYTES) {
+				throw new HttpException(431, "Request Header Fields Too Large", "Request head exceeds " + MAX_REQUEST_BYTES + " bytes");
+			}
+			return null;
+		}
+
+		final String[] lines = new String(bytes, 0, headEnd, StandardCharsets.ISO_8859_1).split("\r\n");
+		final String[] requestLine = lines[0].split(" ");
+		if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+			throw new HttpException(400, "Bad Request", "Malformed request line: " + lines[0]);
+		}
+		int contentLength = 0;
+		boolean keepAlive = requestLine[2].equals("HTTP/1.1");
+		String ifNoneMatch = null;
+		for (int i = 1; i < lines.length; i++) {
+			final int colon = lines[i].indexOf(':');
+			if (colon <= 0) {
+				throw new HttpException(400, "Bad Request", "Malformed header: " + lines[i]);
+			}
+			final String name = lines[i].substring(0, colon).trim();
+			final String value = lines[i].substring(colon + 1).trim();
+			if (name.equalsIgnoreCase("Content-Length")) {
+				contentLength = parseContentLength(value);
+			} else if (name.equalsIgnoreCase("Connection")) {
+				keepAlive = value.equalsIgnoreCase("keep-alive") || keepAlive && !value.equalsIgnoreCase("close");
+			} else if (name.equalsIgnoreCase("If-None-Match")) {
+				ifNoneMatch = value;
+			} else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+				throw new HttpException(411, "Length Required", "Chunked bodies are not supported, send Content-Length");
+			}
+		}
+
+		final int bodyStart = headEnd + HEAD_END.length;
+		final int requestEnd = bodyStart + contentLength;
+		if (requestEnd > MAX_REQUEST_BYTES) {
+			throw new HttpException(413, "Payload Too Large", "Request exceeds " + MAX_REQUEST_BYTES + " bytes");
+		}
+		if (input.position() < requestEnd) {
+			if (input.capacity() < requestEnd) {
+				final ByteBuffer larger = ByteBuffer.allocate(requestEnd);
+				input.flip();
+				input = larger.put(input);
+			}
+			return null;
+		}
+
+		taken = requestEnd;
+
+		final String target = requestLine[1];
+		final int question = target.indexOf('?');
+		final String path = question < 0 ? target : target.substring(0, question);
+		final String query = question < 0 ? null : target.substring(question + 1);
+		return new HttpRequest(requestLine[0], path, query, bytes, bodyStart, contentLength, keepAlive, ifNoneMatch);
+	}
+
+	void send(final byte[] response, final boolean close) {
+		output.add(ByteBuffer.wrap(response));
+		closeAfterWrite |= close;
+	}
+
+	/**
+	 * Writes queued responses until the socket buffer is full.
+	 *
+	 * @return true when everything was written
+	 */
+	boolean flush() throws IOException {
+		while (!output.isEmpty()) {
+			final ByteBuffer next = output.peek();
+			channel.write(next);
+			if (next.hasRemaining()) {
+				return false;
+			}
+			output.poll();
+		}
+		return true;
+	}
+
+	boolean isCloseAfterWrite() {
+		return closeAfterWrite;
+	}
+
+	private int indexOfHeadEnd(final byte[] bytes, final int limit) {
+		for (int i = Math.max(0, scanned - HEAD_END.length + 1); i + HEAD_END.length <= limit; i++) {
+			if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') {
+				return i;
+			}
+		}
+		scanned = limit;
+		return -1;
+	}
+
+	private void consumeTaken() {
+		if (taken > 0) {
+			input.flip();
+			input.position(taken);
+			input.compact();
+			scanned = 0;
+			taken = 0;
+		}
+	}
+
+	private static int parseContentLength(final String value) throws HttpException {
+		try {
+			final int length = Integer.parseInt(value);
+			if (length < 0) {
+				throw new NumberFormatException();
+			}
+			return length;
+		} catch (NumberFormatException e) {
+			throw new HttpException(400, "Bad Request", "Invalid Content-Length: " + value);
+		}
+	}
+}
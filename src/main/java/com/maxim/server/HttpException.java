@@ -0,0 +1,19 @@
+package com.maxim.server;
+
+/**
+ * A request that cannot be parsed; the connection answers with {@code status} and is closed.
+ */
+class HttpException extends Exception {
+	private final int status;
+	private final String reason;
+
+	HttpException(final int status, final String reason, final String message) {
+		super(message);
+		this.status = status;
+		this.reason = reason;
+	}
+
+	HttpResponse toResponse() {
+		return HttpResponse.text(status, reason, getMessage());
+	}
+}
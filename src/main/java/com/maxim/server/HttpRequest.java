@@ -0,0 +1,79 @@
+package com.maxim.server;
+
+/**
+ * A parsed HTTP/1.1 request: the request line, the query split off the path, the headers the server acts on and the
+ * raw body. The body is not copied out of the connection's buffer, so it is only valid until the next request is
+ * taken from the connection.
+ */
+final class HttpRequest {
+	private final String method;
+	private final String path;
+	private final String query;
+	private final byte[] bytes;
+	private final int bodyOffset;
+	private final int bodyLength;
+	private final boolean keepAlive;
+	private final String ifNoneMatch;
+
+	HttpRequest(final String method, final String path, final String query, final byte[] bytes, final int bodyOffset, final int bodyLength,
+	            final boolean keepAlive, final String ifNoneMatch) {
+		this.method = method;
+		this.path = path;
+		this.query = query;
+		this.bytes = bytes;
+		this.bodyOffset = bodyOffset;
+		this.bodyLength = bodyLength;
+		this.keepAlive = keepAlive;
+		this.ifNoneMatch = ifNoneMatch;
+	}
+
+	String getMethod() {
+		return method;
+	}
+
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the decoded value of the first {@code name} query parameter, or {@code null}
+	 */
+	String getParameter(final String name) {
+		if (query == null) {
+			return null;
+		}
+		for (String pair : query.split("&")) {
+			final int equals = pair.indexOf('=');
+			if (equals > 0 && pair.substring(0, equals).equals(name)) {
+				return pair.substring(equals + 1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the array holding the body from {@link #getBodyOffset()} for {@link #getBodyLength()} bytes
+	 */
+	byte[] getBytes() {
+		return bytes;
+	}
+
+	int getBodyOffset() {
+		return bodyOffset;
+	}
+
+	int getBodyLength() {
+		return bodyLength;
+	}
+
+	boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * @return the {@code If-None-Match} header, or {@code null}
+	 */
+	String getIfNoneMatch() {
+		return ifNoneMatch;
+	}
+}
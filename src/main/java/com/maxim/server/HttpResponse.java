@@ -0,0 +1,75 @@
+package com.maxim.server;
+
+import java.nio.charset.StandardCharsets;
+
+final class HttpResponse {
+	static final String JSON = "application/json;charset=UTF-8";
+	static final String TEXT = "text/plain;charset=UTF-8";
+	static final String BINARY = "application/octet-stream";
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final int status;
+	private final String reason;
+	private final String contentType;
+	private final byte[] body;
+	private final String etag;
+
+	private HttpResponse(final int status, final String reason, final String contentType, final byte[] body) {
+		this(status, reason, contentType, body, null);
+	}
+
+	private HttpResponse(final int status, final String reason, final String contentType, final byte[] body, final String etag) {
+		this.status = status;
+		this.reason = reason;
+		this.contentType = contentType;
+		this.body = body;
+		this.etag = etag;
+	}
+
+	static HttpResponse empty(final int status, final String reason) {
+		return new HttpResponse(status, reason, null, EMPTY);
+	}
+
+	static HttpResponse json(final byte[] body) {
+		return new HttpResponse(200, "OK", JSON, body);
+	}
+
+	static HttpResponse json(final byte[] body, final String etag) {
+		return new HttpResponse(200, "OK", JSON, body, etag);
+	}
+
+	static HttpResponse notModified(final String etag) {
+		return new HttpResponse(304, "Not Modified", null, EMPTY, etag);
+	}
+
+	static HttpResponse binary(final byte[] body) {
+		return new HttpResponse(200, "OK", BINARY, body);
+	}
+
+	static HttpResponse text(final int status, final String reason, final String body) {
+		return new HttpResponse(status, reason, TEXT, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	byte[] encode(final boolean keepAlive) {
+		final StringBuilder head = new StringBuilder(128)
+				.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n")
+				.append("Content-Length: ").append(body.length).append("\r\n");
+		if (contentType != null) {
+			head.append("Content-Type: ").append(contentType).append("\r\n");
+		}
+		if (etag != null) {
+			head.append("ETag: ").append(etag).append("\r\n");
+		}
+		if (!keepAlive) {
+			head.append("Connection: close\r\n");
+		}
+		head.append("\r\n");
+
+		final byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+		final byte[] encoded = new byte[headBytes.length + body.length];
+		System.arraycopy(headBytes, 0, encoded, 0, headBytes.length);
+		System.arraycopy(body, 0, encoded, headBytes.length, body.length);
+		return encoded;
+	}
+}
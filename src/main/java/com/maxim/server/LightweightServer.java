@@ -0,0 +1,297 @@
+package com.maxim.server;
+
+import com.maxim.archive.ArchiveConfiguration;
+import com.maxim.dto.Mapper;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.persistence.PersistenceConfiguration;
+import com.maxim.service.FutureTransactionBuffer;
+import com.maxim.service.PipelineConfiguration;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionJournal;
+import com.maxim.service.TransactionPipeline;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.EvictionListener;
+import com.maxim.service.engine.KeyedStatisticStore;
+import com.maxim.service.engine.StatisticEngine;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves {@code /transactions} and {@code /statistics} from a few NIO event loops instead of Spring MVC on a
+ * servlet container. An acceptor thread hands connections to the loops round-robin; every loop owns a selector and
+ * runs requests to completion on its own thread, since the service never blocks for long. Started by
+ * {@code App} when {@code --transaction.server=lightweight} is given; the application context is never created.
+ */
+public class LightweightServer implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LightweightServer.class);
+
+	private final ServerSocketChannel serverChannel;
+	private final EventLoop[] eventLoops;
+	private final Thread acceptor;
+	private volatile boolean running = true;
+
+	public LightweightServer(final InetSocketAddress address, final int numberOfEventLoops, final TransactionService transactionService,
+	                         final TransactionMetrics transactionMetrics, final Mapper mapper, final TransactionClock clock) throws IOException {
+		final TransactionHttpHandler handler = new TransactionHttpHandler(transactionService, transactionMetrics, mapper,
+				Jackson2ObjectMapperBuilder.json().build(), clock);
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		this.serverChannel.bind(address, 1024);
+		this.eventLoops = new EventLoop[numberOfEventLoops];
+		for (int i = 0; i < numberOfEventLoops; i++) {
+			eventLoops[i] = new EventLoop(handler, "event-loop-" + i);
+			eventLoops[i].start();
+		}
+		this.acceptor = new Thread(this::accept, "acceptor");
+		this.acceptor.start();
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverChannel.close();
+		for (EventLoop eventLoop : eventLoops) {
+			eventLoop.selector.close();
+		}
+	}
+
+	private void accept() {
+		int next = 0;
+		while (running) {
+			try {
+				final SocketChannel channel = serverChannel.accept();
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				eventLoops[next].register(channel);
+				next = (next + 1) % eventLoops.length;
+			} catch (ClosedChannelException e) {
+				return;
+			} catch (IOException e) {
+				LOGGER.warn("Accept failed", e);
+			}
+		}
+	}
+
+	private static final class EventLoop extends Thread {
+		private final TransactionHttpHandler handler;
+		private final Selector selector;
+		private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+		private EventLoop(final TransactionHttpHandler handler, final String name) throws IOException {
+			super(name);
+			this.handler = handler;
+			this.selector = Selector.open();
+		}
+
+		private void register(final SocketChannel channel) {
+			registrations.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (selector.isOpen()) {
+					selector.select();
+					SocketChannel channel;
+					while ((channel = registrations.poll()) != null) {
+						channel.register(selector, SelectionKey.OP_READ, new HttpConnection(channel));
+					}
+					final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						final SelectionKey key = keys.next();
+						keys.remove();
+						try {
+							process(key);
+						} catch (RuntimeException e) {
+							LOGGER.error("Closing connection after unexpected failure on event loop {}", getName(), e);
+							close(key);
+						}
+					}
+				}
+			} catch (ClosedSelectorException e) {
+				// closed by LightweightServer.close()
+			} catch (IOException e) {
+				LOGGER.error("Event loop {} stopped", getName(), e);
+			}
+		}
+
+		private void process(final SelectionKey key) {
+			final HttpConnection connection = (HttpConnection) key.attachment();
+			try {
+				if (key.isReadable()) {
+					if (!connection.read()) {
+						close(key);
+						return;
+					}
+					HttpRequest request;
+					try {
+						while (!connection.isCloseAfterWrite() && (request = connection.nextRequest()) != null) {
+							connection.send(handler.handle(request).encode(request.isKeepAlive()), !request.isKeepAlive());
+						}
+					} catch (HttpException e) {
+						connection.send(e.toResponse().encode(false), true);
+					}
+				}
+				if (connection.flush()) {
+					if (connection.isCloseAfterWrite()) {
+						close(key);
+					} else {
+						key.interestOps(SelectionKey.OP_READ);
+					}
+				} else {
+					key.interestOps(SelectionKey.OP_WRITE);
+				}
+			} catch (IOException e) {
+				close(key);
+			}
+		}
+
+		private void close(final SelectionKey key) {
+			key.cancel();
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				LOGGER.debug("Closing connection failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Builds the same service as the Spring context from {@code application.properties}, overridden by system
+	 * properties and {@code --name=value} arguments, and serves it until the JVM exits.
+	 */
+	public static void main(String[] args) throws IOException {
+		final long start = System.nanoTime();
+		final Properties properties = loadProperties(args);
+
+		final long futureToleranceMillis = Long.parseLong(properties.getProperty("transaction.future.tolerance-millis", "10000"));
+		final StatisticEngine statisticEngine = new StatisticEngineConfiguration().statisticEngine(
+				properties.getProperty("transaction.engine", "sorted"),
+				Long.parseLong(properties.getProperty("transaction.bucket.resolution-millis", "1000")),
+				Integer.parseInt(properties.getProperty("transaction.bucket.rollup-factor", "10")),
+				properties.getProperty("transaction.windows", "60s"),
+				Double.parseDouble(properties.getProperty("transaction.percentiles.relative-accuracy", "0")),
+				Integer.parseInt(properties.getProperty("transaction.striped.stripes", "0")),
+				Boolean.parseBoolean(properties.getProperty("transaction.sorted.off-heap", "false")),
+				Integer.parseInt(properties.getProperty("transaction.fixed-point.decimals", "-1")), futureToleranceMillis);
+		final EvictionListener transactionArchive = new ArchiveConfiguration().transactionArchive(statisticEngine,
+				new StatisticEngineConfiguration().transactionHistory(statisticEngine,
+						Integer.parseInt(properties.getProperty("transaction.history.minutes", "1440")),
+						Integer.parseInt(properties.getProperty("transaction.history.hours", "24"))),
+				Boolean.parseBoolean(properties.getProperty("transaction.archive.enabled", "false")),
+				properties.getProperty("transaction.archive.directory", "archive"),
+				Long.parseLong(properties.getProperty("transaction.archive.segment-bytes", "67108864")),
+				Integer.parseInt(properties.getProperty("transaction.archive.buffer-capacity", "65536")),
+				Long.parseLong(properties.getProperty("transaction.archive.flush-interval-millis", "1000")));
+		final TransactionClock transactionClock = new PipelineConfiguration().transactionClock(
+				Long.parseLong(properties.getProperty("transaction.clock.resolution-millis", "1")));
+		final KeyedStatisticStore keyedStatisticStore = new StatisticEngineConfiguration().keyedStatisticStore(
+				Long.parseLong(properties.getProperty("transaction.keyed.resolution-millis", "1000")),
+				Integer.parseInt(properties.getProperty("transaction.keyed.segments", "16")), futureToleranceMillis);
+		final TransactionJournal transactionJournal = new PersistenceConfiguration().transactionJournal(statisticEngine, keyedStatisticStore,
+				Boolean.parseBoolean(properties.getProperty("transaction.persistence.enabled", "false")),
+				properties.getProperty("transaction.persistence.directory", "data"),
+				Integer.parseInt(properties.getProperty("transaction.persistence.segment-bytes", "67108864")),
+				Long.parseLong(properties.getProperty("transaction.persistence.fsync-interval-millis", "10")),
+				Long.parseLong(properties.getProperty("transaction.persistence.snapshot-interval-millis", "10000")), transactionClock);
+		final TransactionMetrics transactionMetrics = new TransactionMetrics(
+				Boolean.parseBoolean(properties.getProperty("transaction.metrics.enabled", "true")),
+				Integer.parseInt(properties.getProperty("transaction.metrics.record-sample-rate", "16")));
+		final TransactionPipeline transactionPipeline = new PipelineConfiguration().transactionPipeline(
+				Boolean.parseBoolean(properties.getProperty("transaction.pipeline.enabled", "false")),
+				Integer.parseInt(properties.getProperty("transaction.pipeline.capacity", "65536")),
+				Double.parseDouble(properties.getProperty("transaction.pipeline.shed-threshold", "0.9")),
+				Integer.parseInt(properties.getProperty("transaction.pipeline.max-batch", "1024")),
+				Long.parseLong(properties.getProperty("transaction.pipeline.idle-park-micros", "100")));
+		final FutureTransactionBuffer futureTransactionBuffer = new PipelineConfiguration().futureTransactionBuffer(
+				futureToleranceMillis,
+				Long.parseLong(properties.getProperty("transaction.future.horizon-millis", "300000")),
+				Integer.parseInt(properties.getProperty("transaction.future.capacity", "10000")));
+		final TransactionService transactionService = TransactionService.builder(statisticEngine)
+				.keyedStatisticStore(keyedStatisticStore)
+				.transactionJournal(transactionJournal)
+				.transactionMetrics(transactionMetrics)
+				.transactionPipeline(transactionPipeline)
+				.futureTransactions(futureTransactionBuffer)
+				.lazyEviction(Boolean.parseBoolean(properties.getProperty("transaction.eviction.lazy", "false")))
+				.clock(transactionClock)
+				.build();
+
+		final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		final long sweepInterval = Long.parseLong(properties.getProperty("transaction.eviction.sweep-interval-millis", "1000"));
+		scheduler.scheduleAtFixedRate(transactionService::removeTransactionsOlderThan60Seconds, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+		final long metricsInterval = Long.parseLong(properties.getProperty("transaction.metrics.interval-millis", "10000"));
+		scheduler.scheduleAtFixedRate(transactionMetrics::rotate, metricsInterval, metricsInterval, TimeUnit.MILLISECONDS);
+
+		final int port = Integer.parseInt(properties.getProperty("server.port", "8080"));
+		final int configuredEventLoops = Integer.parseInt(properties.getProperty("transaction.server.event-loops", "0"));
+		final int eventLoops = configuredEventLoops > 0 ? configuredEventLoops : Runtime.getRuntime().availableProcessors();
+		final LightweightServer server = new LightweightServer(new InetSocketAddress(port), eventLoops, transactionService, transactionMetrics, new Mapper(),
+				transactionClock);
+		final BinaryIngestionServer binaryServer = !Boolean.parseBoolean(properties.getProperty("transaction.binary.enabled", "false")) ? null
+				: new BinaryIngestionConfiguration().binaryIngestionServer(transactionService, transactionMetrics, transactionClock,
+				Integer.parseInt(properties.getProperty("transaction.binary.port", "9090")),
+				Integer.parseInt(properties.getProperty("transaction.binary.event-loops", "1")));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				server.close();
+				if (binaryServer != null) {
+					binaryServer.close();
+				}
+				transactionPipeline.close();
+				transactionJournal.close();
+				transactionClock.close();
+				if (transactionArchive instanceof Closeable) {
+					((Closeable) transactionArchive).close();
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Shutdown failed", e);
+			}
+		}));
+		LOGGER.info("Lightweight server started on port {} with {} event loops in {} ms", server.getPort(), eventLoops,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	private static Properties loadProperties(final String[] args) throws IOException {
+		final Properties properties = new Properties();
+		try (InputStream defaults = LightweightServer.class.getResourceAsStream("/application.properties")) {
+			if (defaults != null) {
+				properties.load(defaults);
+			}
+		}
+		properties.putAll(System.getProperties());
+		for (String arg : args) {
+			final int equals = arg.indexOf('=');
+			if (arg.startsWith("--") && equals > 2) {
+				properties.setProperty(arg.substring(2, equals), arg.substring(equals + 1));
+			}
+		}
+		return properties;
+	}
+}
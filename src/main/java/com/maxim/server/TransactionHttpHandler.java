@@ -0,0 +1,137 @@
+package com.maxim.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.maxim.dto.EncodedStatistic;
+import com.maxim.dto.Mapper;
+import com.maxim.dto.StatisticEncoder;
+import com.maxim.dto.StatisticResponseDto;
+import com.maxim.dto.TransactionDecoder;
+import com.maxim.dto.TransactionRequestDto;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.model.Statistic;
+import com.maxim.model.Transaction;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import com.maxim.service.UnsupportedWindowException;
+import com.maxim.service.WindowFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * The {@code /transactions} and {@code /statistics} endpoints of {@code TransactionController} and
+ * {@code /cluster/partials} of {@code ClusterController}, with the same status codes, on top of the lightweight server. Plain transaction bodies are decoded by a
+ * {@link TransactionDecoder} per event loop straight from the connection's buffer and recorded through the primitive
+ * service API; anything else goes through Jackson and {@link Mapper} like in the controller.
+ */
+class TransactionHttpHandler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransactionHttpHandler.class);
+
+	private static final HttpResponse CREATED = HttpResponse.empty(201, "Created");
+	private static final HttpResponse NO_CONTENT = HttpResponse.empty(204, "No Content");
+	private static final HttpResponse TOO_MANY_REQUESTS = HttpResponse.empty(429, "Too Many Requests");
+	private static final HttpResponse UNPROCESSABLE_ENTITY = HttpResponse.empty(422, "Unprocessable Entity");
+
+	private final TransactionService transactionService;
+	private final TransactionMetrics transactionMetrics;
+	private final Mapper mapper;
+	private final ObjectReader requestReader;
+	private final ObjectWriter statisticWriter;
+	private final StatisticEncoder statisticEncoder;
+	private final ThreadLocal<TransactionDecoder> decoders = ThreadLocal.withInitial(TransactionDecoder::new);
+	private final TransactionClock clock;
+
+	TransactionHttpHandler(final TransactionService transactionService, final TransactionMetrics transactionMetrics, final Mapper mapper,
+	                       final ObjectMapper objectMapper, final TransactionClock clock) {
+		this.transactionService = transactionService;
+		this.transactionMetrics = transactionMetrics;
+		this.mapper = mapper;
+		this.requestReader = objectMapper.readerFor(TransactionRequestDto.class);
+		this.statisticWriter = objectMapper.writerFor(StatisticResponseDto.class);
+		this.statisticEncoder = new StatisticEncoder(mapper);
+		this.clock = clock;
+	}
+
+	HttpResponse handle(final HttpRequest request) {
+		try {
+			switch (request.getPath()) {
+				case "/transactions":
+					return "POST".equals(request.getMethod()) ? recordTransaction(request) : methodNotAllowed();
+				case "/statistics":
+					return "GET".equals(request.getMethod()) ? getStatistic(request) : methodNotAllowed();
+				case "/cluster/partials":
+					return "GET".equals(request.getMethod()) ? HttpResponse.binary(transactionService.getPartialAggregate().toByteArray()) : methodNotAllowed();
+				default:
+					return HttpResponse.empty(404, "Not Found");
+			}
+		} catch (JsonProcessingException e) {
+			return HttpResponse.empty(400, "Bad Request");
+		} catch (UnsupportedWindowException e) {
+			return HttpResponse.text(400, "Bad Request", e.getMessage());
+		} catch (ArithmeticException e) {
+			return HttpResponse.text(422, "Unprocessable Entity", e.getMessage());
+		} catch (IllegalArgumentException e) {
+			return HttpResponse.text(400, "Bad Request", String.valueOf(e.getMessage()));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.error("{} {} failed", request.getMethod(), request.getPath(), e);
+			return HttpResponse.empty(500, "Internal Server Error");
+		}
+	}
+
+	private HttpResponse recordTransaction(final HttpRequest request) throws IOException {
+		final long nowMillis = clock.millis();
+		final TransactionDecoder decoder = decoders.get();
+		if (decoder.decode(request.getBytes(), request.getBodyOffset(), request.getBodyLength())) {
+			if (Transaction.isKeyTooLong(decoder.getKey())) {
+				return HttpResponse.empty(400, "Bad Request");
+			}
+			if (transactionService.isOlderThan60Seconds(decoder.getTimestamp(), nowMillis)) {
+				transactionMetrics.rejectedTooOld(1);
+				return NO_CONTENT;
+			}
+			if (transactionService.isTooFarInFuture(decoder.getTimestamp(), nowMillis)) {
+				transactionMetrics.rejectedFuture(1);
+				return UNPROCESSABLE_ENTITY;
+			}
+			return transactionService.submit(decoder.getTimestamp(), decoder.getAmount(), decoder.getKey()) ? CREATED : shed();
+		}
+
+		final TransactionRequestDto transactionRequestDto = requestReader.readValue(request.getBytes(), request.getBodyOffset(), request.getBodyLength());
+		if (transactionRequestDto.getTimestamp() == null || Transaction.isKeyTooLong(transactionRequestDto.getKey())) {
+			return HttpResponse.empty(400, "Bad Request");
+		}
+		final long timestampMillis = transactionRequestDto.getTimestamp().toEpochMilli();
+		if (transactionService.isOlderThan60Seconds(timestampMillis, nowMillis)) {
+			transactionMetrics.rejectedTooOld(1);
+			return NO_CONTENT;
+		}
+		if (transactionService.isTooFarInFuture(timestampMillis, nowMillis)) {
+			transactionMetrics.rejectedFuture(1);
+			return UNPROCESSABLE_ENTITY;
+		}
+		return transactionService.recordTransaction(mapper.toTransaction(transactionRequestDto)) ? CREATED : shed();
+	}
+
+	private HttpResponse shed() {
+		transactionMetrics.shed(1);
+		return TOO_MANY_REQUESTS;
+	}
+
+	private HttpResponse getStatistic(final HttpRequest request) throws IOException {
+		final String window = request.getParameter("window");
+		if (window == null) {
+			final EncodedStatistic encoded = statisticEncoder.encode(transactionService.getLatestStatistic());
+			return encoded.matches(request.getIfNoneMatch()) ? HttpResponse.notModified(encoded.getEtag()) : HttpResponse.json(encoded.getJson(), encoded.getEtag());
+		}
+		final Statistic statistic = transactionService.getStatistic(WindowFormat.parse(window));
+		return HttpResponse.json(statisticWriter.writeValueAsBytes(mapper.toStatisticResponseDto(statistic)));
+	}
+
+	private static HttpResponse methodNotAllowed() {
+		return HttpResponse.empty(405, "Method Not Allowed");
+	}
+}
@@ -0,0 +1,44 @@
+package com.maxim.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads the system clock on a daemon thread every {@code resolutionMillis} and serves the last reading from a
+ * volatile field, so asking for the time on every request costs a memory read instead of a system call. Readings
+ * lag by up to the resolution, which only moves the 60 seconds boundary by as much.
+ */
+public class CachedClock implements TransactionClock {
+	private final long resolutionNanos;
+	private final Thread updater;
+	private volatile long millis = System.currentTimeMillis();
+	private volatile boolean running = true;
+
+	public CachedClock(final long resolutionMillis) {
+		if (resolutionMillis <= 0) {
+			throw new IllegalArgumentException("Resolution must be positive: " + resolutionMillis + "ms");
+		}
+		this.resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+		this.updater = new Thread(this::update, "cached-clock");
+		this.updater.setDaemon(true);
+		this.updater.start();
+	}
+
+	@Override
+	public long millis() {
+		return millis;
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		LockSupport.unpark(updater);
+	}
+
+	private void update() {
+		while (running) {
+			millis = System.currentTimeMillis();
+			LockSupport.parkNanos(resolutionNanos);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package com.maxim.service;
+
+import com.maxim.model.TransactionBatch;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds transactions dated further ahead than the clock skew tolerance until their time comes, so they neither count
+ * in statistics early nor sit in the window for longer than it lasts. Transactions up to the horizon ahead are held
+ * in a min-heap of primitive columns that grows to at most {@code capacity} entries, about 24 bytes each plus the
+ * key; anything further ahead, or arriving while the heap is full, is refused. Memory and the cost of releasing
+ * therefore stay bounded however far ahead producers' clocks run.
+ */
+public class FutureTransactionBuffer {
+	private static final int MIN_CAPACITY = 16;
+
+	private final long toleranceMillis;
+	private final long horizonMillis;
+	private final int capacity;
+
+	private final ReentrantLock reentrantLock = new ReentrantLock();
+
+	private long[] timestamps = new long[MIN_CAPACITY];
+	private double[] amounts = new double[MIN_CAPACITY];
+	private String[] keys = new String[MIN_CAPACITY];
+	private int size;
+	/** Timestamp at the top of the heap, so that releasing nothing takes no lock */
+	private volatile long earliestMillis = Long.MAX_VALUE;
+
+	/**
+	 * @param toleranceMillis how far ahead a timestamp may be and still count right away
+	 * @param horizonMillis   how far ahead a timestamp may be and be held until then; not above the tolerance
+	 *                        disables holding
+	 * @param capacity        most transactions held at a time
+	 */
+	public FutureTransactionBuffer(final long toleranceMillis, final long horizonMillis, final int capacity) {
+		if (toleranceMillis < 0 || capacity < 0) {
+			throw new IllegalArgumentException("Tolerance and capacity must not be negative: tolerance=" + toleranceMillis + "ms, capacity=" + capacity);
+		}
+		this.toleranceMillis = toleranceMillis;
+		this.horizonMillis = Math.max(toleranceMillis, horizonMillis);
+		this.capacity = capacity;
+	}
+
+	public long getToleranceMillis() {
+		return toleranceMillis;
+	}
+
+	public long getHorizonMillis() {
+		return horizonMillis;
+	}
+
+	/**
+	 * @return false if the transaction is beyond the horizon or the buffer is full, and was not held
+	 */
+	public boolean offer(final long timestampMillis, final double amount, final String key, final long nowMillis) {
+		if (timestampMillis > nowMillis + horizonMillis) {
+			return false;
+		}
+		try {
+			reentrantLock.lock();
+
+			if (size == capacity) {
+				return false;
+			}
+			insert(timestampMillis, amount, key);
+			earliestMillis = timestamps[0];
+			return true;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	/**
+	 * Hands every held transaction now within the tolerance to the pipeline, oldest first. They are taken off the heap
+	 * under the lock and submitted after it, so offers never wait for the pipeline. Once the pipeline sheds one, it
+	 * and everything after it are held again until the next release, even if that briefly exceeds the capacity.
+	 *
+	 * @return number of transactions released
+	 */
+	public int release(final long nowMillis, final TransactionPipeline pipeline) {
+		final long threshold = nowMillis + toleranceMillis;
+		if (threshold < earliestMillis) {
+			return 0;
+		}
+		final TransactionBatch due = new TransactionBatch();
+		try {
+			reentrantLock.lock();
+
+			while (size > 0 && timestamps[0] <= threshold) {
+				due.add(timestamps[0], amounts[0], keys[0]);
+				removeFirst();
+			}
+			earliestMillis = size > 0 ? timestamps[0] : Long.MAX_VALUE;
+			if (timestamps.length > MIN_CAPACITY && size < timestamps.length / 4) {
+				final int shrunk = Math.max(MIN_CAPACITY, timestamps.length / 2);
+				timestamps = Arrays.copyOf(timestamps, shrunk);
+				amounts = Arrays.copyOf(amounts, shrunk);
+				keys = Arrays.copyOf(keys, shrunk);
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+
+		int released = 0;
+		while (released < due.size() && pipeline.submit(due.getTimestamp(released), due.getAmount(released), due.getKey(released))) {
+			released++;
+		}
+		if (released < due.size()) {
+			hold(due, released);
+		}
+		return released;
+	}
+
+	public boolean isFull() {
+		try {
+			reentrantLock.lock();
+
+			return size == capacity;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	public int size() {
+		try {
+			reentrantLock.lock();
+
+			return size;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	private void hold(final TransactionBatch batch, final int from) {
+		try {
+			reentrantLock.lock();
+
+			for (int i = from; i < batch.size(); i++) {
+				insert(batch.getTimestamp(i), batch.getAmount(i), batch.getKey(i));
+			}
+			earliestMillis = timestamps[0];
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	private void insert(final long timestampMillis, final double amount, final String key) {
+		if (size == timestamps.length) {
+			final int grown = Math.max(size + 1, Math.min(capacity, size * 2));
+			timestamps = Arrays.copyOf(timestamps, grown);
+			amounts = Arrays.copyOf(amounts, grown);
+			keys = Arrays.copyOf(keys, grown);
+		}
+		int child = size++;
+		while (child > 0) {
+			final int parent = (child - 1) / 2;
+			if (timestamps[parent] <= timestampMillis) {
+				break;
+			}
+			move(parent, child);
+			child = parent;
+		}
+		timestamps[child] = timestampMillis;
+		amounts[child] = amount;
+		keys[child] = key;
+	}
+
+	private void removeFirst() {
+		final int last = --size;
+		final long timestamp = timestamps[last];
+		final double amount = amounts[last];
+		final String key = keys[last];
+		keys[last] = null;
+		int parent = 0;
+		while (true) {
+			int child = 2 * parent + 1;
+			if (child >= last) {
+				break;
+			}
+			if (child + 1 < last && timestamps[child + 1] < timestamps[child]) {
+				child++;
+			}
+			if (timestamps[child] >= timestamp) {
+				break;
+			}
+			move(child, parent);
+			parent = child;
+		}
+		if (last > 0) {
+			timestamps[parent] = timestamp;
+			amounts[parent] = amount;
+			keys[parent] = key;
+		}
+	}
+
+	private void move(final int from, final int to) {
+		timestamps[to] = timestamps[from];
+		amounts[to] = amounts[from];
+		keys[to] = keys[from];
+	}
+}
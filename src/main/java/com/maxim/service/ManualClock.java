@@ -0,0 +1,38 @@
+package com.maxim.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stands still until set or advanced, so window expiry can be tested and benchmarked without waiting for it. Nothing
+ * is evicted by moving the clock alone; call {@link TransactionService#removeTransactionsOlderThan60Seconds()} or
+ * enable lazy eviction as the scheduler would.
+ */
+public class ManualClock implements TransactionClock {
+	private volatile long millis;
+
+	public ManualClock(final Instant start) {
+		this.millis = start.toEpochMilli();
+	}
+
+	@Override
+	public long millis() {
+		return millis;
+	}
+
+	public Instant instant() {
+		return Instant.ofEpochMilli(millis);
+	}
+
+	public synchronized void advance(final Duration duration) {
+		millis += duration.toMillis();
+	}
+
+	public void set(final Instant instant) {
+		millis = instant.toEpochMilli();
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,37 @@
+package com.maxim.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class PipelineConfiguration {
+	@Bean(destroyMethod = "close")
+	public TransactionPipeline transactionPipeline(@Value("${transaction.pipeline.enabled:false}") final boolean enabled,
+	                                               @Value("${transaction.pipeline.capacity:65536}") final int capacity,
+	                                               @Value("${transaction.pipeline.shed-threshold:0.9}") final double shedThreshold,
+	                                               @Value("${transaction.pipeline.max-batch:1024}") final int maxBatch,
+	                                               @Value("${transaction.pipeline.idle-park-micros:100}") final long idleParkMicros) {
+		if (!enabled) {
+			return TransactionPipeline.synchronous();
+		}
+		if (shedThreshold <= 0 || shedThreshold > 1) {
+			throw new IllegalArgumentException("Shed threshold must be a fraction of the capacity in (0, 1]: " + shedThreshold);
+		}
+		return new RingBufferPipeline(capacity, Math.max(1, (int) (capacity * shedThreshold)), maxBatch, TimeUnit.MICROSECONDS.toNanos(idleParkMicros));
+	}
+
+	@Bean
+	public FutureTransactionBuffer futureTransactionBuffer(@Value("${transaction.future.tolerance-millis:10000}") final long toleranceMillis,
+	                                                       @Value("${transaction.future.horizon-millis:300000}") final long horizonMillis,
+	                                                       @Value("${transaction.future.capacity:10000}") final int capacity) {
+		return new FutureTransactionBuffer(toleranceMillis, horizonMillis, capacity);
+	}
+
+	@Bean(destroyMethod = "close")
+	public TransactionClock transactionClock(@Value("${transaction.clock.resolution-millis:1}") final long resolutionMillis) {
+		return resolutionMillis > 0 ? new CachedClock(resolutionMillis) : TransactionClock.system();
+	}
+}
@@ -0,0 +1,25 @@
+package com.maxim.service;
+
+import java.io.Closeable;
+
+/**
+ * Current time in epoch milliseconds for deciding which transactions are in the window. {@link #system()} asks the
+ * operating system every time; {@link CachedClock} reads a field a background thread refreshes, which is what the
+ * request path uses; {@link ManualClock} only moves when told to, for tests and simulations.
+ */
+public interface TransactionClock extends Closeable {
+	static TransactionClock system() {
+		return new TransactionClock() {
+			@Override
+			public long millis() {
+				return System.currentTimeMillis();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	long millis();
+}
@@ -0,0 +1,63 @@
+package com.maxim.service;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Durable record of accepted transactions. A transaction is appended and applied to the aggregates while
+ * {@link #applyLock()} is held, so a snapshot taking that lock exclusively sees every journaled transaction
+ * either applied or not yet appended.
+ */
+public interface TransactionJournal extends Closeable {
+	TransactionJournal NONE = new TransactionJournal() {
+		private final Lock noLock = new NoLock();
+
+		@Override
+		public void append(long timestampMillis, double amount, String key) {
+		}
+
+		@Override
+		public Lock applyLock() {
+			return noLock;
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	void append(long timestampMillis, double amount, String key);
+
+	Lock applyLock();
+
+	final class NoLock implements Lock {
+		@Override
+		public void lock() {
+		}
+
+		@Override
+		public void lockInterruptibly() {
+		}
+
+		@Override
+		public boolean tryLock() {
+			return true;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) {
+			return true;
+		}
+
+		@Override
+		public void unlock() {
+		}
+
+		@Override
+		public Condition newCondition() {
+			throw new UnsupportedOperationException("No conditions on a journal that does not lock");
+		}
+	}
+}
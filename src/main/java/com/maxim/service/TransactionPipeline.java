@@ -0,0 +1,58 @@
+package com.maxim.service;
+
+import com.maxim.model.TransactionBatch;
+
+import java.io.Closeable;
+
+/**
+ * Hands accepted transactions over to the aggregates. {@link #synchronous()} applies them on the calling thread;
+ * {@link RingBufferPipeline} queues them for a single writer thread and sheds load when it falls behind.
+ */
+public interface TransactionPipeline extends Closeable {
+	interface Sink {
+		void record(long timestampMillis, double amount, String key);
+
+		void recordAll(TransactionBatch batch);
+	}
+
+	static TransactionPipeline synchronous() {
+		return new TransactionPipeline() {
+			private Sink sink;
+
+			@Override
+			public void start(final Sink sink) {
+				this.sink = sink;
+			}
+
+			@Override
+			public boolean submit(final long timestampMillis, final double amount, final String key) {
+				sink.record(timestampMillis, amount, key);
+				return true;
+			}
+
+			@Override
+			public boolean submitAll(final TransactionBatch batch) {
+				sink.recordAll(batch);
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	void start(Sink sink);
+
+	/**
+	 * @return false if the transaction was shed because the pipeline is full
+	 */
+	boolean submit(long timestampMillis, double amount, String key);
+
+	/**
+	 * Hands over the whole batch or none of it.
+	 *
+	 * @return false if the batch was shed because the pipeline has no room for all of it
+	 */
+	boolean submitAll(TransactionBatch batch);
+}
@@ -1,80 +1,403 @@
 package com.maxim.service;
 
-import com.maxim.model.Transaction;
+import com.maxim.metrics.TransactionMetrics;
 import com.maxim.model.Statistic;
+import com.maxim.model.Transaction;
+import com.maxim.model.TransactionBatch;
+import com.maxim.service.engine.KeyedStatisticStore;
+import com.maxim.service.engine.PartialAggregate;
+import com.maxim.service.engine.PartialAggregateSupport;
+import com.maxim.service.engine.StatisticEngine;
+import com.maxim.service.engine.StatisticEngineConfiguration;
+import com.maxim.service.engine.WindowedStatisticEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.PriorityQueue;
-import java.util.TreeSet;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.Lock;
 
 @Service
 public class TransactionService {
-	private final int EVERY_SECOND = 1000;
 	private final Duration SIXTY_SECONDS = Duration.ofSeconds(60);
-	private final TreeSet<Transaction> max = new TreeSet<>((o1, o2) -> Double.compare(o2.getAmount(), o1.getAmount()));
-	private final TreeSet<Transaction> min = new TreeSet<>((o1, o2) -> Double.compare(o1.getAmount(), o2.getAmount()));
-	private final PriorityQueue<Transaction> records = new PriorityQueue<>((o1, o2) -> o1.getTimestamp().compareTo(o2.getTimestamp()));
 
-	private final ReentrantLock reentrantLock = new ReentrantLock();
+	private static final int KEYED_RESOLUTION_MILLIS = 1000;
+	private static final int KEYED_SEGMENTS = 16;
+	private static final long FUTURE_TOLERANCE_MILLIS = 10_000;
+	private static final long FUTURE_HORIZON_MILLIS = 300_000;
+	private static final int FUTURE_CAPACITY = 10_000;
+
+	private final StatisticEngine statisticEngine;
+	private final KeyedStatisticStore keyedStatisticStore;
+	private final TransactionJournal transactionJournal;
+	private final TransactionMetrics transactionMetrics;
+	private final TransactionPipeline transactionPipeline;
+	private final FutureTransactionBuffer futureTransactions;
+	private final boolean lazyEviction;
+	private final TransactionClock clock;
+	private final TransactionPipeline.Sink sink = new TransactionPipeline.Sink() {
+		@Override
+		public void record(final long timestampMillis, final double amount, final String key) {
+			apply(timestampMillis, amount, key);
+		}
 
-	private long count;
-	private double sum;
-	private Statistic latestStatistic = new Statistic(0, 0, 0, 0, 0);
+		@Override
+		public void recordAll(final TransactionBatch batch) {
+			apply(batch);
+		}
+	};
 
-	@Scheduled(fixedRate = EVERY_SECOND)
+	/**
+	 * Starts a service around the engine with defaults for everything else: an in-memory keyed store, no journal,
+	 * metrics sampling every write, the synchronous pipeline, a future buffer with the default tolerance, eager
+	 * eviction and the system clock.
+	 */
+	public static Builder builder(final StatisticEngine statisticEngine) {
+		return new Builder(statisticEngine);
+	}
+
+	/**
+	 * @param lazyEviction evict before every read and write, so statistics are exact at the time they are read and
+	 *                     {@link #removeTransactionsOlderThan60Seconds()} only compacts the keyed store and releases
+	 *                     memory while idle
+	 * @param clock        decides what is in the window, shared with the controller so both agree on the time
+	 */
+	@Autowired
+	public TransactionService(StatisticEngine statisticEngine, KeyedStatisticStore keyedStatisticStore, TransactionJournal transactionJournal,
+	                          TransactionMetrics transactionMetrics, TransactionPipeline transactionPipeline, FutureTransactionBuffer futureTransactions,
+	                          @Value("${transaction.eviction.lazy:false}") boolean lazyEviction, TransactionClock clock) {
+		this.statisticEngine = statisticEngine;
+		this.keyedStatisticStore = keyedStatisticStore;
+		this.transactionJournal = transactionJournal;
+		this.transactionMetrics = transactionMetrics;
+		this.transactionPipeline = transactionPipeline;
+		this.futureTransactions = futureTransactions;
+		this.lazyEviction = lazyEviction;
+		this.clock = clock;
+		if (transactionMetrics.isEnabled()) {
+			statisticEngine.setLockWaitListener(transactionMetrics::lockWaited);
+			keyedStatisticStore.setLockWaitListener(transactionMetrics::lockWaited);
+		}
+		transactionPipeline.start(sink);
+	}
+
+	/**
+	 * Also releases held future-dated transactions whose time has come, so those count up to a second late. With
+	 * lazy eviction, reads and writes already evict as they go, and this only compacts the keyed store and the
+	 * buffers of an idle engine.
+	 */
+	@Scheduled(fixedRateString = "${transaction.eviction.sweep-interval-millis:1000}")
 	public void removeTransactionsOlderThan60Seconds() {
-		try {
-			reentrantLock.lock();
-
-			Transaction oldestOne;
-			while (!records.isEmpty() && isOlderThan60Seconds((oldestOne = records.peek()).getTimestamp())) {
-				records.poll();
-				count--;
-				sum -= oldestOne.getAmount();
-				max.remove(oldestOne);
-				min.remove(oldestOne);
-			}
+		final long nowMillis = clock.millis();
+		futureTransactions.release(nowMillis, transactionPipeline);
+		final long threshold = nowMillis - SIXTY_SECONDS.toMillis();
+		final long start = transactionMetrics.isEnabled() ? System.nanoTime() : 0;
+		final long evicted = statisticEngine.evictOlderThan(threshold);
+		keyedStatisticStore.evictOlderThan(threshold);
+		if (transactionMetrics.isEnabled()) {
+			transactionMetrics.evicted(evicted, System.nanoTime() - start);
+		}
+	}
 
-			double maxAmount = max.isEmpty() ? 0 : max.first().getAmount();
-			double minAmount = min.isEmpty() ? 0 : min.first().getAmount();
+	/**
+	 * Hands the transaction to the pipeline. With the asynchronous pipeline it shows up in statistics once the
+	 * writer thread has applied it, see {@link RingBufferPipeline} for how long that takes.
+	 *
+	 * @return false if the pipeline is full and the transaction was shed
+	 */
+	public boolean recordTransaction(final Transaction transaction) {
+		return submit(transaction.getTimestamp().toEpochMilli(), transaction.getAmount(), transaction.getKey());
+	}
 
-			latestStatistic = new Statistic(sum, maxAmount, minAmount, getAvg(), count);
-		} finally {
-			reentrantLock.unlock();
+	/**
+	 * Primitive counterpart of {@link #recordTransaction} including the 60 seconds check, which allocates nothing
+	 * with an engine that does not.
+	 *
+	 * @return false if the transaction is older than 60 seconds, too far in the future or was shed, and was not recorded
+	 */
+	public boolean record(final long timestampMillis, final double amount) {
+		return !isOlderThan60Seconds(timestampMillis) && submit(timestampMillis, amount);
+	}
+
+	/**
+	 * {@link #record(long, double)} without the 60 seconds check, for callers that answer too-old transactions
+	 * differently from shed ones. A transaction dated beyond the clock skew tolerance is held until its time comes.
+	 *
+	 * @return false if the pipeline is full and the transaction was shed, or it is dated in the future and could not
+	 * be held; see {@link #isTooFarInFuture(long)}
+	 */
+	public boolean submit(final long timestampMillis, final double amount) {
+		return submit(timestampMillis, amount, null);
+	}
+
+	/**
+	 * {@link #submit(long, double)} of a transaction that is also recorded under {@code key} in the keyed store.
+	 *
+	 * @param key at most {@link Transaction#MAX_KEY_BYTES} in UTF-8, or {@code null}
+	 */
+	public boolean submit(final long timestampMillis, final double amount, final String key) {
+		final long nowMillis = clock.millis();
+		if (lazyEviction) {
+			futureTransactions.release(nowMillis, transactionPipeline);
+		}
+		if (timestampMillis > nowMillis + futureTransactions.getToleranceMillis()) {
+			return futureTransactions.offer(timestampMillis, amount, key, nowMillis);
+		}
+		return transactionPipeline.submit(timestampMillis, amount, key);
+	}
+
+	/**
+	 * Removes the transactions older than 60 seconds from the batch.
+	 *
+	 * @return number of transactions removed
+	 */
+	public int takeTooOldTransactions(final TransactionBatch batch) {
+		final long nowMillis = clock.millis();
+		if (lazyEviction) {
+			futureTransactions.release(nowMillis, transactionPipeline);
+		}
+		final long threshold = nowMillis - SIXTY_SECONDS.toMillis();
+		return batch.removeIfTimestamp(timestamp -> timestamp < threshold);
+	}
+
+	/**
+	 * Moves the transactions dated beyond the clock skew tolerance out of the batch, to be held by
+	 * {@link #holdFutureTransactions} once the rest of the batch was accepted.
+	 */
+	public TransactionBatch takeFutureTransactions(final TransactionBatch batch) {
+		final long threshold = clock.millis() + futureTransactions.getToleranceMillis();
+		final TransactionBatch future = new TransactionBatch();
+		for (int i = 0; i < batch.size(); i++) {
+			if (batch.getTimestamp(i) > threshold) {
+				future.add(batch.getTimestamp(i), batch.getAmount(i), batch.getKey(i));
+			}
 		}
+		batch.removeIfTimestamp(timestamp -> timestamp > threshold);
+		return future;
+	}
+
+	/**
+	 * Holds transactions taken by {@link #takeFutureTransactions} until their time comes.
+	 *
+	 * @return number of transactions too far in the future or not fitting the buffer, which were dropped
+	 */
+	public int holdFutureTransactions(final TransactionBatch future) {
+		final long nowMillis = clock.millis();
+		int rejected = 0;
+		for (int i = 0; i < future.size(); i++) {
+			if (!futureTransactions.offer(future.getTimestamp(i), future.getAmount(i), future.getKey(i), nowMillis)) {
+				rejected++;
+			}
+		}
+		return rejected;
+	}
+
+	/**
+	 * Hands the batch to the pipeline as a whole, like {@link #recordTransaction} does with one transaction.
+	 *
+	 * @return false if the pipeline has no room for the whole batch and all of it was shed
+	 */
+	public boolean recordTransactions(final TransactionBatch batch) {
+		return transactionPipeline.submitAll(batch);
 	}
 
-	public void recordTransaction(final Transaction transaction) {
+	private void apply(final TransactionBatch batch) {
+		final Lock applyLock = transactionJournal.applyLock();
 		try {
-			reentrantLock.lock();
+			applyLock.lock();
 
-			count++;
-			sum += transaction.getAmount();
-			max.add(transaction);
-			min.add(transaction);
+			if (lazyEviction) {
+				statisticEngine.evictOlderThan(clock.millis() - SIXTY_SECONDS.toMillis());
+			}
+			for (int i = 0; i < batch.size(); i++) {
+				transactionJournal.append(batch.getTimestamp(i), batch.getAmount(i), batch.getKey(i));
+			}
+			statisticEngine.recordAll(batch);
+			if (batch.hasKeys()) {
+				for (int i = 0; i < batch.size(); i++) {
+					if (batch.getKey(i) != null) {
+						keyedStatisticStore.record(batch.getKey(i), batch.getTimestamp(i), batch.getAmount(i));
+					}
+				}
+			}
+		} finally {
+			applyLock.unlock();
+		}
+	}
 
-			records.add(transaction);
+	private void apply(final long timestampMillis, final double amount, final String key) {
+		final long start = transactionMetrics.startRecord();
+		final Lock applyLock = transactionJournal.applyLock();
+		try {
+			applyLock.lock();
 
-			latestStatistic = new Statistic(sum, max.first().getAmount(), min.first().getAmount(), getAvg(), count);
+			if (lazyEviction) {
+				statisticEngine.evictOlderThan(clock.millis() - SIXTY_SECONDS.toMillis());
+			}
+			transactionJournal.append(timestampMillis, amount, key);
+			statisticEngine.record(timestampMillis, amount);
+			if (key != null) {
+				keyedStatisticStore.record(key, timestampMillis, amount);
+			}
 		} finally {
-			reentrantLock.unlock();
+			applyLock.unlock();
 		}
+		transactionMetrics.recorded(start);
 	}
 
 	public Statistic getLatestStatistic() {
-		return latestStatistic;
+		if (lazyEviction) {
+			expire(clock.millis());
+		}
+		return statisticEngine.getStatistic();
+	}
+
+	/**
+	 * Releases held future-dated transactions and evicts from the engine as of now, both returning without a lock
+	 * when there is nothing to do, which is most of the time.
+	 */
+	private void expire(final long nowMillis) {
+		futureTransactions.release(nowMillis, transactionPipeline);
+		statisticEngine.evictOlderThan(nowMillis - SIXTY_SECONDS.toMillis());
+	}
+
+	public Statistic getStatistic(final Duration window) {
+		if (window.equals(SIXTY_SECONDS)) {
+			return getLatestStatistic();
+		}
+		if (!(statisticEngine instanceof WindowedStatisticEngine) || !((WindowedStatisticEngine) statisticEngine).supportsWindow(window.toMillis())) {
+			throw new UnsupportedWindowException("Window of " + window + " is not configured for the " + statisticEngine.getClass().getSimpleName());
+		}
+		return ((WindowedStatisticEngine) statisticEngine).getStatistic(clock.millis(), window.toMillis());
+	}
+
+	/**
+	 * This node's share of the last 60 seconds for merging with other nodes. An engine without partial aggregate
+	 * support contributes its whole statistic as one bucket spanning the window.
+	 */
+	public PartialAggregate getPartialAggregate() {
+		final long nowMillis = clock.millis();
+		final long threshold = nowMillis - SIXTY_SECONDS.toMillis();
+		if (statisticEngine instanceof PartialAggregateSupport) {
+			return ((PartialAggregateSupport) statisticEngine).getPartialAggregate(threshold);
+		}
+		final Statistic statistic = statisticEngine.getStatistic();
+		final PartialAggregate aggregate = new PartialAggregate();
+		aggregate.add(threshold, nowMillis + 1, statistic.getCount(), statistic.getSum(), statistic.getMax(), statistic.getMin(), null);
+		return aggregate;
+	}
+
+	public Statistic getKeyedStatistic(final String key) {
+		if (lazyEviction) {
+			return keyedStatisticStore.getStatistic(key, clock.millis() - SIXTY_SECONDS.toMillis());
+		}
+		return keyedStatisticStore.getStatistic(key);
+	}
+
+	public int getKeyCount() {
+		return keyedStatisticStore.size();
+	}
+
+	public int getFutureTransactionCount() {
+		return futureTransactions.size();
+	}
+
+	/**
+	 * @return true if a transaction with this timestamp would be refused: it is dated beyond the horizon, or beyond
+	 * the tolerance while no more future transactions can be held
+	 */
+	public boolean isTooFarInFuture(final long timestampMillis) {
+		return isTooFarInFuture(timestampMillis, clock.millis());
+	}
+
+	public boolean isTooFarInFuture(final long timestampMillis, final long nowMillis) {
+		return timestampMillis > nowMillis + futureTransactions.getHorizonMillis()
+				|| timestampMillis > nowMillis + futureTransactions.getToleranceMillis() && futureTransactions.isFull();
+	}
+
+	public boolean isTooFarInFuture(final Instant instant) {
+		return isTooFarInFuture(instant.toEpochMilli());
 	}
 
 	public boolean isOlderThan60Seconds(final Instant instant) {
-		final Instant beforeSixtySeconds = Instant.now().minus(SIXTY_SECONDS);
-		return instant.isBefore(beforeSixtySeconds);
+		return isOlderThan60Seconds(instant.toEpochMilli());
 	}
 
-	private double getAvg() {
-		return count == 0 ? 0 : sum / count;
+	public boolean isOlderThan60Seconds(final long timestampMillis) {
+		return isOlderThan60Seconds(timestampMillis, clock.millis());
+	}
+
+	/**
+	 * For callers checking several things against one reading of the clock.
+	 */
+	public boolean isOlderThan60Seconds(final long timestampMillis, final long nowMillis) {
+		return timestampMillis < nowMillis - SIXTY_SECONDS.toMillis();
+	}
+
+	public static final class Builder {
+		private final StatisticEngine statisticEngine;
+		private KeyedStatisticStore keyedStatisticStore;
+		private TransactionJournal transactionJournal = TransactionJournal.NONE;
+		private TransactionMetrics transactionMetrics;
+		private TransactionPipeline transactionPipeline;
+		private FutureTransactionBuffer futureTransactions;
+		private boolean lazyEviction;
+		private TransactionClock clock = TransactionClock.system();
+
+		private Builder(final StatisticEngine statisticEngine) {
+			this.statisticEngine = statisticEngine;
+		}
+
+		public Builder keyedStatisticStore(final KeyedStatisticStore keyedStatisticStore) {
+			this.keyedStatisticStore = keyedStatisticStore;
+			return this;
+		}
+
+		public Builder transactionJournal(final TransactionJournal transactionJournal) {
+			this.transactionJournal = transactionJournal;
+			return this;
+		}
+
+		public Builder transactionMetrics(final TransactionMetrics transactionMetrics) {
+			this.transactionMetrics = transactionMetrics;
+			return this;
+		}
+
+		public Builder transactionPipeline(final TransactionPipeline transactionPipeline) {
+			this.transactionPipeline = transactionPipeline;
+			return this;
+		}
+
+		public Builder futureTransactions(final FutureTransactionBuffer futureTransactions) {
+			this.futureTransactions = futureTransactions;
+			return this;
+		}
+
+		public Builder lazyEviction(final boolean lazyEviction) {
+			this.lazyEviction = lazyEviction;
+			return this;
+		}
+
+		public Builder clock(final TransactionClock clock) {
+			this.clock = clock;
+			return this;
+		}
+
+		/**
+		 * Defaults that hold state are created here rather than up front, so every built service gets its own.
+		 */
+		public TransactionService build() {
+			final FutureTransactionBuffer future = futureTransactions != null ? futureTransactions
+					: new FutureTransactionBuffer(FUTURE_TOLERANCE_MILLIS, FUTURE_HORIZON_MILLIS, FUTURE_CAPACITY);
+			return new TransactionService(statisticEngine,
+					keyedStatisticStore != null ? keyedStatisticStore
+							: new KeyedStatisticStore(StatisticEngineConfiguration.WINDOW.toMillis(), KEYED_RESOLUTION_MILLIS, KEYED_SEGMENTS, future.getToleranceMillis()),
+					transactionJournal,
+					transactionMetrics != null ? transactionMetrics : new TransactionMetrics(true, 1),
+					transactionPipeline != null ? transactionPipeline : TransactionPipeline.synchronous(),
+					future, lazyEviction, clock);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package com.maxim.service;
+
+public class UnsupportedWindowException extends IllegalArgumentException {
+	public UnsupportedWindowException(String message) {
+		super(message);
+	}
+}
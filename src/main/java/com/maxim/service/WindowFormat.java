@@ -0,0 +1,60 @@
+package com.maxim.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public final class WindowFormat {
+	/**
+	 * The day of history kept by default, the furthest back any engine answers; longer windows are rejected up front.
+	 */
+	public static final Duration MAX_WINDOW = Duration.ofDays(1);
+
+	private static final Pattern WINDOW = Pattern.compile("(\\d+)(ms|s|m|h)");
+
+	private WindowFormat() {
+	}
+
+	public static Duration parse(final String window) {
+		final Matcher matcher = WINDOW.matcher(window.trim());
+		if (!matcher.matches()) {
+			throw new UnsupportedWindowException("Window '" + window + "' must be a positive number followed by ms, s, m or h, e.g. 10s");
+		}
+		final Duration duration;
+		try {
+			final long value = Long.parseLong(matcher.group(1));
+			switch (matcher.group(2)) {
+				case "ms":
+					duration = Duration.ofMillis(value);
+					break;
+				case "s":
+					duration = Duration.ofSeconds(value);
+					break;
+				case "m":
+					duration = Duration.ofMinutes(value);
+					break;
+				default:
+					duration = Duration.ofHours(value);
+			}
+		} catch (NumberFormatException | ArithmeticException e) {
+			throw new UnsupportedWindowException("Window '" + window + "' must not exceed " + MAX_WINDOW.toHours() + "h");
+		}
+		if (duration.isZero()) {
+			throw new UnsupportedWindowException("Window '" + window + "' must be positive");
+		}
+		if (duration.compareTo(MAX_WINDOW) > 0) {
+			throw new UnsupportedWindowException("Window '" + window + "' must not exceed " + MAX_WINDOW.toHours() + "h");
+		}
+		return duration;
+	}
+
+	public static List<Duration> parseList(final String windows) {
+		return Arrays.stream(windows.split(","))
+				.filter(window -> !window.trim().isEmpty())
+				.map(WindowFormat::parse)
+				.collect(Collectors.toList());
+	}
+}
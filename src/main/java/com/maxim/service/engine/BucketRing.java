@@ -0,0 +1,90 @@
+package com.maxim.service.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed ring of sum/count/min/max buckets of one resolution, kept in primitive arrays. Not thread safe,
+ * the owning engine guards it.
+ */
+class BucketRing {
+	static final long EMPTY = Long.MIN_VALUE;
+
+	final long resolutionMillis;
+	final long[] epochs;
+	final long[] counts;
+	final double[] sums;
+	final double[] maxes;
+	final double[] mins;
+	final QuantileSketch[] sketches;
+	private final double sketchAccuracy;
+	private final int sketchBins;
+
+	BucketRing(final long resolutionMillis, final int size) {
+		this(resolutionMillis, size, 0, 0);
+	}
+
+	BucketRing(final long resolutionMillis, final int size, final double sketchAccuracy, final int sketchBins) {
+		this.resolutionMillis = resolutionMillis;
+		this.epochs = new long[size];
+		this.counts = new long[size];
+		this.sums = new double[size];
+		this.maxes = new double[size];
+		this.mins = new double[size];
+		this.sketches = sketchAccuracy > 0 ? new QuantileSketch[size] : null;
+		this.sketchAccuracy = sketchAccuracy;
+		this.sketchBins = sketchBins;
+		Arrays.fill(epochs, EMPTY);
+	}
+
+	long epochOf(final long timestampMillis) {
+		return Math.floorDiv(timestampMillis, resolutionMillis);
+	}
+
+	int slotOf(final long epoch) {
+		return (int) Math.floorMod(epoch, (long) epochs.length);
+	}
+
+	long endOf(final int slot) {
+		return (epochs[slot] + 1) * resolutionMillis;
+	}
+
+	boolean isLive(final int slot, final long thresholdMillis) {
+		return epochs[slot] != EMPTY && endOf(slot) > thresholdMillis;
+	}
+
+	void reset(final int slot, final long epoch) {
+		epochs[slot] = epoch;
+		counts[slot] = 0;
+		sums[slot] = 0;
+		maxes[slot] = Double.NEGATIVE_INFINITY;
+		mins[slot] = Double.POSITIVE_INFINITY;
+		if (sketches != null && sketches[slot] != null) {
+			sketches[slot].clear();
+		}
+	}
+
+	void add(final int slot, final long count, final double sum, final double max, final double min) {
+		counts[slot] += count;
+		sums[slot] += sum;
+		maxes[slot] = Math.max(maxes[slot], max);
+		mins[slot] = Math.min(mins[slot], min);
+	}
+
+	QuantileSketch sketchAt(final int slot) {
+		if (sketches == null) {
+			return null;
+		}
+		if (sketches[slot] == null) {
+			sketches[slot] = new QuantileSketch(sketchAccuracy, sketchBins);
+		}
+		return sketches[slot];
+	}
+
+	void clear(final int slot) {
+		epochs[slot] = EMPTY;
+	}
+
+	int size() {
+		return epochs.length;
+	}
+}
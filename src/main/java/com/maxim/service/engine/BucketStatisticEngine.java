@@ -0,0 +1,388 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Percentiles;
+import com.maxim.model.Statistic;
+import com.maxim.model.TransactionBatch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Keeps fixed rings of time buckets holding sum/count/min/max, so recording is O(1), reading is O(buckets)
+ * and memory does not depend on traffic. A bucket counts towards a window until all of its time range is
+ * older than the window, so statistics may include up to one resolution of data past the window.
+ * <p>
+ * Several windows are served from one hierarchy of tiers. Every write lands in the finest tier; once a bucket
+ * is older than the longest window its tier serves it is rolled up into the next, coarser tier, and dropped
+ * after the last one. Each window is answered by the coarsest tier that still gives it
+ * {@value #MIN_BUCKETS_PER_WINDOW} buckets, merged with everything finer.
+ * <p>
+ * Optionally every bucket also carries a {@link QuantileSketch} of its amounts, rolled up along with the
+ * bucket and merged at query time into p50/p95/p99.
+ */
+public class BucketStatisticEngine implements WindowedStatisticEngine, SnapshotSupport, PartialAggregateSupport {
+	private static final int DEFAULT_ROLLUP_FACTOR = 10;
+	private static final int MIN_BUCKETS_PER_WINDOW = 30;
+	private static final int SKETCH_BINS = 2048;
+
+	private final long windowMillis;
+	private final long[] windows;
+	private final int[] windowTiers;
+	private final BucketRing[] tiers;
+	private final long[] spans;
+	private final double percentileAccuracy;
+
+	private final TimedLock reentrantLock = new TimedLock();
+
+	private long oldestLiveMillis = Long.MIN_VALUE;
+	// Buckets only need rolling once the threshold reaches another bucket of the finest tier
+	private long lastEvictedEpoch = Long.MIN_VALUE;
+	private EvictionListener evictionListener = EvictionListener.NONE;
+
+	public BucketStatisticEngine(final long windowMillis, final long resolutionMillis) {
+		this(windowMillis, resolutionMillis, DEFAULT_ROLLUP_FACTOR, windowMillis);
+	}
+
+	public BucketStatisticEngine(final long windowMillis, final long resolutionMillis, final int rollupFactor, final long... windows) {
+		this(windowMillis, resolutionMillis, rollupFactor, windows, 0);
+	}
+
+	public BucketStatisticEngine(final long windowMillis, final long resolutionMillis, final int rollupFactor, final long[] windows, final double percentileAccuracy) {
+		this(windowMillis, resolutionMillis, rollupFactor, windows, percentileAccuracy, 0);
+	}
+
+	/**
+	 * @param toleranceMillis how far ahead of the clock a transaction may be dated and still be recorded; the finest
+	 *                        tier keeps buckets for that much more time, so such a transaction never rolls a bucket still
+	 *                        in the window out of it
+	 */
+	public BucketStatisticEngine(final long windowMillis, final long resolutionMillis, final int rollupFactor, final long[] windows, final double percentileAccuracy,
+	                             final long toleranceMillis) {
+		if (rollupFactor < 2) {
+			throw new IllegalArgumentException("Roll-up factor must be at least 2: " + rollupFactor);
+		}
+		if (toleranceMillis < 0) {
+			throw new IllegalArgumentException("Future tolerance must not be negative: " + toleranceMillis + "ms");
+		}
+		this.windowMillis = windowMillis;
+		this.percentileAccuracy = percentileAccuracy;
+		this.windows = LongStream.concat(LongStream.of(windowMillis), Arrays.stream(windows)).distinct().sorted().toArray();
+		if (resolutionMillis <= 0 || this.windows[0] < resolutionMillis) {
+			throw new IllegalArgumentException("Resolution must be positive and not exceed any window: windows=" + Arrays.toString(this.windows) + "ms, resolution=" + resolutionMillis + "ms");
+		}
+
+		this.windowTiers = new int[this.windows.length];
+		for (int i = 0; i < this.windows.length; i++) {
+			long resolution = resolutionMillis;
+			while (resolution * rollupFactor * MIN_BUCKETS_PER_WINDOW <= this.windows[i]) {
+				resolution *= rollupFactor;
+				windowTiers[i]++;
+			}
+		}
+
+		final int numberOfTiers = windowTiers[windowTiers.length - 1] + 1;
+		this.tiers = new BucketRing[numberOfTiers];
+		this.spans = new long[numberOfTiers];
+		long resolution = resolutionMillis;
+		for (int tier = 0; tier < numberOfTiers; tier++) {
+			// A tier that serves no window only passes buckets through, so it keeps as much as the finer one
+			spans[tier] = tier == 0 ? resolution : spans[tier - 1];
+			for (int i = 0; i < this.windows.length; i++) {
+				if (windowTiers[i] == tier) {
+					spans[tier] = Math.max(spans[tier], this.windows[i]);
+				}
+			}
+			// One extra bucket holds the partially expired range at the tail of the span; only the finest tier takes
+			// writes, so only it needs room for those dated ahead
+			final long ahead = tier == 0 ? toleranceMillis : 0;
+			tiers[tier] = new BucketRing(resolution, (int) ((spans[tier] + ahead + resolution - 1) / resolution) + 1, percentileAccuracy, SKETCH_BINS);
+			resolution *= rollupFactor;
+		}
+	}
+
+	@Override
+	public void record(final long timestampMillis, final double amount) {
+		try {
+			reentrantLock.lock();
+
+			add(0, timestampMillis, 1, amount, amount, amount, null);
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public void recordAll(final TransactionBatch batch) {
+		try {
+			reentrantLock.lock();
+
+			for (int i = 0; i < batch.size(); i++) {
+				final double amount = batch.getAmount(i);
+				add(0, batch.getTimestamp(i), 1, amount, amount, amount, null);
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public long evictOlderThan(final long thresholdMillis) {
+		final long nowMillis = thresholdMillis + windowMillis;
+		try {
+			reentrantLock.lock();
+
+			// Buckets end on finest-tier boundaries, so nothing leaves the window until the threshold crosses one
+			final long epoch = tiers[0].epochOf(thresholdMillis);
+			if (epoch == lastEvictedEpoch) {
+				oldestLiveMillis = Math.max(oldestLiveMillis, thresholdMillis);
+				return 0;
+			}
+			final long retained = countLive(tierOf(windowMillis), oldestLiveMillis);
+			oldestLiveMillis = Math.max(oldestLiveMillis, thresholdMillis);
+			lastEvictedEpoch = epoch;
+			for (int tier = 0; tier < tiers.length; tier++) {
+				final BucketRing ring = tiers[tier];
+				for (int slot = 0; slot < ring.size(); slot++) {
+					if (ring.epochs[slot] != BucketRing.EMPTY && ring.endOf(slot) <= nowMillis - spans[tier]) {
+						roll(tier, slot);
+					}
+				}
+			}
+			return Math.max(0, retained - countLive(tierOf(windowMillis), oldestLiveMillis));
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public void setLockWaitListener(final LongConsumer listener) {
+		reentrantLock.setWaitListener(listener);
+	}
+
+	@Override
+	public void setEvictionListener(final EvictionListener listener) {
+		try {
+			reentrantLock.lock();
+
+			evictionListener = listener;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public Statistic getStatistic() {
+		try {
+			reentrantLock.lock();
+
+			return merge(tierOf(windowMillis), oldestLiveMillis);
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean supportsWindow(final long windowMillis) {
+		return Arrays.binarySearch(windows, windowMillis) >= 0;
+	}
+
+	@Override
+	public Statistic getStatistic(final long nowMillis, final long windowMillis) {
+		if (!supportsWindow(windowMillis)) {
+			throw new IllegalArgumentException("Window of " + windowMillis + "ms is not configured, supported windows: " + Arrays.toString(windows));
+		}
+		try {
+			reentrantLock.lock();
+
+			return merge(tierOf(windowMillis), nowMillis - windowMillis);
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public PartialAggregate getPartialAggregate(final long thresholdMillis) {
+		final PartialAggregate aggregate = new PartialAggregate(percentileAccuracy, SKETCH_BINS);
+		try {
+			reentrantLock.lock();
+
+			for (int tier = 0; tier <= tierOf(windowMillis); tier++) {
+				final BucketRing ring = tiers[tier];
+				for (int slot = 0; slot < ring.size(); slot++) {
+					if (ring.isLive(slot, Math.max(thresholdMillis, oldestLiveMillis))) {
+						aggregate.add(ring.epochs[slot] * ring.resolutionMillis, ring.endOf(slot), ring.counts[slot], ring.sums[slot],
+								ring.maxes[slot], ring.mins[slot], ring.sketchAt(slot));
+					}
+				}
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+		return aggregate;
+	}
+
+	@Override
+	public void writeSnapshot(final DataOutput output) throws IOException {
+		try {
+			reentrantLock.lock();
+
+			output.writeLong(oldestLiveMillis);
+			output.writeInt(tiers.length);
+			for (BucketRing ring : tiers) {
+				output.writeLong(ring.resolutionMillis);
+				output.writeInt(ring.size());
+				for (int slot = 0; slot < ring.size(); slot++) {
+					output.writeLong(ring.epochs[slot]);
+					if (ring.epochs[slot] == BucketRing.EMPTY) {
+						continue;
+					}
+					output.writeLong(ring.counts[slot]);
+					output.writeDouble(ring.sums[slot]);
+					output.writeDouble(ring.maxes[slot]);
+					output.writeDouble(ring.mins[slot]);
+					output.writeBoolean(ring.sketches != null);
+					if (ring.sketches != null) {
+						ring.sketchAt(slot).writeTo(output);
+					}
+				}
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public void readSnapshot(final DataInput input) throws IOException {
+		try {
+			reentrantLock.lock();
+
+			oldestLiveMillis = input.readLong();
+			if (input.readInt() != tiers.length) {
+				throw new IOException("Snapshot was taken with a different number of tiers than configured");
+			}
+			for (BucketRing ring : tiers) {
+				if (input.readLong() != ring.resolutionMillis || input.readInt() != ring.size()) {
+					throw new IOException("Snapshot was taken with a different tier layout than configured");
+				}
+				for (int slot = 0; slot < ring.size(); slot++) {
+					final long epoch = input.readLong();
+					if (epoch == BucketRing.EMPTY) {
+						ring.clear(slot);
+						continue;
+					}
+					ring.reset(slot, epoch);
+					ring.add(slot, input.readLong(), input.readDouble(), input.readDouble(), input.readDouble());
+					if (input.readBoolean()) {
+						final QuantileSketch sketch = ring.sketchAt(slot);
+						if (sketch == null) {
+							throw new IOException("Snapshot holds percentiles but they are disabled");
+						}
+						sketch.mergeFrom(input);
+					}
+				}
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	private int tierOf(final long windowMillis) {
+		return windowTiers[Arrays.binarySearch(windows, windowMillis)];
+	}
+
+	private long countLive(final int coarsestTier, final long thresholdMillis) {
+		long count = 0;
+		for (int tier = 0; tier <= coarsestTier; tier++) {
+			final BucketRing ring = tiers[tier];
+			for (int slot = 0; slot < ring.size(); slot++) {
+				if (ring.isLive(slot, thresholdMillis)) {
+					count += ring.counts[slot];
+				}
+			}
+		}
+		return count;
+	}
+
+	private Statistic merge(final int coarsestTier, final long thresholdMillis) {
+		long count = 0;
+		double sum = 0;
+		double max = Double.NEGATIVE_INFINITY;
+		double min = Double.POSITIVE_INFINITY;
+		final QuantileSketch sketch = percentileAccuracy > 0 ? new QuantileSketch(percentileAccuracy, SKETCH_BINS) : null;
+		for (int tier = 0; tier <= coarsestTier; tier++) {
+			final BucketRing ring = tiers[tier];
+			for (int slot = 0; slot < ring.size(); slot++) {
+				if (!ring.isLive(slot, thresholdMillis) || ring.counts[slot] == 0) {
+					continue;
+				}
+				count += ring.counts[slot];
+				sum += ring.sums[slot];
+				max = Math.max(max, ring.maxes[slot]);
+				min = Math.min(min, ring.mins[slot]);
+				if (sketch != null) {
+					sketch.merge(ring.sketchAt(slot));
+				}
+			}
+		}
+
+		if (count == 0) {
+			return new Statistic(0, 0, 0, 0, 0, sketch == null ? null : new Percentiles(0, 0, 0));
+		}
+		if (sketch == null) {
+			return new Statistic(sum, max, min, sum / count, count);
+		}
+		// Estimates are only accurate relative to the value, so keep them inside the exact extremes
+		final Percentiles percentiles = new Percentiles(
+				clamp(sketch.getValueAtQuantile(0.50), min, max),
+				clamp(sketch.getValueAtQuantile(0.95), min, max),
+				clamp(sketch.getValueAtQuantile(0.99), min, max));
+		return new Statistic(sum, max, min, sum / count, count, percentiles);
+	}
+
+	private static double clamp(final double value, final double min, final double max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	private void add(final int fromTier, final long timestampMillis, final long count, final double sum, final double max, final double min, final QuantileSketch sketch) {
+		for (int tier = fromTier; tier < tiers.length; tier++) {
+			final BucketRing ring = tiers[tier];
+			final long epoch = ring.epochOf(timestampMillis);
+			final int slot = ring.slotOf(epoch);
+			if (ring.epochs[slot] > epoch) {
+				// Older than everything this tier still holds, so it belongs to a coarser one
+				continue;
+			}
+			if (ring.epochs[slot] != epoch) {
+				if (ring.epochs[slot] != BucketRing.EMPTY) {
+					roll(tier, slot);
+				}
+				ring.reset(slot, epoch);
+			}
+			ring.add(slot, count, sum, max, min);
+			if (ring.sketches != null) {
+				if (sketch != null) {
+					ring.sketchAt(slot).merge(sketch);
+				} else {
+					ring.sketchAt(slot).add(sum);
+				}
+			}
+			return;
+		}
+	}
+
+	private void roll(final int tier, final int slot) {
+		final BucketRing ring = tiers[tier];
+		if (ring.counts[slot] > 0) {
+			if (tier + 1 < tiers.length) {
+				add(tier + 1, ring.epochs[slot] * ring.resolutionMillis, ring.counts[slot], ring.sums[slot], ring.maxes[slot], ring.mins[slot], ring.sketchAt(slot));
+			} else {
+				evictionListener.evicted(ring.epochs[slot] * ring.resolutionMillis, ring.counts[slot], ring.sums[slot], ring.maxes[slot], ring.mins[slot]);
+			}
+		}
+		ring.clear(slot);
+	}
+}
@@ -0,0 +1,21 @@
+package com.maxim.service.engine;
+
+/**
+ * Receives what an engine drops from its window, one transaction or one bucket at a time.
+ */
+public interface EvictionListener {
+	EvictionListener NONE = (timestampMillis, count, sum, max, min) -> {
+	};
+
+	/**
+	 * @param timestampMillis the transaction's timestamp, or the start of the bucket
+	 */
+	void evicted(long timestampMillis, long count, double sum, double max, double min);
+
+	default EvictionListener andThen(final EvictionListener next) {
+		return (timestampMillis, count, sum, max, min) -> {
+			evicted(timestampMillis, count, sum, max, min);
+			next.evicted(timestampMillis, count, sum, max, min);
+		};
+	}
+}
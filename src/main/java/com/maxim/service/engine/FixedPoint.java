@@ -0,0 +1,58 @@
+package com.maxim.service.engine;
+
+/**
+ * Amounts as {@code long}s scaled by 10^decimals, e.g. cents with 2 decimals. Adding and subtracting scaled
+ * amounts is exact, so a running sum that is decremented on eviction never drifts from the amounts it holds,
+ * and it can be updated with a plain atomic add. Amounts are rounded to the scale on the way in, and anything that
+ * does not fit in a {@code long} fails with an {@link ArithmeticException} instead of wrapping around.
+ */
+public final class FixedPoint {
+	private static final int MAX_DECIMALS = 9;
+
+	private final int decimals;
+	private final double scale;
+	private final double maxAmount;
+
+	public FixedPoint(final int decimals) {
+		if (decimals < 0 || decimals > MAX_DECIMALS) {
+			throw new IllegalArgumentException("Fixed-point decimals must be between 0 and " + MAX_DECIMALS + ": " + decimals);
+		}
+		this.decimals = decimals;
+		this.scale = Math.pow(10, decimals);
+		this.maxAmount = Long.MAX_VALUE / scale;
+	}
+
+	public long toScaled(final double amount) {
+		if (!(Math.abs(amount) < maxAmount)) {
+			throw new ArithmeticException("Amount " + amount + " does not fit in a fixed-point long with " + decimals + " decimals, the limit is " + maxAmount);
+		}
+		return Math.round(amount * scale);
+	}
+
+	public double toDouble(final long scaled) {
+		return scaled / scale;
+	}
+
+	public long add(final long scaledSum, final long scaledAmount) {
+		final long result = scaledSum + scaledAmount;
+		if (overflows(scaledSum, scaledAmount, result)) {
+			throw overflow(scaledSum, scaledAmount);
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if {@code result} is {@code sum + amount} wrapped around
+	 */
+	public static boolean overflows(final long sum, final long amount, final long result) {
+		return ((sum ^ result) & (amount ^ result)) < 0;
+	}
+
+	public ArithmeticException overflow(final long scaledSum, final long scaledAmount) {
+		return new ArithmeticException("Sum " + toDouble(scaledSum) + " plus " + toDouble(scaledAmount) + " overflows a fixed-point long with " + decimals + " decimals");
+	}
+
+	public int getDecimals() {
+		return decimals;
+	}
+}
@@ -0,0 +1,358 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Windowed statistics per key (merchant, currency...). Keys live in open-addressing tables that map them to
+ * bucket rings pooled in shared primitive arrays, so a key costs one table entry plus one ring and no
+ * per-transaction objects. Keys are split over independently locked segments. A key whose newest bucket has
+ * left the window is removed and its ring goes back to the pool for the next key.
+ */
+public class KeyedStatisticStore {
+	private static final long EMPTY = Long.MIN_VALUE;
+	private static final int INITIAL_KEYS = 16;
+	private static final Statistic EMPTY_STATISTIC = new Statistic(0, 0, 0, 0, 0);
+
+	private final long resolutionMillis;
+	private final int slotsPerRing;
+	private final Segment[] segments;
+	private final int segmentShift;
+
+	private volatile long oldestLiveMillis = Long.MIN_VALUE;
+
+	public KeyedStatisticStore(final long windowMillis, final long resolutionMillis, final int segments) {
+		this(windowMillis, resolutionMillis, segments, 0);
+	}
+
+	/**
+	 * @param toleranceMillis how far ahead of the clock a transaction may be dated and still be recorded; every ring
+	 *                        keeps buckets for that much more time, so such a transaction never takes over a bucket
+	 *                        still in the window
+	 */
+	public KeyedStatisticStore(final long windowMillis, final long resolutionMillis, final int segments, final long toleranceMillis) {
+		if (resolutionMillis <= 0 || windowMillis < resolutionMillis) {
+			throw new IllegalArgumentException("Resolution must be positive and not exceed the window: window=" + windowMillis + "ms, resolution=" + resolutionMillis + "ms");
+		}
+		if (segments <= 0 || Integer.bitCount(segments) != 1) {
+			throw new IllegalArgumentException("Number of segments must be a positive power of two: " + segments);
+		}
+		if (toleranceMillis < 0) {
+			throw new IllegalArgumentException("Future tolerance must not be negative: " + toleranceMillis + "ms");
+		}
+		this.resolutionMillis = resolutionMillis;
+		this.slotsPerRing = (int) ((windowMillis + toleranceMillis + resolutionMillis - 1) / resolutionMillis) + 1;
+		this.segments = new Segment[segments];
+		this.segmentShift = 32 - Integer.numberOfTrailingZeros(segments);
+		for (int i = 0; i < segments; i++) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	public void record(final String key, final long timestampMillis, final double amount) {
+		final int hash = hash(key);
+		final Segment segment = segmentOf(hash);
+		try {
+			segment.lock.lock();
+
+			segment.record(key, hash, Math.floorDiv(timestampMillis, resolutionMillis), amount);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	public Statistic getStatistic(final String key) {
+		return getStatistic(key, oldestLiveMillis);
+	}
+
+	/**
+	 * The key's statistic over buckets not entirely older than the threshold, whether or not they have been evicted.
+	 */
+	public Statistic getStatistic(final String key, final long thresholdMillis) {
+		final long threshold = Math.max(thresholdMillis, oldestLiveMillis);
+		final int hash = hash(key);
+		final Segment segment = segmentOf(hash);
+		try {
+			segment.lock.lock();
+
+			return segment.statistic(key, hash, threshold);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	public void evictOlderThan(final long thresholdMillis) {
+		if (thresholdMillis > oldestLiveMillis) {
+			oldestLiveMillis = thresholdMillis;
+		}
+		for (Segment segment : segments) {
+			try {
+				segment.lock.lock();
+
+				segment.evictOlderThan(thresholdMillis);
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+
+	public void setLockWaitListener(final LongConsumer listener) {
+		for (Segment segment : segments) {
+			segment.lock.setWaitListener(listener);
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			try {
+				segment.lock.lock();
+
+				size += segment.size;
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	public long getFootprintBytes() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			try {
+				segment.lock.lock();
+
+				bytes += segment.footprintBytes();
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return bytes;
+	}
+
+	private static int hash(final String key) {
+		final int hash = key.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private Segment segmentOf(final int hash) {
+		return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+	}
+
+	private final class Segment {
+		private final TimedLock lock = new TimedLock();
+
+		// Open-addressing table with linear probing, rings[i] is the pooled ring of keys[i]
+		private String[] keys = new String[INITIAL_KEYS];
+		private int[] hashes = new int[INITIAL_KEYS];
+		private int[] rings = new int[INITIAL_KEYS];
+		private int size;
+
+		// Ring pool: ring r owns slots [r * slotsPerRing, (r + 1) * slotsPerRing) of the bucket arrays
+		private long[] epochs = new long[0];
+		private long[] counts = new long[0];
+		private double[] sums = new double[0];
+		private double[] maxes = new double[0];
+		private double[] mins = new double[0];
+		private long[] newestEpochs = new long[0];
+		private int[] freeRings = new int[0];
+		private int freeCount;
+		private int allocatedRings;
+
+		private void record(final String key, final int hash, final long epoch, final double amount) {
+			int index = indexOf(key, hash);
+			if (keys[index] == null) {
+				if ((size + 1) * 4 > keys.length * 3) {
+					resize(keys.length * 2);
+					index = indexOf(key, hash);
+				}
+				keys[index] = key;
+				hashes[index] = hash;
+				rings[index] = allocateRing();
+				size++;
+			}
+
+			final int ring = rings[index];
+			final int slot = ring * slotsPerRing + (int) Math.floorMod(epoch, (long) slotsPerRing);
+			if (epoch < epochs[slot]) {
+				return;
+			}
+			if (epochs[slot] != epoch) {
+				epochs[slot] = epoch;
+				counts[slot] = 1;
+				sums[slot] = amount;
+				maxes[slot] = amount;
+				mins[slot] = amount;
+			} else {
+				counts[slot]++;
+				sums[slot] += amount;
+				maxes[slot] = Math.max(maxes[slot], amount);
+				mins[slot] = Math.min(mins[slot], amount);
+			}
+			newestEpochs[ring] = Math.max(newestEpochs[ring], epoch);
+		}
+
+		private Statistic statistic(final String key, final int hash, final long thresholdMillis) {
+			final int index = indexOf(key, hash);
+			if (keys[index] == null) {
+				return EMPTY_STATISTIC;
+			}
+
+			final int from = rings[index] * slotsPerRing;
+			long count = 0;
+			double sum = 0;
+			double max = Double.NEGATIVE_INFINITY;
+			double min = Double.POSITIVE_INFINITY;
+			for (int slot = from; slot < from + slotsPerRing; slot++) {
+				if (epochs[slot] == EMPTY || (epochs[slot] + 1) * resolutionMillis <= thresholdMillis) {
+					continue;
+				}
+				count += counts[slot];
+				sum += sums[slot];
+				max = Math.max(max, maxes[slot]);
+				min = Math.min(min, mins[slot]);
+			}
+			return count == 0 ? EMPTY_STATISTIC : new Statistic(sum, max, min, sum / count, count);
+		}
+
+		private void evictOlderThan(final long thresholdMillis) {
+			int index = 0;
+			while (index < keys.length) {
+				if (keys[index] != null && (newestEpochs[rings[index]] + 1) * resolutionMillis <= thresholdMillis) {
+					// Removal may shift a later key into this index, so look at it again
+					remove(index);
+				} else {
+					index++;
+				}
+			}
+			if (allocatedRings > INITIAL_KEYS && size * 4 < allocatedRings) {
+				compactPool();
+			}
+		}
+
+		private int indexOf(final String key, final int hash) {
+			final int mask = keys.length - 1;
+			int index = hash & mask;
+			while (keys[index] != null && (hashes[index] != hash || !keys[index].equals(key))) {
+				index = (index + 1) & mask;
+			}
+			return index;
+		}
+
+		private void remove(int index) {
+			releaseRing(rings[index]);
+			size--;
+
+			// Backward-shift deletion keeps probe sequences intact without tombstones
+			final int mask = keys.length - 1;
+			int next = (index + 1) & mask;
+			while (keys[next] != null) {
+				final int home = hashes[next] & mask;
+				if (((next - home) & mask) >= ((next - index) & mask)) {
+					keys[index] = keys[next];
+					hashes[index] = hashes[next];
+					rings[index] = rings[next];
+					index = next;
+				}
+				next = (next + 1) & mask;
+			}
+			keys[index] = null;
+		}
+
+		private void resize(final int capacity) {
+			final String[] oldKeys = keys;
+			final int[] oldHashes = hashes;
+			final int[] oldRings = rings;
+			keys = new String[capacity];
+			hashes = new int[capacity];
+			rings = new int[capacity];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					final int index = indexOf(oldKeys[i], oldHashes[i]);
+					keys[index] = oldKeys[i];
+					hashes[index] = oldHashes[i];
+					rings[index] = oldRings[i];
+				}
+			}
+		}
+
+		private int allocateRing() {
+			final int ring;
+			if (freeCount > 0) {
+				ring = freeRings[--freeCount];
+			} else {
+				if (allocatedRings == newestEpochs.length) {
+					growPool(Math.max(4, allocatedRings * 2));
+				}
+				ring = allocatedRings++;
+			}
+			Arrays.fill(epochs, ring * slotsPerRing, (ring + 1) * slotsPerRing, EMPTY);
+			newestEpochs[ring] = EMPTY;
+			return ring;
+		}
+
+		private void releaseRing(final int ring) {
+			freeRings[freeCount++] = ring;
+		}
+
+		private void growPool(final int ringCapacity) {
+			final int slots = ringCapacity * slotsPerRing;
+			epochs = Arrays.copyOf(epochs, slots);
+			counts = Arrays.copyOf(counts, slots);
+			sums = Arrays.copyOf(sums, slots);
+			maxes = Arrays.copyOf(maxes, slots);
+			mins = Arrays.copyOf(mins, slots);
+			newestEpochs = Arrays.copyOf(newestEpochs, ringCapacity);
+			freeRings = Arrays.copyOf(freeRings, ringCapacity);
+		}
+
+		private void compactPool() {
+			// Moves live rings to the front of a pool sized for them, so memory of evicted keys is given back
+			final int capacity = Math.max(4, size * 2);
+			final int slots = capacity * slotsPerRing;
+			final long[] compactEpochs = new long[slots];
+			final long[] compactCounts = new long[slots];
+			final double[] compactSums = new double[slots];
+			final double[] compactMaxes = new double[slots];
+			final double[] compactMins = new double[slots];
+			final long[] compactNewestEpochs = new long[capacity];
+			int next = 0;
+			for (int index = 0; index < keys.length; index++) {
+				if (keys[index] != null) {
+					final int from = rings[index] * slotsPerRing;
+					final int to = next * slotsPerRing;
+					System.arraycopy(epochs, from, compactEpochs, to, slotsPerRing);
+					System.arraycopy(counts, from, compactCounts, to, slotsPerRing);
+					System.arraycopy(sums, from, compactSums, to, slotsPerRing);
+					System.arraycopy(maxes, from, compactMaxes, to, slotsPerRing);
+					System.arraycopy(mins, from, compactMins, to, slotsPerRing);
+					compactNewestEpochs[next] = newestEpochs[rings[index]];
+					rings[index] = next++;
+				}
+			}
+			epochs = compactEpochs;
+			counts = compactCounts;
+			sums = compactSums;
+			maxes = compactMaxes;
+			mins = compactMins;
+			newestEpochs = compactNewestEpochs;
+			freeRings = new int[capacity];
+			freeCount = 0;
+			allocatedRings = next;
+		}
+
+		private long footprintBytes() {
+			long table = (long) keys.length * (4 + 4 + 4);
+			for (String key : keys) {
+				if (key != null) {
+					// String header and fields plus its char[] on a compressed-oops JVM 8
+					table += 24 + 16 + 2L * key.length();
+				}
+			}
+			final long pool = (long) epochs.length * (8 + 8 + 8 + 8 + 8) + (long) newestEpochs.length * (8 + 4);
+			return table + pool;
+		}
+	}
+}
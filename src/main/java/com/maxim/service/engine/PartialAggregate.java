@@ -0,0 +1,196 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Percentiles;
+import com.maxim.model.Statistic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.TreeMap;
+
+/**
+ * One node's share of a window as time buckets of sum/count/min/max and optionally a {@link QuantileSketch}, so
+ * the shares of several nodes can be merged bucket by bucket into one {@link Statistic}. Buckets are keyed by their
+ * start, so nodes configured with the same resolution merge into the same buckets; with different resolutions they
+ * simply sit side by side. A bucket counts towards a window until all of its range is older than the window, like
+ * in {@link BucketStatisticEngine}.
+ * <p>
+ * Binary form: magic, version, sketch accuracy (0 without sketches), sketch bins, bucket count, then per bucket
+ * start, end, count, sum, max, min and the sketch as written by {@link QuantileSketch#writeTo}. About 44 bytes per
+ * bucket without sketches.
+ */
+public class PartialAggregate {
+	private static final int MAGIC = 0x50415254;
+	private static final int VERSION = 1;
+
+	private final double sketchAccuracy;
+	private final int sketchBins;
+	private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+	public PartialAggregate() {
+		this(0, 0);
+	}
+
+	public PartialAggregate(final double sketchAccuracy, final int sketchBins) {
+		this.sketchAccuracy = sketchAccuracy;
+		this.sketchBins = sketchBins;
+	}
+
+	/**
+	 * @param sketch merged into this aggregate's sketch of the bucket, ignored if this aggregate keeps no sketches
+	 */
+	public void add(final long startMillis, final long endMillis, final long count, final double sum, final double max, final double min,
+	                final QuantileSketch sketch) {
+		if (count == 0) {
+			return;
+		}
+		final Bucket bucket = bucketAt(startMillis, endMillis);
+		bucket.add(count, sum, max, min);
+		if (bucket.sketch != null && sketch != null) {
+			bucket.sketch.merge(sketch);
+		}
+	}
+
+	/**
+	 * Adds every bucket of the other aggregate. Percentiles survive only if both keep sketches of the same accuracy;
+	 * merging into an aggregate without sketches drops them.
+	 */
+	public PartialAggregate merge(final PartialAggregate other) {
+		final PartialAggregate merged = sketchAccuracy > 0 && other.sketchAccuracy == sketchAccuracy
+				? new PartialAggregate(sketchAccuracy, Math.max(sketchBins, other.sketchBins))
+				: new PartialAggregate();
+		for (PartialAggregate source : new PartialAggregate[]{this, other}) {
+			for (Bucket bucket : source.buckets.values()) {
+				merged.add(bucket.startMillis, bucket.endMillis, bucket.count, bucket.sum, bucket.max, bucket.min, bucket.sketch);
+			}
+		}
+		return merged;
+	}
+
+	public Statistic toStatistic(final long thresholdMillis) {
+		long count = 0;
+		double sum = 0;
+		double max = Double.NEGATIVE_INFINITY;
+		double min = Double.POSITIVE_INFINITY;
+		final QuantileSketch sketch = sketchAccuracy > 0 ? new QuantileSketch(sketchAccuracy, sketchBins) : null;
+		for (Bucket bucket : buckets.values()) {
+			if (bucket.endMillis <= thresholdMillis) {
+				continue;
+			}
+			count += bucket.count;
+			sum += bucket.sum;
+			max = Math.max(max, bucket.max);
+			min = Math.min(min, bucket.min);
+			if (sketch != null) {
+				sketch.merge(bucket.sketch);
+			}
+		}
+
+		if (count == 0) {
+			return new Statistic(0, 0, 0, 0, 0, sketch == null ? null : new Percentiles(0, 0, 0));
+		}
+		if (sketch == null) {
+			return new Statistic(sum, max, min, sum / count, count);
+		}
+		return new Statistic(sum, max, min, sum / count, count, new Percentiles(
+				clamp(sketch.getValueAtQuantile(0.50), min, max),
+				clamp(sketch.getValueAtQuantile(0.95), min, max),
+				clamp(sketch.getValueAtQuantile(0.99), min, max)));
+	}
+
+	public int size() {
+		return buckets.size();
+	}
+
+	public void writeTo(final DataOutput output) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeDouble(sketchAccuracy);
+		output.writeInt(sketchBins);
+		output.writeInt(buckets.size());
+		for (Bucket bucket : buckets.values()) {
+			output.writeLong(bucket.startMillis);
+			output.writeLong(bucket.endMillis);
+			output.writeLong(bucket.count);
+			output.writeDouble(bucket.sum);
+			output.writeDouble(bucket.max);
+			output.writeDouble(bucket.min);
+			if (bucket.sketch != null) {
+				bucket.sketch.writeTo(output);
+			}
+		}
+	}
+
+	public byte[] toByteArray() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + buckets.size() * 48);
+		try {
+			writeTo(new DataOutputStream(bytes));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static PartialAggregate readFrom(final DataInput input) throws IOException {
+		if (input.readInt() != MAGIC) {
+			throw new IOException("Not a partial aggregate");
+		}
+		final int version = input.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported partial aggregate version " + version);
+		}
+		final double sketchAccuracy = input.readDouble();
+		final int sketchBins = input.readInt();
+		final PartialAggregate aggregate = new PartialAggregate(sketchAccuracy, sketchBins);
+		final int size = input.readInt();
+		for (int i = 0; i < size; i++) {
+			final Bucket bucket = aggregate.bucketAt(input.readLong(), input.readLong());
+			bucket.add(input.readLong(), input.readDouble(), input.readDouble(), input.readDouble());
+			if (bucket.sketch != null) {
+				bucket.sketch.mergeFrom(input);
+			}
+		}
+		return aggregate;
+	}
+
+	private Bucket bucketAt(final long startMillis, final long endMillis) {
+		Bucket bucket = buckets.get(startMillis);
+		if (bucket == null) {
+			bucket = new Bucket(startMillis, endMillis, sketchAccuracy > 0 ? new QuantileSketch(sketchAccuracy, sketchBins) : null);
+			buckets.put(startMillis, bucket);
+		} else {
+			bucket.endMillis = Math.max(bucket.endMillis, endMillis);
+		}
+		return bucket;
+	}
+
+	private static double clamp(final double value, final double min, final double max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	private static final class Bucket {
+		private final long startMillis;
+		private long endMillis;
+		private long count;
+		private double sum;
+		private double max = Double.NEGATIVE_INFINITY;
+		private double min = Double.POSITIVE_INFINITY;
+		private final QuantileSketch sketch;
+
+		private Bucket(final long startMillis, final long endMillis, final QuantileSketch sketch) {
+			this.startMillis = startMillis;
+			this.endMillis = endMillis;
+			this.sketch = sketch;
+		}
+
+		private void add(final long count, final double sum, final double max, final double min) {
+			this.count += count;
+			this.sum += sum;
+			this.max = Math.max(this.max, max);
+			this.min = Math.min(this.min, min);
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package com.maxim.service.engine;
+
+public interface PartialAggregateSupport {
+	/**
+	 * @return the buckets holding transactions not older than the threshold, for merging with other nodes
+	 */
+	PartialAggregate getPartialAggregate(long thresholdMillis);
+}
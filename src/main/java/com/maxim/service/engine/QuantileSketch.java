@@ -0,0 +1,263 @@
+package com.maxim.service.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Mergeable quantile sketch with relative-error guarantees (DDSketch style): values are counted in
+ * logarithmically sized bins, so any quantile is answered within {@code relativeAccuracy} of a value
+ * that was recorded. Memory is bounded by {@code maxBins} per sign; beyond that the smallest magnitudes
+ * are collapsed together, which only degrades the lowest quantiles.
+ */
+public class QuantileSketch {
+	private static final double MIN_INDEXABLE_VALUE = 1e-9;
+
+	private final double relativeAccuracy;
+	private final double gamma;
+	private final double inverseLogGamma;
+	private final Store positive;
+	private final Store negative;
+	private long zeroCount;
+
+	public QuantileSketch(final double relativeAccuracy, final int maxBins) {
+		if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+			throw new IllegalArgumentException("Relative accuracy must be between 0 and 1 exclusive: " + relativeAccuracy);
+		}
+		if (maxBins < 1) {
+			throw new IllegalArgumentException("Maximum number of bins must be positive: " + maxBins);
+		}
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.inverseLogGamma = 1 / Math.log(gamma);
+		this.positive = new Store(maxBins);
+		this.negative = new Store(maxBins);
+	}
+
+	public void add(final double value) {
+		if (value > MIN_INDEXABLE_VALUE) {
+			positive.add(indexOf(value), 1);
+		} else if (value < -MIN_INDEXABLE_VALUE) {
+			negative.add(indexOf(-value), 1);
+		} else {
+			zeroCount++;
+		}
+	}
+
+	public void merge(final QuantileSketch other) {
+		if (other.gamma != gamma) {
+			throw new IllegalArgumentException("Cannot merge sketches of different accuracy: " + other.relativeAccuracy + " into " + relativeAccuracy);
+		}
+		positive.merge(other.positive);
+		negative.merge(other.negative);
+		zeroCount += other.zeroCount;
+	}
+
+	public double getValueAtQuantile(final double quantile) {
+		if (quantile < 0 || quantile > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+		}
+		final long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+
+		final long rank = (long) (quantile * (count - 1));
+		if (rank < negative.count) {
+			// Most negative values come first, i.e. the highest negative bins
+			return -valueOf(negative.indexAtReversedRank(rank));
+		}
+		if (rank < negative.count + zeroCount) {
+			return 0;
+		}
+		return valueOf(positive.indexAtRank(rank - negative.count - zeroCount));
+	}
+
+	public long getCount() {
+		return positive.count + negative.count + zeroCount;
+	}
+
+	public void clear() {
+		positive.clear();
+		negative.clear();
+		zeroCount = 0;
+	}
+
+	public void writeTo(final DataOutput output) throws IOException {
+		output.writeDouble(relativeAccuracy);
+		output.writeLong(zeroCount);
+		positive.writeTo(output);
+		negative.writeTo(output);
+	}
+
+	public void mergeFrom(final DataInput input) throws IOException {
+		final double accuracy = input.readDouble();
+		if (accuracy != relativeAccuracy) {
+			throw new IOException("Cannot merge serialized sketch of accuracy " + accuracy + " into " + relativeAccuracy);
+		}
+		zeroCount += input.readLong();
+		positive.mergeFrom(input);
+		negative.mergeFrom(input);
+	}
+
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	public long getFootprintBytes() {
+		// Object headers and fields of the sketch and its two stores, plus the bin arrays
+		return 48 + 2 * 40 + positive.footprintBytes() + negative.footprintBytes();
+	}
+
+	private int indexOf(final double value) {
+		return (int) Math.ceil(Math.log(value) * inverseLogGamma);
+	}
+
+	private double valueOf(final int index) {
+		return 2 * Math.pow(gamma, index) / (gamma + 1);
+	}
+
+	private static final class Store {
+		private static final int INITIAL_BINS = 32;
+		private static final long[] NO_BINS = new long[0];
+
+		private final int maxBins;
+		private long[] bins = NO_BINS;
+		private int offset;
+		private int minIndex;
+		private int maxIndex;
+		private long count;
+
+		private Store(final int maxBins) {
+			this.maxBins = maxBins;
+		}
+
+		private void add(int index, final long n) {
+			if (count == 0) {
+				ensureCovered(index, index);
+				minIndex = index;
+				maxIndex = index;
+			} else if (index < minIndex || index > maxIndex) {
+				final int newMax = Math.max(maxIndex, index);
+				final int newMin = Math.max(Math.min(minIndex, index), newMax - maxBins + 1);
+				collapseBelow(newMin);
+				ensureCovered(newMin, newMax);
+				minIndex = Math.min(minIndex, newMin);
+				maxIndex = newMax;
+				index = Math.max(index, newMin);
+			}
+			bins[index - offset] += n;
+			count += n;
+		}
+
+		private void merge(final Store other) {
+			if (other.count == 0) {
+				return;
+			}
+			for (int index = other.minIndex; index <= other.maxIndex; index++) {
+				final long n = other.bins[index - other.offset];
+				if (n != 0) {
+					add(index, n);
+				}
+			}
+		}
+
+		private void writeTo(final DataOutput output) throws IOException {
+			output.writeLong(count);
+			if (count == 0) {
+				return;
+			}
+			output.writeInt(minIndex);
+			output.writeInt(maxIndex);
+			for (int index = minIndex; index <= maxIndex; index++) {
+				output.writeLong(bins[index - offset]);
+			}
+		}
+
+		private void mergeFrom(final DataInput input) throws IOException {
+			if (input.readLong() == 0) {
+				return;
+			}
+			final int from = input.readInt();
+			final int to = input.readInt();
+			for (int index = from; index <= to; index++) {
+				final long n = input.readLong();
+				if (n != 0) {
+					add(index, n);
+				}
+			}
+		}
+
+		private int indexAtRank(final long rank) {
+			long seen = 0;
+			for (int index = minIndex; index <= maxIndex; index++) {
+				seen += bins[index - offset];
+				if (seen > rank) {
+					return index;
+				}
+			}
+			return maxIndex;
+		}
+
+		private int indexAtReversedRank(final long rank) {
+			long seen = 0;
+			for (int index = maxIndex; index >= minIndex; index--) {
+				seen += bins[index - offset];
+				if (seen > rank) {
+					return index;
+				}
+			}
+			return minIndex;
+		}
+
+		private void collapseBelow(final int newMin) {
+			if (newMin <= minIndex) {
+				return;
+			}
+			long collapsed = 0;
+			for (int index = minIndex; index <= Math.min(maxIndex, newMin - 1); index++) {
+				collapsed += bins[index - offset];
+				bins[index - offset] = 0;
+			}
+			ensureCovered(newMin, Math.max(newMin, maxIndex));
+			bins[newMin - offset] += collapsed;
+			minIndex = newMin;
+			maxIndex = Math.max(maxIndex, newMin);
+		}
+
+		private void ensureCovered(final int low, final int high) {
+			if (bins.length > 0 && low >= offset && high < offset + bins.length) {
+				return;
+			}
+			final int needed = high - low + 1;
+			if (count == 0 && needed <= bins.length) {
+				// Cleared bins are all zero, so a reused store only has to move its window
+				offset = low - (bins.length - needed) / 2;
+				return;
+			}
+			final int length = Math.max(needed, Math.min(maxBins, Math.max(INITIAL_BINS, bins.length * 2)));
+			final int newOffset = low - (length - needed) / 2;
+			final long[] newBins = new long[length];
+			if (count > 0) {
+				for (int index = Math.max(minIndex, newOffset); index <= Math.min(maxIndex, newOffset + length - 1); index++) {
+					newBins[index - newOffset] = bins[index - offset];
+				}
+			}
+			bins = newBins;
+			offset = newOffset;
+		}
+
+		private void clear() {
+			if (count > 0) {
+				for (int index = minIndex; index <= maxIndex; index++) {
+					bins[index - offset] = 0;
+				}
+			}
+			count = 0;
+		}
+
+		private long footprintBytes() {
+			return bins.length == 0 ? 0 : 16 + 8L * bins.length;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.maxim.service.engine;
+
+/**
+ * Tracks the maximum (or minimum) amount of a time window as a monotonic deque kept in primitive arrays.
+ * An entry is dropped as soon as a newer-or-equal entry with a better-or-equal amount exists, because it can
+ * never become the extreme again; what remains is ordered by timestamp with strictly worsening amounts.
+ * In-order records and evictions are amortized O(1), out-of-order records cost a binary search plus a shift
+ * of the entries newer than them.
+ */
+public class SlidingExtremum {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final boolean maximum;
+	private long[] timestamps = new long[INITIAL_CAPACITY];
+	private double[] amounts = new double[INITIAL_CAPACITY];
+	private int head;
+	private int tail;
+
+	private SlidingExtremum(final boolean maximum) {
+		this.maximum = maximum;
+	}
+
+	public static SlidingExtremum max() {
+		return new SlidingExtremum(true);
+	}
+
+	public static SlidingExtremum min() {
+		return new SlidingExtremum(false);
+	}
+
+	public void record(final long timestampMillis, final double amount) {
+		final int position = firstNotOlderThan(timestampMillis);
+		if (position < tail && isAtLeastAsGood(amounts[position], amount)) {
+			return;
+		}
+
+		// Entries older than the new one and no better than it are contiguous just before the insert position
+		int from = position;
+		while (from > head && isAtLeastAsGood(amount, amounts[from - 1])) {
+			from--;
+		}
+		final int to = position < tail && timestamps[position] == timestampMillis ? position + 1 : position;
+
+		replace(from, to, timestampMillis, amount);
+	}
+
+	public void evictOlderThan(final long thresholdMillis) {
+		while (head < tail && timestamps[head] < thresholdMillis) {
+			head++;
+		}
+		if (head == tail) {
+			head = 0;
+			tail = 0;
+		}
+	}
+
+	public boolean isEmpty() {
+		return head == tail;
+	}
+
+	public double get() {
+		return isEmpty() ? 0 : amounts[head];
+	}
+
+	public int size() {
+		return tail - head;
+	}
+
+	private boolean isAtLeastAsGood(final double candidate, final double other) {
+		return maximum ? candidate >= other : candidate <= other;
+	}
+
+	private int firstNotOlderThan(final long timestampMillis) {
+		if (tail == head || timestamps[tail - 1] < timestampMillis) {
+			return tail;
+		}
+		int low = head;
+		int high = tail - 1;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (timestamps[middle] < timestampMillis) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private void replace(int from, int to, final long timestampMillis, final double amount) {
+		if (from == to && tail == timestamps.length) {
+			// Grow unless compaction alone frees at least half of the arrays, which keeps both amortized O(1)
+			final int size = tail - head;
+			final int capacity = head < timestamps.length / 2 ? timestamps.length * 2 : timestamps.length;
+			final long[] newTimestamps = capacity == timestamps.length ? timestamps : new long[capacity];
+			final double[] newAmounts = capacity == amounts.length ? amounts : new double[capacity];
+			System.arraycopy(timestamps, head, newTimestamps, 0, size);
+			System.arraycopy(amounts, head, newAmounts, 0, size);
+			timestamps = newTimestamps;
+			amounts = newAmounts;
+			from -= head;
+			to -= head;
+			tail = size;
+			head = 0;
+		}
+
+		final int newer = tail - to;
+		if (newer > 0 && to != from + 1) {
+			System.arraycopy(timestamps, to, timestamps, from + 1, newer);
+			System.arraycopy(amounts, to, amounts, from + 1, newer);
+		}
+		timestamps[from] = timestampMillis;
+		amounts[from] = amount;
+		tail = from + 1 + newer;
+	}
+}
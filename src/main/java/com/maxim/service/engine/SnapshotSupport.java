@@ -0,0 +1,11 @@
+package com.maxim.service.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public interface SnapshotSupport {
+	void writeSnapshot(DataOutput output) throws IOException;
+
+	void readSnapshot(DataInput input) throws IOException;
+}
@@ -0,0 +1,213 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import com.maxim.model.TransactionBatch;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Exact statistics over every retained transaction. Partial aggregates for other nodes group the transactions
+ * into buckets of {@value #PARTIAL_RESOLUTION_MILLIS}ms, so a merged statistic is only as exact as the bucket engine.
+ * <p>
+ * The sum is a {@code double} that every eviction subtracts from again, so rounding errors accumulate over time.
+ * With a {@link FixedPoint} it is kept as a scaled {@code long} instead and stays exact.
+ */
+public class SortedStatisticEngine implements StatisticEngine, PartialAggregateSupport {
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final long PARTIAL_RESOLUTION_MILLIS = 1000;
+
+	private final SlidingExtremum max = SlidingExtremum.max();
+	private final SlidingExtremum min = SlidingExtremum.min();
+	private final TransactionRing records;
+
+	private final TimedLock reentrantLock = new TimedLock();
+
+	// Null keeps the sum as a double
+	private final FixedPoint fixedPoint;
+
+	private long count;
+	private double sum;
+	private long scaledSum;
+	// Built by the first read after a change rather than by every write; null while stale
+	private volatile Statistic latestStatistic = new Statistic(0, 0, 0, 0, 0);
+	private final TransactionRing.EntryConsumer evict = this::evicted;
+	// Lets an eviction with nothing to evict return without the lock, so evicting before every read and write is cheap
+	private volatile long oldestRetainedMillis = Long.MAX_VALUE;
+	private EvictionListener evictionListener = EvictionListener.NONE;
+
+	public SortedStatisticEngine() {
+		this(TransactionRing.onHeap(INITIAL_CAPACITY));
+	}
+
+	public SortedStatisticEngine(final TransactionRing records) {
+		this(records, null);
+	}
+
+	public SortedStatisticEngine(final TransactionRing records, final FixedPoint fixedPoint) {
+		this.records = records;
+		this.fixedPoint = fixedPoint;
+	}
+
+	@Override
+	public void record(final long timestampMillis, final double amount) {
+		try {
+			reentrantLock.lock();
+
+			add(timestampMillis, amount);
+
+			latestStatistic = null;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public void recordAll(final TransactionBatch batch) {
+		try {
+			reentrantLock.lock();
+
+			// Set first, an overflow may stop the batch half way
+			latestStatistic = null;
+			for (int i = 0; i < batch.size(); i++) {
+				add(batch.getTimestamp(i), batch.getAmount(i));
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public long evictOlderThan(final long thresholdMillis) {
+		if (thresholdMillis <= oldestRetainedMillis) {
+			return 0;
+		}
+		try {
+			reentrantLock.lock();
+
+			final int evicted = records.evictOlderThan(thresholdMillis, evict);
+			if (evicted > 0) {
+				max.evictOlderThan(thresholdMillis);
+				min.evictOlderThan(thresholdMillis);
+				latestStatistic = null;
+			}
+			oldestRetainedMillis = records.oldestTimestamp();
+			return evicted;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public void setLockWaitListener(final LongConsumer listener) {
+		reentrantLock.setWaitListener(listener);
+	}
+
+	@Override
+	public void setEvictionListener(final EvictionListener listener) {
+		try {
+			reentrantLock.lock();
+
+			evictionListener = listener;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	@Override
+	public Statistic getStatistic() {
+		final Statistic statistic = latestStatistic;
+		if (statistic != null) {
+			return statistic;
+		}
+		try {
+			reentrantLock.lock();
+
+			if (latestStatistic == null) {
+				final double total = getSum();
+				latestStatistic = new Statistic(total, max.get(), min.get(), count == 0 ? 0 : total / count, count);
+			}
+			return latestStatistic;
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	/**
+	 * Sums the transactions into primitive per-bucket columns while holding the lock and builds the aggregate from
+	 * them after releasing it, so a read costs writers one pass over the ring and no allocation per transaction.
+	 */
+	@Override
+	public PartialAggregate getPartialAggregate(final long thresholdMillis) {
+		final long firstBucket;
+		final long[] counts;
+		final double[] sums;
+		final double[] maxima;
+		final double[] minima;
+		try {
+			reentrantLock.lock();
+
+			final long oldest = Math.max(thresholdMillis, records.oldestTimestamp());
+			final long newest = records.newestTimestamp();
+			if (newest < oldest) {
+				return new PartialAggregate();
+			}
+			firstBucket = Math.floorDiv(oldest, PARTIAL_RESOLUTION_MILLIS);
+			final int buckets = (int) (Math.floorDiv(newest, PARTIAL_RESOLUTION_MILLIS) - firstBucket + 1);
+			counts = new long[buckets];
+			sums = new double[buckets];
+			maxima = new double[buckets];
+			minima = new double[buckets];
+			Arrays.fill(maxima, Double.NEGATIVE_INFINITY);
+			Arrays.fill(minima, Double.POSITIVE_INFINITY);
+			records.forEach((timestampMillis, amount) -> {
+				if (timestampMillis >= thresholdMillis) {
+					final int bucket = (int) (Math.floorDiv(timestampMillis, PARTIAL_RESOLUTION_MILLIS) - firstBucket);
+					counts[bucket]++;
+					sums[bucket] += amount;
+					maxima[bucket] = Math.max(maxima[bucket], amount);
+					minima[bucket] = Math.min(minima[bucket], amount);
+				}
+			});
+		} finally {
+			reentrantLock.unlock();
+		}
+
+		final PartialAggregate aggregate = new PartialAggregate();
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			final long start = (firstBucket + bucket) * PARTIAL_RESOLUTION_MILLIS;
+			aggregate.add(start, start + PARTIAL_RESOLUTION_MILLIS, counts[bucket], sums[bucket], maxima[bucket], minima[bucket], null);
+		}
+		return aggregate;
+	}
+
+	private void add(final long timestampMillis, final double amount) {
+		if (fixedPoint == null) {
+			sum += amount;
+		} else {
+			scaledSum = fixedPoint.add(scaledSum, fixedPoint.toScaled(amount));
+		}
+		count++;
+		max.record(timestampMillis, amount);
+		min.record(timestampMillis, amount);
+
+		records.add(timestampMillis, amount);
+		if (timestampMillis < oldestRetainedMillis) {
+			oldestRetainedMillis = timestampMillis;
+		}
+	}
+
+	private void evicted(final long timestampMillis, final double amount) {
+		count--;
+		if (fixedPoint == null) {
+			sum -= amount;
+		} else {
+			scaledSum -= fixedPoint.toScaled(amount);
+		}
+		evictionListener.evicted(timestampMillis, 1, amount, amount, amount);
+	}
+
+	private double getSum() {
+		return fixedPoint == null ? sum : fixedPoint.toDouble(scaledSum);
+	}
+}
@@ -0,0 +1,35 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import com.maxim.model.TransactionBatch;
+
+import java.util.function.LongConsumer;
+
+public interface StatisticEngine {
+	void record(long timestampMillis, double amount);
+
+	default void recordAll(final TransactionBatch batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			record(batch.getTimestamp(i), batch.getAmount(i));
+		}
+	}
+
+	/**
+	 * @return number of transactions that left the window, counted while evicting so callers need not compare statistics
+	 */
+	long evictOlderThan(long thresholdMillis);
+
+	Statistic getStatistic();
+
+	/**
+	 * Reports, in nanoseconds, every wait for a contended lock inside the engine. Lock-free engines never call it.
+	 */
+	default void setLockWaitListener(final LongConsumer listener) {
+	}
+
+	/**
+	 * Reports everything that leaves the engine for good. Called while the engine holds its lock, so it must be cheap.
+	 */
+	default void setEvictionListener(final EvictionListener listener) {
+	}
+}
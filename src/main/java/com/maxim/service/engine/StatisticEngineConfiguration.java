@@ -0,0 +1,56 @@
+package com.maxim.service.engine;
+
+import com.maxim.service.WindowFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class StatisticEngineConfiguration {
+	public static final Duration WINDOW = Duration.ofSeconds(60);
+
+	private static final int SORTED_INITIAL_CAPACITY = 1024;
+
+	@Bean
+	public StatisticEngine statisticEngine(@Value("${transaction.engine:sorted}") final String engine,
+	                                       @Value("${transaction.bucket.resolution-millis:1000}") final long resolutionMillis,
+	                                       @Value("${transaction.bucket.rollup-factor:10}") final int rollupFactor,
+	                                       @Value("${transaction.windows:60s}") final String windows,
+	                                       @Value("${transaction.percentiles.relative-accuracy:0}") final double percentileAccuracy,
+	                                       @Value("${transaction.striped.stripes:0}") final int stripes,
+	                                       @Value("${transaction.sorted.off-heap:false}") final boolean offHeap,
+	                                       @Value("${transaction.fixed-point.decimals:-1}") final int fixedPointDecimals,
+	                                       @Value("${transaction.future.tolerance-millis:10000}") final long futureToleranceMillis) {
+		final FixedPoint fixedPoint = fixedPointDecimals < 0 ? null : new FixedPoint(fixedPointDecimals);
+		switch (engine) {
+			case "sorted":
+				return new SortedStatisticEngine(offHeap ? TransactionRing.offHeap(SORTED_INITIAL_CAPACITY) : TransactionRing.onHeap(SORTED_INITIAL_CAPACITY), fixedPoint);
+			case "bucket":
+				final long[] windowMillis = WindowFormat.parseList(windows).stream().mapToLong(Duration::toMillis).toArray();
+				return new BucketStatisticEngine(WINDOW.toMillis(), resolutionMillis, rollupFactor, windowMillis, percentileAccuracy, futureToleranceMillis);
+			case "striped":
+				return new StripedStatisticEngine(WINDOW.toMillis(), resolutionMillis, stripes > 0 ? stripes : StripedStatisticEngine.defaultStripes(), fixedPoint,
+						futureToleranceMillis);
+			default:
+				throw new IllegalArgumentException("Unknown transaction.engine '" + engine + "', expected one of: sorted, bucket, striped");
+		}
+	}
+
+	@Bean
+	public TransactionHistory transactionHistory(final StatisticEngine statisticEngine,
+	                                             @Value("${transaction.history.minutes:1440}") final int minutes,
+	                                             @Value("${transaction.history.hours:24}") final int hours) {
+		final TransactionHistory transactionHistory = new TransactionHistory(minutes, hours);
+		statisticEngine.setEvictionListener(transactionHistory);
+		return transactionHistory;
+	}
+
+	@Bean
+	public KeyedStatisticStore keyedStatisticStore(@Value("${transaction.keyed.resolution-millis:1000}") final long resolutionMillis,
+	                                               @Value("${transaction.keyed.segments:16}") final int segments,
+	                                               @Value("${transaction.future.tolerance-millis:10000}") final long futureToleranceMillis) {
+		return new KeyedStatisticStore(WINDOW.toMillis(), resolutionMillis, segments, futureToleranceMillis);
+	}
+}
@@ -0,0 +1,300 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free variant of the bucket ring: every writer thread is mapped onto one of several stripes and updates
+ * its bucket with CAS, readers merge all stripes. Reads are not atomic across fields, so a statistic taken
+ * during writes is approximate, but a counted transaction is always reflected in its sum, min and max.
+ * <p>
+ * The sum of a bucket is a {@code double} updated with a CAS loop. With a {@link FixedPoint} it is a scaled
+ * {@code long} that is exact and updated with a single atomic add, so concurrent writers never retry. Each bucket
+ * then holds at most {@code Long.MAX_VALUE / (buckets * stripes)}, so the merged sum always fits and only a write
+ * past that limit fails, never a read.
+ */
+public class StripedStatisticEngine implements StatisticEngine, PartialAggregateSupport {
+	private static final long EMPTY = Long.MIN_VALUE;
+	private static final long RESETTING = Long.MIN_VALUE + 1;
+
+	private static final int EPOCH = 0;
+	private static final int COUNT = 1;
+	private static final int SUM = 2;
+	private static final int MAX = 3;
+	private static final int MIN = 4;
+	// Writers between claiming a bucket and finishing their update; a bucket is only reset once none are left
+	static final int WRITERS = 5;
+	static final int FIELDS = 6;
+
+	private static final long NO_MAX = Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+	private static final long NO_MIN = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+	private final long resolutionMillis;
+	private final int slots;
+	private final AtomicLongArray[] stripes;
+	private final int stripeMask;
+	// Null keeps sums as double bits
+	private final FixedPoint fixedPoint;
+	private final long maxScaledSlotSum;
+
+	private final AtomicLong oldestLiveEpoch = new AtomicLong(EMPTY);
+	private volatile EvictionListener evictionListener = EvictionListener.NONE;
+
+	public StripedStatisticEngine(final long windowMillis, final long resolutionMillis, final int stripes) {
+		this(windowMillis, resolutionMillis, stripes, null);
+	}
+
+	public StripedStatisticEngine(final long windowMillis, final long resolutionMillis, final int stripes, final FixedPoint fixedPoint) {
+		this(windowMillis, resolutionMillis, stripes, fixedPoint, 0);
+	}
+
+	/**
+	 * @param toleranceMillis how far ahead of the clock a transaction may be dated and still be recorded; the ring keeps
+	 *                        buckets for that much more time, so such a transaction never takes over a bucket still in
+	 *                        the window
+	 */
+	public StripedStatisticEngine(final long windowMillis, final long resolutionMillis, final int stripes, final FixedPoint fixedPoint,
+	                              final long toleranceMillis) {
+		if (resolutionMillis <= 0 || windowMillis < resolutionMillis) {
+			throw new IllegalArgumentException("Resolution must be positive and not exceed the window: window=" + windowMillis + "ms, resolution=" + resolutionMillis + "ms");
+		}
+		if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+			throw new IllegalArgumentException("Number of stripes must be a positive power of two: " + stripes);
+		}
+		if (toleranceMillis < 0) {
+			throw new IllegalArgumentException("Future tolerance must not be negative: " + toleranceMillis + "ms");
+		}
+		this.resolutionMillis = resolutionMillis;
+		this.slots = (int) ((windowMillis + toleranceMillis + resolutionMillis - 1) / resolutionMillis) + 1;
+		this.stripes = new AtomicLongArray[stripes];
+		this.stripeMask = stripes - 1;
+		this.fixedPoint = fixedPoint;
+		this.maxScaledSlotSum = Long.MAX_VALUE / ((long) slots * stripes);
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new AtomicLongArray(slots * FIELDS);
+			for (int slot = 0; slot < slots; slot++) {
+				this.stripes[i].set(slot * FIELDS + EPOCH, EMPTY);
+			}
+		}
+	}
+
+	public static int defaultStripes() {
+		return Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+	}
+
+	/**
+	 * A transaction whose bucket already left the window, because the window moved on after the caller checked its age
+	 * or its slot in the ring was taken over by a newer bucket, is dropped, as it would be evicted right away.
+	 */
+	@Override
+	public void record(final long timestampMillis, final double amount) {
+		final long scaledAmount = fixedPoint == null ? 0 : fixedPoint.toScaled(amount);
+		final long epoch = Math.floorDiv(timestampMillis, resolutionMillis);
+		final AtomicLongArray stripe = stripes[stripeOf(Thread.currentThread())];
+		final int base = (int) Math.floorMod(epoch, (long) slots) * FIELDS;
+
+		while (true) {
+			final long current = stripe.get(base + EPOCH);
+			if (current == epoch) {
+				// Registering before checking the epoch again means a concurrent reset either sees this writer or fails the check
+				stripe.incrementAndGet(base + WRITERS);
+				if (stripe.get(base + EPOCH) == epoch) {
+					break;
+				}
+				stripe.decrementAndGet(base + WRITERS);
+				continue;
+			}
+			if (epoch < oldestLiveEpoch.get() || (current != RESETTING && epoch < current)) {
+				return;
+			}
+			if (current == RESETTING) {
+				Thread.yield();
+			} else if (stripe.compareAndSet(base + EPOCH, current, RESETTING)) {
+				// Late writers may still register and back off until they see RESETTING, so the reset registers itself
+				// only once none are left, with a CAS that never overwrites their count
+				while (!stripe.compareAndSet(base + WRITERS, 0, 1)) {
+					Thread.yield();
+				}
+				resetting(stripe, base);
+				stripe.set(base + COUNT, 0);
+				stripe.set(base + SUM, 0);
+				stripe.set(base + MAX, NO_MAX);
+				stripe.set(base + MIN, NO_MIN);
+				stripe.set(base + EPOCH, epoch);
+				break;
+			}
+		}
+
+		try {
+			// Count goes last so a reader never sees a counted transaction missing from sum/min/max
+			if (fixedPoint == null) {
+				addDouble(stripe, base + SUM, amount);
+			} else {
+				final long previous = stripe.getAndAdd(base + SUM, scaledAmount);
+				final long result = previous + scaledAmount;
+				if (FixedPoint.overflows(previous, scaledAmount, result) || result > maxScaledSlotSum || result < -maxScaledSlotSum) {
+					stripe.getAndAdd(base + SUM, -scaledAmount);
+					throw new ArithmeticException("Sum " + fixedPoint.toDouble(previous) + " plus " + fixedPoint.toDouble(scaledAmount)
+							+ " exceeds the fixed-point limit of " + fixedPoint.toDouble(maxScaledSlotSum) + " per bucket and stripe");
+				}
+			}
+			accumulateMax(stripe, base + MAX, amount);
+			accumulateMin(stripe, base + MIN, amount);
+			stripe.incrementAndGet(base + COUNT);
+		} finally {
+			stripe.decrementAndGet(base + WRITERS);
+		}
+	}
+
+	/**
+	 * Called once a reset has registered as the only writer of a bucket and before it clears it; a hook for tests.
+	 */
+	void resetting(final AtomicLongArray stripe, final int base) {
+	}
+
+	/**
+	 * Buckets are only overwritten by later writes, so the ones falling out of the window are reported here. A bucket
+	 * is reused one resolution after it left the window; evicting less often than that loses it from the report.
+	 * Concurrent callers each report only the range their own advance of the watermark covered, so no bucket is
+	 * reported twice.
+	 */
+	@Override
+	public long evictOlderThan(final long thresholdMillis) {
+		final long epoch = Math.floorDiv(thresholdMillis, resolutionMillis);
+		long previous;
+		while (epoch > (previous = oldestLiveEpoch.get())) {
+			if (oldestLiveEpoch.compareAndSet(previous, epoch)) {
+				return evicted(previous, epoch);
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public void setEvictionListener(final EvictionListener listener) {
+		this.evictionListener = listener;
+	}
+
+	@Override
+	public Statistic getStatistic() {
+		final long liveEpoch = oldestLiveEpoch.get();
+		long count = 0;
+		double sum = 0;
+		long scaledSum = 0;
+		double max = Double.NEGATIVE_INFINITY;
+		double min = Double.POSITIVE_INFINITY;
+
+		for (AtomicLongArray stripe : stripes) {
+			for (int base = 0; base < slots * FIELDS; base += FIELDS) {
+				final long epoch = stripe.get(base + EPOCH);
+				if (epoch == EMPTY || epoch == RESETTING || epoch < liveEpoch) {
+					continue;
+				}
+				final long slotCount = stripe.get(base + COUNT);
+				final long slotSum = stripe.get(base + SUM);
+				final double slotMax = Double.longBitsToDouble(stripe.get(base + MAX));
+				final double slotMin = Double.longBitsToDouble(stripe.get(base + MIN));
+				if (slotCount == 0 || stripe.get(base + EPOCH) != epoch) {
+					continue;
+				}
+				count += slotCount;
+				if (fixedPoint == null) {
+					sum += Double.longBitsToDouble(slotSum);
+				} else {
+					scaledSum += slotSum;
+				}
+				max = Math.max(max, slotMax);
+				min = Math.min(min, slotMin);
+			}
+		}
+
+		if (count == 0) {
+			return new Statistic(0, 0, 0, 0, 0);
+		}
+		if (fixedPoint != null) {
+			sum = fixedPoint.toDouble(scaledSum);
+		}
+		return new Statistic(sum, max, min, sum / count, count);
+	}
+
+	@Override
+	public PartialAggregate getPartialAggregate(final long thresholdMillis) {
+		final long liveEpoch = Math.max(oldestLiveEpoch.get(), Math.floorDiv(thresholdMillis, resolutionMillis));
+		final PartialAggregate aggregate = new PartialAggregate();
+		for (AtomicLongArray stripe : stripes) {
+			for (int base = 0; base < slots * FIELDS; base += FIELDS) {
+				final long epoch = stripe.get(base + EPOCH);
+				if (epoch == EMPTY || epoch == RESETTING || epoch < liveEpoch) {
+					continue;
+				}
+				final long slotCount = stripe.get(base + COUNT);
+				final double slotSum = sumOf(stripe.get(base + SUM));
+				final double slotMax = Double.longBitsToDouble(stripe.get(base + MAX));
+				final double slotMin = Double.longBitsToDouble(stripe.get(base + MIN));
+				if (stripe.get(base + EPOCH) == epoch) {
+					aggregate.add(epoch * resolutionMillis, (epoch + 1) * resolutionMillis, slotCount, slotSum, slotMax, slotMin, null);
+				}
+			}
+		}
+		return aggregate;
+	}
+
+	/**
+	 * @return number of transactions in the buckets of {@code [fromEpoch, toEpoch)}, each reported to the listener
+	 */
+	private long evicted(final long fromEpoch, final long toEpoch) {
+		final EvictionListener listener = evictionListener;
+		long evicted = 0;
+		for (AtomicLongArray stripe : stripes) {
+			for (int base = 0; base < slots * FIELDS; base += FIELDS) {
+				final long epoch = stripe.get(base + EPOCH);
+				if (epoch == EMPTY || epoch == RESETTING || epoch < fromEpoch || epoch >= toEpoch) {
+					continue;
+				}
+				final long slotCount = stripe.get(base + COUNT);
+				evicted += slotCount;
+				if (slotCount > 0 && listener != EvictionListener.NONE) {
+					listener.evicted(epoch * resolutionMillis, slotCount, sumOf(stripe.get(base + SUM)),
+							Double.longBitsToDouble(stripe.get(base + MAX)), Double.longBitsToDouble(stripe.get(base + MIN)));
+				}
+			}
+		}
+		return evicted;
+	}
+
+	private double sumOf(final long bits) {
+		return fixedPoint == null ? Double.longBitsToDouble(bits) : fixedPoint.toDouble(bits);
+	}
+
+	private int stripeOf(final Thread thread) {
+		final long id = thread.getId();
+		return (int) (id ^ (id >>> 16)) & stripeMask;
+	}
+
+	private static void addDouble(final AtomicLongArray array, final int index, final double amount) {
+		long current;
+		do {
+			current = array.get(index);
+		} while (!array.compareAndSet(index, current, Double.doubleToRawLongBits(Double.longBitsToDouble(current) + amount)));
+	}
+
+	private static void accumulateMax(final AtomicLongArray array, final int index, final double amount) {
+		long current;
+		while (amount > Double.longBitsToDouble(current = array.get(index))) {
+			if (array.compareAndSet(index, current, Double.doubleToRawLongBits(amount))) {
+				return;
+			}
+		}
+	}
+
+	private static void accumulateMin(final AtomicLongArray array, final int index, final double amount) {
+		long current;
+		while (amount < Double.longBitsToDouble(current = array.get(index))) {
+			if (array.compareAndSet(index, current, Double.doubleToRawLongBits(amount))) {
+				return;
+			}
+		}
+	}
+}
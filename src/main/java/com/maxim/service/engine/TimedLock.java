@@ -0,0 +1,31 @@
+package com.maxim.service.engine;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * ReentrantLock reporting how long {@link #lock()} waited whenever it was contended. An uncontended acquisition
+ * costs one extra {@code tryLock} and reads no clock.
+ */
+class TimedLock extends ReentrantLock {
+	private volatile LongConsumer waitListener;
+
+	void setWaitListener(final LongConsumer waitListener) {
+		this.waitListener = waitListener;
+	}
+
+	@Override
+	public void lock() {
+		if (tryLock()) {
+			return;
+		}
+		final LongConsumer listener = waitListener;
+		if (listener == null) {
+			super.lock();
+			return;
+		}
+		final long start = System.nanoTime();
+		super.lock();
+		listener.accept(System.nanoTime() - start);
+	}
+}
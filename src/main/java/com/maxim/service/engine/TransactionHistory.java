@@ -0,0 +1,129 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import com.maxim.model.StatisticHistory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps what the engine evicts from its 60 second window as per-minute and per-hour sum/count/min/max, each in a
+ * fixed {@link BucketRing}. Memory is 40 bytes per bucket whatever the traffic: the default day of minutes and
+ * hours is 1441 + 25 buckets, about 57KB. Every eviction adds to one bucket of each ring, so its cost stays constant.
+ * <p>
+ * The engine reports at its own granularity: the sorted engine by transaction, the bucket and striped engines by
+ * bucket, attributed to the minute and hour the bucket starts in. The bucket engine reports a bucket only once no
+ * configured window holds it any longer, so history starts where the longest window ends.
+ */
+public class TransactionHistory implements EvictionListener {
+	public static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	public static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static final int MAX_POINTS = 10_000;
+
+	private final BucketRing minutes;
+	private final BucketRing hours;
+
+	private final ReentrantLock reentrantLock = new ReentrantLock();
+
+	private long latestMillis = Long.MIN_VALUE;
+
+	public TransactionHistory(final int retainedMinutes, final int retainedHours) {
+		if (retainedMinutes <= 0 || retainedHours <= 0) {
+			throw new IllegalArgumentException("History must retain at least one minute and one hour: minutes=" + retainedMinutes + ", hours=" + retainedHours);
+		}
+		// One extra bucket holds the minute or hour still filling up
+		this.minutes = new BucketRing(MINUTE_MILLIS, retainedMinutes + 1);
+		this.hours = new BucketRing(HOUR_MILLIS, retainedHours + 1);
+	}
+
+	@Override
+	public void evicted(final long timestampMillis, final long count, final double sum, final double max, final double min) {
+		try {
+			reentrantLock.lock();
+
+			latestMillis = Math.max(latestMillis, timestampMillis);
+			add(minutes, timestampMillis, count, sum, max, min);
+			add(hours, timestampMillis, count, sum, max, min);
+		} finally {
+			reentrantLock.unlock();
+		}
+	}
+
+	/**
+	 * Statistics of every step between the two timestamps, steps aligned to multiples of the step since the epoch.
+	 * Whole hours are answered from the hour buckets, anything else from the minute buckets; steps older than those
+	 * buckets reach back come out empty.
+	 *
+	 * @param stepMillis a positive multiple of a minute
+	 * @throws IllegalArgumentException if the step is not a multiple of a minute, the range is empty or it would
+	 *                                  take more than {@value #MAX_POINTS} steps
+	 */
+	public StatisticHistory getHistory(final long fromMillis, final long toMillis, final long stepMillis) {
+		if (stepMillis <= 0 || stepMillis % MINUTE_MILLIS != 0) {
+			throw new IllegalArgumentException("Step must be a positive number of minutes: " + stepMillis + "ms");
+		}
+		if (fromMillis >= toMillis) {
+			throw new IllegalArgumentException("Range must end after it starts: from=" + fromMillis + ", to=" + toMillis);
+		}
+		final long alignedFrom = Math.floorDiv(fromMillis, stepMillis) * stepMillis;
+		final long points = (toMillis - alignedFrom + stepMillis - 1) / stepMillis;
+		if (points > MAX_POINTS) {
+			throw new IllegalArgumentException("Range of " + points + " steps exceeds " + MAX_POINTS + ", narrow it or use a longer step");
+		}
+		final BucketRing ring = stepMillis % HOUR_MILLIS == 0 ? hours : minutes;
+
+		final long[] counts = new long[(int) points];
+		final double[] sums = new double[(int) points];
+		final double[] maxes = new double[(int) points];
+		final double[] mins = new double[(int) points];
+		Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+		Arrays.fill(mins, Double.POSITIVE_INFINITY);
+		try {
+			reentrantLock.lock();
+
+			// A slot nothing was added to for a whole turn of the ring still holds an expired bucket
+			final long oldestEpoch = ring.epochOf(latestMillis) - ring.size() + 1;
+			for (int slot = 0; slot < ring.size(); slot++) {
+				if (ring.epochs[slot] == BucketRing.EMPTY || ring.epochs[slot] < oldestEpoch) {
+					continue;
+				}
+				final long start = ring.epochs[slot] * ring.resolutionMillis;
+				if (start < alignedFrom || start >= toMillis) {
+					continue;
+				}
+				final int point = (int) ((start - alignedFrom) / stepMillis);
+				counts[point] += ring.counts[slot];
+				sums[point] += ring.sums[slot];
+				maxes[point] = Math.max(maxes[point], ring.maxes[slot]);
+				mins[point] = Math.min(mins[point], ring.mins[slot]);
+			}
+		} finally {
+			reentrantLock.unlock();
+		}
+
+		final List<Statistic> statistics = new ArrayList<>((int) points);
+		for (int point = 0; point < points; point++) {
+			statistics.add(counts[point] == 0
+					? new Statistic(0, 0, 0, 0, 0)
+					: new Statistic(sums[point], maxes[point], mins[point], sums[point] / counts[point], counts[point]));
+		}
+		return new StatisticHistory(alignedFrom, stepMillis, statistics);
+	}
+
+	private static void add(final BucketRing ring, final long timestampMillis, final long count, final double sum, final double max, final double min) {
+		final long epoch = ring.epochOf(timestampMillis);
+		final int slot = ring.slotOf(epoch);
+		if (ring.epochs[slot] > epoch) {
+			// Older than anything the ring still holds
+			return;
+		}
+		if (ring.epochs[slot] != epoch) {
+			ring.reset(slot, epoch);
+		}
+		ring.add(slot, count, sum, max, min);
+	}
+}
@@ -0,0 +1,276 @@
+package com.maxim.service.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Retained transactions as two parallel columns, timestamps and amounts, in a power-of-two ring kept in time
+ * order: appending in order writes the tail, eviction advances the head. The columns live in primitive arrays or
+ * in one direct {@link ByteBuffer} outside the heap. A transaction arriving slightly out of order is inserted by
+ * shifting the few newer entries; one that would shift more than {@link #MAX_SHIFT} goes to a small primitive
+ * min-heap of late transactions instead, which eviction drains alongside the ring. The ring doubles when full and
+ * halves when a quarter full. Not thread-safe.
+ */
+public class TransactionRing {
+	public interface EntryConsumer {
+		void accept(long timestampMillis, double amount);
+	}
+
+	static final int MAX_SHIFT = 64;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private final int initialCapacity;
+	private final boolean offHeap;
+	private Columns columns;
+	private int mask;
+	private int head;
+	private int size;
+
+	private long[] lateTimestamps = new long[MIN_CAPACITY];
+	private double[] lateAmounts = new double[MIN_CAPACITY];
+	private int lateSize;
+
+	private TransactionRing(final int initialCapacity, final boolean offHeap) {
+		this.initialCapacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1);
+		this.offHeap = offHeap;
+		this.columns = newColumns(this.initialCapacity);
+		this.mask = this.initialCapacity - 1;
+	}
+
+	public static TransactionRing onHeap(final int initialCapacity) {
+		return new TransactionRing(initialCapacity, false);
+	}
+
+	public static TransactionRing offHeap(final int initialCapacity) {
+		return new TransactionRing(initialCapacity, true);
+	}
+
+	public void add(final long timestampMillis, final double amount) {
+		if (size == mask + 1) {
+			resize((mask + 1) * 2);
+		}
+		if (size == 0 || columns.timestamp((head + size - 1) & mask) <= timestampMillis) {
+			columns.set((head + size) & mask, timestampMillis, amount);
+			size++;
+			return;
+		}
+
+		int position = size - 1;
+		final int lowest = Math.max(0, size - MAX_SHIFT);
+		while (position > lowest && columns.timestamp((head + position - 1) & mask) > timestampMillis) {
+			position--;
+		}
+		if (position == lowest && lowest > 0 && columns.timestamp((head + position - 1) & mask) > timestampMillis) {
+			addLate(timestampMillis, amount);
+			return;
+		}
+		for (int i = size; i > position; i--) {
+			final int from = (head + i - 1) & mask;
+			columns.set((head + i) & mask, columns.timestamp(from), columns.amount(from));
+		}
+		columns.set((head + position) & mask, timestampMillis, amount);
+		size++;
+	}
+
+	/**
+	 * Removes every transaction older than {@code thresholdMillis}, handing each to {@code consumer}.
+	 *
+	 * @return number of transactions removed
+	 */
+	public int evictOlderThan(final long thresholdMillis, final EntryConsumer consumer) {
+		int evicted = 0;
+		while (size > 0 && columns.timestamp(head) < thresholdMillis) {
+			consumer.accept(columns.timestamp(head), columns.amount(head));
+			head = (head + 1) & mask;
+			size--;
+			evicted++;
+		}
+		while (lateSize > 0 && lateTimestamps[0] < thresholdMillis) {
+			consumer.accept(lateTimestamps[0], lateAmounts[0]);
+			removeLateHead();
+			evicted++;
+		}
+		if (size == 0) {
+			head = 0;
+		}
+		int capacity = mask + 1;
+		while (capacity > initialCapacity && size < capacity / 4) {
+			capacity /= 2;
+		}
+		if (capacity != mask + 1) {
+			resize(capacity);
+		}
+		return evicted;
+	}
+
+	/**
+	 * Visits the ring in time order, then the late transactions in no particular order.
+	 */
+	public void forEach(final EntryConsumer consumer) {
+		for (int i = 0; i < size; i++) {
+			final int slot = (head + i) & mask;
+			consumer.accept(columns.timestamp(slot), columns.amount(slot));
+		}
+		for (int i = 0; i < lateSize; i++) {
+			consumer.accept(lateTimestamps[i], lateAmounts[i]);
+		}
+	}
+
+	public int size() {
+		return size + lateSize;
+	}
+
+	/**
+	 * @return the oldest retained timestamp, or {@link Long#MAX_VALUE} if there is none
+	 */
+	public long oldestTimestamp() {
+		final long oldest = size > 0 ? columns.timestamp(head) : Long.MAX_VALUE;
+		return lateSize > 0 ? Math.min(oldest, lateTimestamps[0]) : oldest;
+	}
+
+	/**
+	 * @return the newest retained timestamp, or {@link Long#MIN_VALUE} if there is none
+	 */
+	public long newestTimestamp() {
+		long newest = size > 0 ? columns.timestamp((head + size - 1) & mask) : Long.MIN_VALUE;
+		for (int i = 0; i < lateSize; i++) {
+			newest = Math.max(newest, lateTimestamps[i]);
+		}
+		return newest;
+	}
+
+	int lateSize() {
+		return lateSize;
+	}
+
+	/**
+	 * @return bytes held by the columns, on or off heap, and the late heap
+	 */
+	public long getFootprintBytes() {
+		return (mask + 1) * 16L + lateTimestamps.length * 16L;
+	}
+
+	private void addLate(final long timestampMillis, final double amount) {
+		if (lateSize == lateTimestamps.length) {
+			lateTimestamps = Arrays.copyOf(lateTimestamps, lateSize * 2);
+			lateAmounts = Arrays.copyOf(lateAmounts, lateSize * 2);
+		}
+		int child = lateSize++;
+		while (child > 0) {
+			final int parent = (child - 1) / 2;
+			if (lateTimestamps[parent] <= timestampMillis) {
+				break;
+			}
+			lateTimestamps[child] = lateTimestamps[parent];
+			lateAmounts[child] = lateAmounts[parent];
+			child = parent;
+		}
+		lateTimestamps[child] = timestampMillis;
+		lateAmounts[child] = amount;
+	}
+
+	private void removeLateHead() {
+		final int last = --lateSize;
+		final long timestamp = lateTimestamps[last];
+		final double amount = lateAmounts[last];
+		int parent = 0;
+		while (true) {
+			int child = 2 * parent + 1;
+			if (child >= last) {
+				break;
+			}
+			if (child + 1 < last && lateTimestamps[child + 1] < lateTimestamps[child]) {
+				child++;
+			}
+			if (lateTimestamps[child] >= timestamp) {
+				break;
+			}
+			lateTimestamps[parent] = lateTimestamps[child];
+			lateAmounts[parent] = lateAmounts[child];
+			parent = child;
+		}
+		lateTimestamps[parent] = timestamp;
+		lateAmounts[parent] = amount;
+		if (lateTimestamps.length > MIN_CAPACITY && lateSize < lateTimestamps.length / 4) {
+			lateTimestamps = Arrays.copyOf(lateTimestamps, lateTimestamps.length / 2);
+			lateAmounts = Arrays.copyOf(lateAmounts, lateAmounts.length / 2);
+		}
+	}
+
+	private void resize(final int capacity) {
+		final Columns resized = newColumns(capacity);
+		for (int i = 0; i < size; i++) {
+			final int slot = (head + i) & mask;
+			resized.set(i, columns.timestamp(slot), columns.amount(slot));
+		}
+		columns = resized;
+		mask = capacity - 1;
+		head = 0;
+	}
+
+	private Columns newColumns(final int capacity) {
+		return offHeap ? new DirectColumns(capacity) : new ArrayColumns(capacity);
+	}
+
+	private interface Columns {
+		long timestamp(int slot);
+
+		double amount(int slot);
+
+		void set(int slot, long timestampMillis, double amount);
+	}
+
+	private static final class ArrayColumns implements Columns {
+		private final long[] timestamps;
+		private final double[] amounts;
+
+		private ArrayColumns(final int capacity) {
+			this.timestamps = new long[capacity];
+			this.amounts = new double[capacity];
+		}
+
+		@Override
+		public long timestamp(final int slot) {
+			return timestamps[slot];
+		}
+
+		@Override
+		public double amount(final int slot) {
+			return amounts[slot];
+		}
+
+		@Override
+		public void set(final int slot, final long timestampMillis, final double amount) {
+			timestamps[slot] = timestampMillis;
+			amounts[slot] = amount;
+		}
+	}
+
+	// Timestamps in the first half of the buffer, amounts in the second
+	private static final class DirectColumns implements Columns {
+		private final ByteBuffer buffer;
+		private final int amountsOffset;
+
+		private DirectColumns(final int capacity) {
+			this.buffer = ByteBuffer.allocateDirect(capacity * 16);
+			this.amountsOffset = capacity * 8;
+		}
+
+		@Override
+		public long timestamp(final int slot) {
+			return buffer.getLong(slot << 3);
+		}
+
+		@Override
+		public double amount(final int slot) {
+			return buffer.getDouble(amountsOffset + (slot << 3));
+		}
+
+		@Override
+		public void set(final int slot, final long timestampMillis, final double amount) {
+			buffer.putLong(slot << 3, timestampMillis);
+			buffer.putDouble(amountsOffset + (slot << 3), amount);
+		}
+	}
+}
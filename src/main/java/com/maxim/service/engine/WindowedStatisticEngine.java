@@ -0,0 +1,9 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+
+public interface WindowedStatisticEngine extends StatisticEngine {
+	boolean supportsWindow(long windowMillis);
+
+	Statistic getStatistic(long nowMillis, long windowMillis);
+}
@@ -0,0 +1,142 @@
+package com.maxim.stream;
+
+import com.maxim.dto.EncodedStatistic;
+import com.maxim.dto.StatisticEncoder;
+import com.maxim.service.TransactionService;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes the latest statistic to subscribers. Every tick reads the statistic once and, if it changed since the last
+ * tick, hands the same encoded event to every subscriber, so any number of writes between two ticks produce one
+ * event. Writers never touch the broadcaster.
+ * <p>
+ * Each subscriber holds at most one pending event. Events are sent from a small pool of sender threads, at most one
+ * send per subscriber at a time. A subscriber still busy with an earlier event when the next one arrives skips to
+ * the newest instead of queueing, so a slow client costs a bounded amount of memory and only ever falls behind
+ * itself. A client that blocks a sender thread for good delays the others until the write times out or fails.
+ */
+public class StatisticBroadcaster implements Closeable {
+	public interface Subscriber {
+		void send(EncodedStatistic statistic) throws Exception;
+
+		void close();
+	}
+
+	private final TransactionService transactionService;
+	private final StatisticEncoder statisticEncoder;
+	private final ExecutorService senders;
+	private final int maxSubscribers;
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+	private EncodedStatistic lastBroadcast;
+
+	public StatisticBroadcaster(final TransactionService transactionService, final StatisticEncoder statisticEncoder, final ExecutorService senders,
+	                            final int maxSubscribers) {
+		this.transactionService = transactionService;
+		this.statisticEncoder = statisticEncoder;
+		this.senders = senders;
+		this.maxSubscribers = maxSubscribers;
+	}
+
+	/**
+	 * Sends the current statistic right away, then every change.
+	 *
+	 * @return false if there are already {@code maxSubscribers} subscribers
+	 */
+	public boolean subscribe(final Subscriber subscriber) {
+		if (subscriptions.size() >= maxSubscribers) {
+			return false;
+		}
+		final Subscription subscription = new Subscription(subscriber);
+		subscriptions.add(subscription);
+		subscription.offer(statisticEncoder.encode(transactionService.getLatestStatistic()));
+		return true;
+	}
+
+	public void unsubscribe(final Subscriber subscriber) {
+		subscriptions.removeIf(subscription -> subscription.subscriber == subscriber);
+	}
+
+	@Scheduled(fixedRateString = "${transaction.stream.interval-millis:250}")
+	public synchronized void tick() {
+		final EncodedStatistic encoded = statisticEncoder.encode(transactionService.getLatestStatistic());
+		if (lastBroadcast != null && lastBroadcast.getEtag().equals(encoded.getEtag())) {
+			return;
+		}
+		lastBroadcast = encoded;
+		for (Subscription subscription : subscriptions) {
+			subscription.offer(encoded);
+		}
+	}
+
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	@Override
+	public void close() {
+		senders.shutdownNow();
+		for (Subscription subscription : subscriptions) {
+			subscription.subscriber.close();
+		}
+		subscriptions.clear();
+	}
+
+	private final class Subscription {
+		private final Subscriber subscriber;
+		private final AtomicReference<EncodedStatistic> pending = new AtomicReference<>();
+		private final AtomicBoolean sending = new AtomicBoolean();
+		// Only touched by the one drain running at a time
+		private String lastSentEtag;
+
+		private Subscription(final Subscriber subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		private void offer(final EncodedStatistic statistic) {
+			pending.set(statistic);
+			schedule();
+		}
+
+		private void schedule() {
+			if (sending.compareAndSet(false, true)) {
+				try {
+					senders.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					sending.set(false);
+				}
+			}
+		}
+
+		private void drain() {
+			EncodedStatistic next;
+			while ((next = pending.getAndSet(null)) != null) {
+				if (next.getEtag().equals(lastSentEtag)) {
+					// The first tick after subscribing may repeat the statistic sent on subscription
+					continue;
+				}
+				try {
+					subscriber.send(next);
+					lastSentEtag = next.getEtag();
+				} catch (Exception e) {
+					subscriptions.remove(this);
+					subscriber.close();
+					return;
+				}
+			}
+			sending.set(false);
+			// An event offered after the loop ended but before the flag was cleared would otherwise wait a tick
+			if (pending.get() != null) {
+				schedule();
+			}
+		}
+	}
+}
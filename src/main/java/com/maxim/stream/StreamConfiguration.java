@@ -0,0 +1,25 @@
+package com.maxim.stream;
+
+import com.maxim.dto.StatisticEncoder;
+import com.maxim.service.TransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class StreamConfiguration {
+	@Bean(destroyMethod = "close")
+	public StatisticBroadcaster statisticBroadcaster(final TransactionService transactionService, final StatisticEncoder statisticEncoder,
+	                                                 @Value("${transaction.stream.sender-threads:2}") final int senderThreads,
+	                                                 @Value("${transaction.stream.max-subscribers:10000}") final int maxSubscribers) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		return new StatisticBroadcaster(transactionService, statisticEncoder, Executors.newFixedThreadPool(senderThreads, runnable -> {
+			final Thread thread = new Thread(runnable, "statistic-stream-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}), maxSubscribers);
+	}
+}
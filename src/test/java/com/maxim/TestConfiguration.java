@@ -1,13 +1,24 @@
 package com.maxim;
 
+import com.maxim.controller.HistoryController;
+import com.maxim.controller.StreamController;
 import com.maxim.controller.TransactionController;
 import com.maxim.dto.Mapper;
+import com.maxim.dto.StatisticEncoder;
+import com.maxim.dto.TransactionBatchReader;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.service.TransactionClock;
 import com.maxim.service.TransactionService;
+import com.maxim.service.engine.SortedStatisticEngine;
+import com.maxim.service.engine.TransactionHistory;
+import com.maxim.stream.StatisticBroadcaster;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
+import java.util.concurrent.Executors;
+
 @Configuration
 @EnableScheduling
 @EnableWebMvc
@@ -17,13 +28,53 @@ public class TestConfiguration {
 		return new Mapper();
 	}
 
+	@Bean
+	public TransactionBatchReader transactionBatchReader() {
+		return new TransactionBatchReader();
+	}
+
+	@Bean
+	public TransactionMetrics transactionMetrics() {
+		return new TransactionMetrics(true, 1);
+	}
+
+	@Bean
+	public StatisticEncoder statisticEncoder() {
+		return new StatisticEncoder(statisticMapper());
+	}
+
+	@Bean
+	public TransactionClock transactionClock() {
+		return TransactionClock.system();
+	}
+
 	@Bean
 	public TransactionService transactionService() {
-		return new TransactionService();
+		return TransactionService.builder(new SortedStatisticEngine()).clock(transactionClock()).build();
+	}
+
+	@Bean
+	public TransactionHistory transactionHistory() {
+		return new TransactionHistory(1440, 24);
+	}
+
+	@Bean
+	public HistoryController historyController() {
+		return new HistoryController(transactionHistory(), statisticMapper(), transactionClock());
+	}
+
+	@Bean(destroyMethod = "close")
+	public StatisticBroadcaster statisticBroadcaster() {
+		return new StatisticBroadcaster(transactionService(), statisticEncoder(), Executors.newSingleThreadExecutor(), 10);
+	}
+
+	@Bean
+	public StreamController streamController() {
+		return new StreamController(statisticBroadcaster(), 0);
 	}
 
 	@Bean
 	public TransactionController transactionController() {
-		return new TransactionController(transactionService(), statisticMapper());
+		return new TransactionController(transactionService(), statisticMapper(), transactionBatchReader(), transactionMetrics(), statisticEncoder(), transactionClock());
 	}
 }
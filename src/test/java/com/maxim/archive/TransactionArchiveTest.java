@@ -0,0 +1,97 @@
+package com.maxim.archive;
+
+import com.maxim.service.engine.SortedStatisticEngine;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+
+public class TransactionArchiveTest {
+	private static final long NOW = 1_500_000_000_000L;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldStreamBackEveryEvictedTransactionInRangeAcrossSegments() throws IOException {
+		final Path directory = folder.getRoot().toPath().resolve("archive");
+		final SortedStatisticEngine engine = new SortedStatisticEngine();
+		final List<String> recorded = new ArrayList<>();
+		final Random random = new Random(42);
+		try (TransactionArchive archive = new TransactionArchive(directory, 4096, 65536, 10)) {
+			engine.setEvictionListener(archive);
+			for (int i = 0; i < 20_000; i++) {
+				final long timestamp = NOW + i * 3 + (i % 100 == 0 ? -50 : 0);
+				final double amount = i % 3 == 0 ? 9.99 : Math.round(random.nextDouble() * 100_000) / 100.0;
+				engine.record(timestamp, amount);
+				recorded.add(timestamp + "=" + amount);
+				if (i % 1_000 == 999) {
+					engine.evictOlderThan(NOW + i * 3 - 500);
+				}
+			}
+			engine.evictOlderThan(Long.MAX_VALUE);
+		}
+
+		final List<String> archived = new ArrayList<>();
+		assertEquals(20_000, new ArchiveReader(directory).scan(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, amount) -> archived.add(timestamp + "=" + amount)));
+		recorded.sort(null);
+		archived.sort(null);
+		assertEquals(recorded, archived);
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files.count(), greaterThan(2L));
+		}
+
+		final long[] range = {Long.MAX_VALUE, Long.MIN_VALUE};
+		final long scanned = new ArchiveReader(directory).scan(NOW + 30_000, NOW + 30_300, (timestamp, amount) -> {
+			range[0] = Math.min(range[0], timestamp);
+			range[1] = Math.max(range[1], timestamp);
+		});
+		// The transaction at 30_000 was recorded 50ms early, the one at 30_300 made up for it
+		assertEquals(100, scanned);
+		assertEquals(NOW + 30_003, range[0]);
+		assertEquals(NOW + 30_297, range[1]);
+	}
+
+	@Test
+	public void shouldRoundTripAwkwardTimestampsAndAmounts() {
+		final long[] timestamps = {NOW, NOW, NOW + 1, NOW - 5_000, Long.MAX_VALUE, Long.MIN_VALUE, 0, NOW + 100_000};
+		final double[] amounts = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 12.5, 12.5};
+		final ArchiveBlock block = new ArchiveBlock();
+		for (int i = 0; i < timestamps.length; i++) {
+			block.add(timestamps[i], amounts[i]);
+		}
+
+		final List<String> decoded = new ArrayList<>();
+		ArchiveBlock.decode(block.array(), block.count(), (timestamp, amount) -> decoded.add(timestamp + "=" + Double.doubleToRawLongBits(amount)));
+
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < timestamps.length; i++) {
+			expected.add(timestamps[i] + "=" + Double.doubleToRawLongBits(amounts[i]));
+		}
+		assertEquals(expected, decoded);
+		assertEquals(Long.MIN_VALUE, block.minTimestamp());
+		assertEquals(Long.MAX_VALUE, block.maxTimestamp());
+	}
+
+	@Test
+	public void shouldStoreEvenlySpacedTransactionsInFewBytes() {
+		final ArchiveBlock block = new ArchiveBlock();
+		for (int i = 0; i < TransactionArchive.BLOCK_TRANSACTIONS; i++) {
+			block.add(NOW + i * 10, i % 10 == 0 ? 100.25 : 25);
+		}
+
+		assertThat(block.byteLength(), lessThan(TransactionArchive.BLOCK_TRANSACTIONS * 2));
+	}
+}
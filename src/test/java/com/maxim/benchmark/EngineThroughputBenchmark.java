@@ -0,0 +1,85 @@
+package com.maxim.benchmark;
+
+import com.maxim.service.engine.BucketStatisticEngine;
+import com.maxim.service.engine.SortedStatisticEngine;
+import com.maxim.service.engine.StatisticEngine;
+import com.maxim.service.engine.StripedStatisticEngine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Records transactions from 1 to 64 writer threads into every engine and prints writes per second.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.maxim.benchmark.EngineThroughputBenchmark}.
+ */
+public class EngineThroughputBenchmark {
+	private static final long WINDOW = TimeUnit.SECONDS.toMillis(60);
+	private static final long RESOLUTION = TimeUnit.SECONDS.toMillis(1);
+	private static final long MEASUREMENT_MILLIS = 2_000;
+	private static final int[] NUMBER_OF_THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+	public static void main(String[] args) throws InterruptedException {
+		run("sorted", SortedStatisticEngine::new);
+		run("bucket", () -> new BucketStatisticEngine(WINDOW, RESOLUTION));
+		run("striped", () -> new StripedStatisticEngine(WINDOW, RESOLUTION, StripedStatisticEngine.defaultStripes()));
+	}
+
+	private static void run(final String name, final Supplier<StatisticEngine> engineFactory) throws InterruptedException {
+		for (int threads : NUMBER_OF_THREADS) {
+			final StatisticEngine engine = engineFactory.get();
+			final double opsPerSecond = measure(engine, threads);
+			System.out.printf("%-8s threads=%-3d %,15.0f writes/s%n", name, threads, opsPerSecond);
+		}
+	}
+
+	private static double measure(final StatisticEngine engine, final int threads) throws InterruptedException {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final CountDownLatch start = new CountDownLatch(1);
+		final LongAdder operations = new LongAdder();
+		final Thread[] writers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			writers[i] = new Thread(() -> {
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				long performed = 0;
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				while (running.get()) {
+					engine.record(System.currentTimeMillis() - random.nextLong(WINDOW), random.nextDouble(1000));
+					performed++;
+				}
+				operations.add(performed);
+			});
+			writers[i].start();
+		}
+
+		// Keeps the window bounded the same way the scheduled eviction does in the service
+		final Thread evictor = new Thread(() -> {
+			while (running.get()) {
+				engine.evictOlderThan(System.currentTimeMillis() - WINDOW);
+				try {
+					TimeUnit.SECONDS.sleep(1);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		evictor.start();
+
+		start.countDown();
+		TimeUnit.MILLISECONDS.sleep(MEASUREMENT_MILLIS);
+		running.set(false);
+		evictor.interrupt();
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		evictor.join();
+		return operations.sum() * 1000.0 / MEASUREMENT_MILLIS;
+	}
+}
@@ -0,0 +1,54 @@
+package com.maxim.benchmark;
+
+import com.maxim.service.engine.KeyedStatisticStore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures heap per active and per idle key for 50k keys, both from the store's own accounting and from the
+ * used heap after a full GC, plus keyed write throughput.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.maxim.benchmark.KeyedStatisticStoreBenchmark}.
+ */
+public class KeyedStatisticStoreBenchmark {
+	private static final long WINDOW = TimeUnit.SECONDS.toMillis(60);
+	private static final int NUMBER_OF_KEYS = 50_000;
+	private static final long[] RESOLUTIONS = {1_000, 5_000};
+
+	public static void main(String[] args) {
+		final String[] keys = new String[NUMBER_OF_KEYS];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "merchant-" + i;
+		}
+
+		for (long resolution : RESOLUTIONS) {
+			final long baseline = usedHeap();
+			final KeyedStatisticStore store = new KeyedStatisticStore(WINDOW, resolution, 16);
+			final long now = System.currentTimeMillis();
+
+			final long start = System.nanoTime();
+			for (int second = 0; second < 60; second++) {
+				for (String key : keys) {
+					store.record(key, now - WINDOW + second * 1000L, 1);
+				}
+			}
+			final double writesPerSecond = 60.0 * keys.length / ((System.nanoTime() - start) / 1e9);
+
+			final long active = usedHeap() - baseline;
+			System.out.printf("resolution=%dms active: %,d keys, accounted %,d bytes/key, measured %,d bytes/key, %,.0f writes/s%n",
+					resolution, store.size(), store.getFootprintBytes() / NUMBER_OF_KEYS, active / NUMBER_OF_KEYS, writesPerSecond);
+
+			store.evictOlderThan(now + WINDOW);
+			final long idle = usedHeap() - baseline;
+			System.out.printf("resolution=%dms idle:   %,d keys, %,d bytes still held (%,d bytes per evicted key)%n",
+					resolution, store.size(), idle, idle / NUMBER_OF_KEYS);
+		}
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,48 @@
+package com.maxim.benchmark;
+
+import com.maxim.service.engine.QuantileSketch;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Prints the worst relative error of p50/p95/p99 against exact quantiles and the memory of the sketch,
+ * for several accuracies and amount distributions.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.maxim.benchmark.QuantileSketchBenchmark}.
+ */
+public class QuantileSketchBenchmark {
+	private static final int NUMBER_OF_VALUES = 1_000_000;
+	private static final double[] ACCURACIES = {0.05, 0.02, 0.01, 0.005, 0.001};
+	private static final double[] QUANTILES = {0.50, 0.95, 0.99};
+
+	public static void main(String[] args) {
+		final Random random = new Random(42);
+		run("uniform 0-10k", () -> random.nextDouble() * 10_000);
+		run("lognormal", () -> Math.exp(3 + random.nextGaussian() * 2));
+		run("pareto", () -> 1 / Math.pow(1 - random.nextDouble(), 1 / 1.2));
+	}
+
+	private static void run(final String distribution, final DoubleSupplier amounts) {
+		final double[] values = new double[NUMBER_OF_VALUES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Math.round(amounts.getAsDouble() * 100) / 100.0;
+		}
+		final double[] sorted = values.clone();
+		Arrays.sort(sorted);
+
+		for (double accuracy : ACCURACIES) {
+			final QuantileSketch sketch = new QuantileSketch(accuracy, 2048);
+			for (double value : values) {
+				sketch.add(value);
+			}
+			double worstError = 0;
+			for (double quantile : QUANTILES) {
+				final double exact = sorted[(int) (quantile * (sorted.length - 1))];
+				worstError = Math.max(worstError, Math.abs(sketch.getValueAtQuantile(quantile) - exact) / exact);
+			}
+			System.out.printf("%-14s accuracy=%-6s worst error=%.4f%% footprint=%,7d bytes (exact: %,d bytes)%n",
+					distribution, accuracy, worstError * 100, sketch.getFootprintBytes(), 8L * values.length);
+		}
+	}
+}
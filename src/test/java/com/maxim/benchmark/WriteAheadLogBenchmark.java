@@ -0,0 +1,98 @@
+package com.maxim.benchmark;
+
+import com.maxim.model.Transaction;
+import com.maxim.persistence.SnapshotStore;
+import com.maxim.persistence.WriteAheadJournal;
+import com.maxim.persistence.WriteAheadLog;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.BucketStatisticEngine;
+import com.maxim.service.engine.KeyedStatisticStore;
+import com.maxim.service.engine.StatisticEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records transactions through TransactionService in memory only and with the write-ahead log (fsync every 10ms,
+ * snapshots every second) from 1 and 8 threads, printing mean and p99 latency per write, then times recovery.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.maxim.benchmark.WriteAheadLogBenchmark}.
+ */
+public class WriteAheadLogBenchmark {
+	private static final long WINDOW = TimeUnit.SECONDS.toMillis(60);
+	private static final long RESOLUTION = TimeUnit.SECONDS.toMillis(1);
+	private static final int WRITES_PER_THREAD = 500_000;
+	private static final int[] NUMBER_OF_THREADS = {1, 8};
+
+	public static void main(String[] args) throws Exception {
+		for (int threads : NUMBER_OF_THREADS) {
+			final StatisticEngine engine = new BucketStatisticEngine(WINDOW, RESOLUTION);
+			run("in-memory", threads, TransactionService.builder(engine).keyedStatisticStore(keyedStore()).build());
+		}
+
+		for (int threads : NUMBER_OF_THREADS) {
+			final Path directory = Files.createTempDirectory("wal-benchmark");
+			final StatisticEngine engine = new BucketStatisticEngine(WINDOW, RESOLUTION);
+			final KeyedStatisticStore keyed = keyedStore();
+			try (WriteAheadJournal journal = journal(directory, engine, keyed)) {
+				journal.start(10, 1_000, TransactionClock.system());
+				run("wal", threads, TransactionService.builder(engine).keyedStatisticStore(keyed).transactionJournal(journal).build());
+			}
+
+			final long start = System.nanoTime();
+			try (WriteAheadJournal journal = journal(directory, new BucketStatisticEngine(WINDOW, RESOLUTION), keyedStore())) {
+				final long replayed = journal.recover(System.currentTimeMillis());
+				System.out.printf("recovery  threads=%-2d replayed %,d transactions in %,d ms%n",
+						threads, replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			}
+		}
+	}
+
+	private static void run(final String name, final int threads, final TransactionService service) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final long[][] latencies = new long[threads][WRITES_PER_THREAD];
+		final Thread[] writers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final long[] own = latencies[i];
+			writers[i] = new Thread(() -> {
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int n = 0; n < own.length; n++) {
+					final Transaction transaction = new Transaction(Instant.ofEpochMilli(System.currentTimeMillis() - random.nextLong(WINDOW)), random.nextDouble(1000));
+					final long before = System.nanoTime();
+					service.recordTransaction(transaction);
+					own[n] = System.nanoTime() - before;
+				}
+			});
+			writers[i].start();
+		}
+		final long begin = System.nanoTime();
+		start.countDown();
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		final double seconds = (System.nanoTime() - begin) / 1e9;
+
+		final long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+		System.out.printf("%-9s threads=%-2d %,12.0f writes/s  mean %,6.0f ns  p99 %,7d ns%n", name, threads,
+				all.length / seconds, Arrays.stream(all).average().orElse(0), all[(int) (all.length * 0.99)]);
+	}
+
+	private static WriteAheadJournal journal(final Path directory, final StatisticEngine engine, final KeyedStatisticStore keyed) throws IOException {
+		return new WriteAheadJournal(new WriteAheadLog(directory.resolve("wal"), 64 << 20), new SnapshotStore(directory), engine, keyed, WINDOW);
+	}
+
+	private static KeyedStatisticStore keyedStore() {
+		return new KeyedStatisticStore(WINDOW, RESOLUTION, 16);
+	}
+}
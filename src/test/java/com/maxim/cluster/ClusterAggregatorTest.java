@@ -0,0 +1,121 @@
+package com.maxim.cluster;
+
+import com.maxim.dto.Mapper;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.model.Statistic;
+import com.maxim.server.LightweightServer;
+import com.maxim.service.ManualClock;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.BucketStatisticEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClusterAggregatorTest {
+	private final List<TransactionService> services = new ArrayList<>();
+	private final List<LightweightServer> servers = new ArrayList<>();
+	private final List<String> peers = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			final TransactionService service = TransactionService.builder(new BucketStatisticEngine(60_000, 1000, 10, new long[]{60_000}, 0.01)).build();
+			final LightweightServer server = new LightweightServer(new InetSocketAddress("localhost", 0), 1, service, new TransactionMetrics(false, 1), new Mapper(),
+					TransactionClock.system());
+			services.add(service);
+			servers.add(server);
+			peers.add("localhost:" + server.getPort());
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (LightweightServer server : servers) {
+			server.close();
+		}
+	}
+
+	@Test
+	public void shouldMergeItsOwnAndEveryPeersStatistic() {
+		final long now = System.currentTimeMillis();
+		services.get(0).record(now, 10);
+		services.get(1).record(now, 20);
+		services.get(2).record(now - 1000, 30);
+		services.get(2).record(now, 5);
+
+		try (ClusterAggregator aggregator = new ClusterAggregator(services.get(0), peers.subList(1, 3), 2000, 1000, TransactionClock.system())) {
+			final Statistic statistic = aggregator.getStatistic();
+
+			assertEquals(4, statistic.getCount());
+			assertEquals(65, statistic.getSum(), 0.0);
+			assertEquals(30, statistic.getMax(), 0.0);
+			assertEquals(5, statistic.getMin(), 0.0);
+			assertEquals(20, statistic.getPercentiles().getP95(), 20 * 0.01);
+		}
+	}
+
+	@Test
+	public void shouldServeCachedStatisticUntilItExpires() throws InterruptedException {
+		final long now = System.currentTimeMillis();
+		services.get(1).record(now, 1);
+
+		try (ClusterAggregator aggregator = new ClusterAggregator(services.get(0), peers.subList(1, 2), 2000, 200, TransactionClock.system())) {
+			assertEquals(1, aggregator.getStatistic().getCount());
+			services.get(1).record(now, 1);
+			assertEquals(1, aggregator.getStatistic().getCount());
+
+			Thread.sleep(250);
+			assertEquals(2, aggregator.getStatistic().getCount());
+		}
+	}
+
+	@Test
+	public void shouldLeaveOutUnreachablePeers() throws IOException {
+		final String unreachable;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			unreachable = "localhost:" + socket.getLocalPort();
+		}
+		services.get(0).record(System.currentTimeMillis(), 1);
+		services.get(1).record(System.currentTimeMillis(), 2);
+
+		try (ClusterAggregator aggregator = new ClusterAggregator(services.get(0), Arrays.asList(unreachable, peers.get(1)), 2000, 0, TransactionClock.system())) {
+			assertEquals(3, aggregator.getStatistic().getSum(), 0.0);
+		}
+	}
+
+	@Test
+	public void shouldServeOwnStatisticWithoutPeers() {
+		services.get(0).record(System.currentTimeMillis(), 7);
+
+		try (ClusterAggregator aggregator = new ClusterAggregator(services.get(0), Collections.emptyList(), 2000, 0, TransactionClock.system())) {
+			assertEquals(7, aggregator.getStatistic().getSum(), 0.0);
+		}
+	}
+
+	@Test
+	public void shouldCutTheWindowAtTheTimeOfItsClock() {
+		final long now = System.currentTimeMillis();
+		services.get(0).record(now - 30_000, 1);
+		services.get(1).record(now, 2);
+		final ManualClock clock = new ManualClock(Instant.ofEpochMilli(now));
+
+		try (ClusterAggregator aggregator = new ClusterAggregator(services.get(0), peers.subList(1, 2), 2000, 0, clock)) {
+			assertEquals(3, aggregator.getStatistic().getSum(), 0.0);
+			clock.advance(Duration.ofSeconds(45));
+			assertEquals(2, aggregator.getStatistic().getSum(), 0.0);
+		}
+	}
+}
@@ -5,20 +5,28 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.time.Instant;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -43,6 +51,74 @@ public class EndpointTest {
 				.andExpect(content().string("{\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0}"));
 	}
 
+	@Test
+	public void shouldAnswerUnchangedStatisticsWithNotModified() throws Exception {
+		final String etag = mockMvc.perform(get("/statistics"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/statistics").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag))
+				.andExpect(content().string(""));
+
+		mockMvc.perform(
+				post("/transactions")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"amount\": 5.0,\"timestamp\": " + System.currentTimeMillis() + "}")
+		)
+				.andExpect(status().isCreated());
+		mockMvc.perform(get("/statistics").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+				.andExpect(content().string("{\"sum\":5.0,\"avg\":5.0,\"max\":5.0,\"min\":5.0,\"count\":1}"));
+	}
+
+	@Test
+	public void shouldServeHistoryInStepsAndRejectInvalidSteps() throws Exception {
+		mockMvc.perform(get("/statistics/history").param("from", "0").param("to", "7200000").param("step", "1h"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("[{\"from\":0,\"to\":3600000,\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0},"
+						+ "{\"from\":3600000,\"to\":7200000,\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0}]"));
+
+		mockMvc.perform(get("/statistics/history").param("step", "30s"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void shouldStreamStatisticAsServerSentEvents() throws Exception {
+		final MvcResult result = mockMvc.perform(get("/statistics/stream").accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		assertThat(result.getResponse().getContentAsString(), containsString("event:statistic\ndata:{\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0}"));
+	}
+
+	@Test
+	public void shouldReturnStatisticsForDefaultWindow() throws Exception {
+		mockMvc.perform(get("/statistics").param("window", "60s"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("{\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0}"));
+	}
+
+	@Test
+	public void shouldRejectWindowNotSupportedByEngine() throws Exception {
+		mockMvc.perform(get("/statistics").param("window", "10s"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/statistics").param("window", "ten seconds"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void shouldRejectWindowsTooLongToAnswer() throws Exception {
+		mockMvc.perform(get("/statistics").param("window", "25h"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/statistics").param("window", "9999999999999999h"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/statistics").param("window", "99999999999999999999s"))
+				.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	public void shouldPostNewTransaction() throws Exception {
 		mockMvc.perform(
@@ -54,6 +130,52 @@ public class EndpointTest {
 				.andExpect(content().string(""));
 	}
 
+	@Test
+	public void shouldReturnStatisticsPerKey() throws Exception {
+		final long now = System.currentTimeMillis();
+		mockMvc.perform(
+				post("/transactions")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"amount\": 100.0,\"timestamp\": " + now + ",\"key\": \"merchant.eu\"}")
+		)
+				.andExpect(status().isCreated());
+		mockMvc.perform(
+				post("/transactions/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"amount\": 20.0,\"timestamp\": " + now + ",\"key\": \"merchant.eu\"},{\"amount\": 1.0,\"timestamp\": " + now + "}]")
+		)
+				.andExpect(status().isCreated());
+
+		mockMvc.perform(get("/statistics/merchant.eu"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("{\"sum\":120.0,\"avg\":60.0,\"max\":100.0,\"min\":20.0,\"count\":2}"));
+		mockMvc.perform(get("/statistics/unknown"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("{\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0}"));
+	}
+
+	@Test
+	public void shouldRejectKeysTooLongToJournal() throws Exception {
+		final long now = System.currentTimeMillis();
+		final String key = new String(new char[1025]).replace('\0', 'k');
+		mockMvc.perform(
+				post("/transactions")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"amount\": 100.0,\"timestamp\": " + now + ",\"key\": \"" + key + "\"}")
+		)
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(
+				post("/transactions/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"amount\": 20.0,\"timestamp\": " + now + ",\"key\": \"" + key + "\"}]")
+		)
+				.andExpect(status().isBadRequest());
+
+		mockMvc.perform(get("/statistics"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("{\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0}"));
+	}
+
 	@Test
 	public void shouldReturnNoContentIfTransactionIsOlderThan60Seconds() throws Exception {
 		final long moreThanSixtySecondsAgo = Instant.now().minusSeconds(60).minusMillis(1).toEpochMilli();
@@ -65,4 +187,79 @@ public class EndpointTest {
 				.andExpect(status().isNoContent())
 				.andExpect(content().string(""));
 	}
+
+	@Test
+	public void shouldRecordBatchFromJsonArray() throws Exception {
+		final long now = System.currentTimeMillis();
+		final long moreThanSixtySecondsAgo = Instant.now().minusSeconds(61).toEpochMilli();
+		mockMvc.perform(
+				post("/transactions/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"amount\": 10.0,\"timestamp\": " + now + "},"
+								+ "{\"timestamp\": " + now + ",\"amount\": 30.0,\"note\": {\"ignored\": [1, 2]}},"
+								+ "{\"amount\": 50.0,\"timestamp\": " + moreThanSixtySecondsAgo + "}]")
+		)
+				.andExpect(status().isCreated())
+				.andExpect(content().string("{\"accepted\":2,\"tooOld\":1}"));
+
+		mockMvc.perform(get("/statistics"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("{\"sum\":40.0,\"avg\":20.0,\"max\":30.0,\"min\":10.0,\"count\":2}"));
+	}
+
+	@Test
+	public void shouldRecordBatchFromNewlineDelimitedJson() throws Exception {
+		final long now = System.currentTimeMillis();
+		mockMvc.perform(
+				post("/transactions/batch")
+						.contentType("application/x-ndjson")
+						.content("{\"amount\": 1.0,\"timestamp\": " + now + "}\n{\"amount\": 2.0,\"timestamp\": " + now + "}\n")
+		)
+				.andExpect(status().isCreated())
+				.andExpect(content().string("{\"accepted\":2,\"tooOld\":0}"));
+	}
+
+	@Test
+	public void shouldReportOkIfWholeBatchIsOlderThan60Seconds() throws Exception {
+		final long moreThanSixtySecondsAgo = Instant.now().minusSeconds(60).minusMillis(1).toEpochMilli();
+		mockMvc.perform(
+				post("/transactions/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"amount\": 100.0,\"timestamp\": " + moreThanSixtySecondsAgo + "}]")
+		)
+				.andExpect(status().isOk())
+				.andExpect(content().string("{\"accepted\":0,\"tooOld\":1}"));
+	}
+
+	@Test
+	public void shouldRejectTransactionsTooFarInTheFuture() throws Exception {
+		final long inAnHour = Instant.now().plusSeconds(3600).toEpochMilli();
+		mockMvc.perform(
+				post("/transactions")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"amount\": 100.0,\"timestamp\": " + inAnHour + "}")
+		)
+				.andExpect(status().isUnprocessableEntity());
+
+		mockMvc.perform(
+				post("/transactions/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"amount\": 1.0,\"timestamp\": " + System.currentTimeMillis() + "},{\"amount\": 2.0,\"timestamp\": " + inAnHour + "}]")
+		)
+				.andExpect(status().isCreated())
+				.andExpect(content().string("{\"accepted\":1,\"tooOld\":0,\"tooFarInFuture\":1}"));
+
+		mockMvc.perform(get("/statistics"))
+				.andExpect(content().string("{\"sum\":1.0,\"avg\":1.0,\"max\":1.0,\"min\":1.0,\"count\":1}"));
+	}
+
+	@Test
+	public void shouldRejectMalformedBatch() throws Exception {
+		mockMvc.perform(
+				post("/transactions/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"amount\": 100.0}]")
+		)
+				.andExpect(status().isBadRequest());
+	}
 }
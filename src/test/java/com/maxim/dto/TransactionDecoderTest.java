@@ -0,0 +1,79 @@
+package com.maxim.dto;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionDecoderTest {
+	private final TransactionDecoder decoder = new TransactionDecoder();
+
+	@Test
+	public void shouldDecodeTimestampAndAmountInAnyOrder() {
+		assertDecoded("{\"amount\":12.3,\"timestamp\":1478192204000}", 1478192204000L, 12.3);
+		assertDecoded(" {\n \"timestamp\" : 1478192204000 ,\t\"amount\" : -0.5 }\r\n", 1478192204000L, -0.5);
+	}
+
+	@Test
+	public void shouldDecodeExponentsAndLongMantissas() {
+		assertDecoded("{\"timestamp\":1,\"amount\":1.5E3}", 1, 1500);
+		assertDecoded("{\"timestamp\":1,\"amount\":2e-2}", 1, 0.02);
+		assertDecoded("{\"timestamp\":1,\"amount\":0.000123456789}", 1, 0.000123456789);
+		assertDecoded("{\"timestamp\":1,\"amount\":1234567890.12345678901234}", 1, 1234567890.12345678901234);
+		assertDecoded("{\"timestamp\":1,\"amount\":1e308}", 1, 1e308);
+	}
+
+	@Test
+	public void shouldMatchDoubleParsingOnRandomAmounts() {
+		final Random random = new Random(11);
+		for (int i = 0; i < 100_000; i++) {
+			final String amount = random.nextInt(1_000_000) + "." + random.nextInt(1000);
+			assertDecoded("{\"timestamp\":1,\"amount\":" + amount + "}", 1, Double.parseDouble(amount));
+		}
+	}
+
+	@Test
+	public void shouldDecodeKeys() {
+		assertDecoded("{\"timestamp\":1,\"amount\":2,\"key\":\"merchant\"}", 1, 2);
+		assertEquals("merchant", decoder.getKey());
+		assertDecoded("{\"key\" : \"caf\u00e9\", \"timestamp\":1,\"amount\":2}", 1, 2);
+		assertEquals("caf\u00e9", decoder.getKey());
+		assertDecoded("{\"timestamp\":1,\"amount\":2,\"key\":null}", 1, 2);
+		assertNull(decoder.getKey());
+		assertDecoded("{\"timestamp\":1,\"amount\":2}", 1, 2);
+		assertNull(decoder.getKey());
+	}
+
+	@Test
+	public void shouldLeaveAnythingElseToJackson() {
+		assertRejected("{\"timestamp\":1,\"amount\":1,\"merchant\":\"a\"}");
+		assertRejected("{\"timestamp\":1,\"amount\":1,\"key\":\"caf\\u00e9\"}");
+		assertRejected("{\"timestamp\":1,\"amount\":1,\"key\":7}");
+		assertRejected("{\"timestamp\":1,\"amount\":1,\"key\":\"a\tb\"}");
+		assertRejected("{\"timestamp\":1}");
+		assertRejected("{\"timestamp\":1.5,\"amount\":1}");
+		assertRejected("{\"timestamp\":\"1\",\"amount\":1}");
+		assertRejected("{\"time\\u0073tamp\":1,\"amount\":1}");
+		assertRejected("{\"timestamp\":1,\"amount\":}");
+		assertRejected("{\"timestamp\":1,\"amount\":1} trailing");
+		assertRejected("{\"timestamp\":1,\"amount\":1");
+		assertRejected("");
+	}
+
+	private void assertDecoded(final String json, final long timestamp, final double amount) {
+		final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		assertTrue(json, decoder.decode(bytes, 0, bytes.length));
+		assertEquals(timestamp, decoder.getTimestamp());
+		assertEquals(json, amount, decoder.getAmount(), 0.0);
+	}
+
+	private void assertRejected(final String json) {
+		final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		assertFalse(json, decoder.decode(bytes, 0, bytes.length));
+	}
+}
@@ -0,0 +1,63 @@
+package com.maxim.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void shouldReportZeroWhenEmpty() {
+		final LatencyHistogram.Snapshot snapshot = histogram.drain();
+
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getValueAtQuantile(0.99));
+		assertEquals(0, snapshot.getMax());
+	}
+
+	@Test
+	public void shouldReportQuantilesWithinBucketPrecision() {
+		for (long value = 1; value <= 100_000; value++) {
+			histogram.record(value);
+		}
+
+		final LatencyHistogram.Snapshot snapshot = histogram.drain();
+
+		assertEquals(100_000, snapshot.getCount());
+		assertWithinPrecision(50_000, snapshot.getValueAtQuantile(0.5));
+		assertWithinPrecision(99_000, snapshot.getValueAtQuantile(0.99));
+		assertWithinPrecision(100_000, snapshot.getMax());
+	}
+
+	@Test
+	public void shouldStartOverAfterDrain() {
+		histogram.record(1_000_000);
+		histogram.drain();
+		histogram.record(10);
+
+		final LatencyHistogram.Snapshot snapshot = histogram.drain();
+
+		assertEquals(1, snapshot.getCount());
+		assertEquals(10, snapshot.getMax());
+	}
+
+	@Test
+	public void shouldMapEveryValueIntoBucketCoveringIt() {
+		for (long value : new long[]{0, 7, 8, 9, 15, 16, 17, 1023, 1024, Long.MAX_VALUE}) {
+			final int index = LatencyHistogram.indexOf(value);
+			assertThat(LatencyHistogram.upperBoundOf(index), greaterThanOrEqualTo(value));
+			if (index > 0) {
+				assertThat(LatencyHistogram.upperBoundOf(index - 1), lessThanOrEqualTo(value - 1));
+			}
+		}
+	}
+
+	private static void assertWithinPrecision(final long expected, final long actual) {
+		assertThat(actual, allOf(greaterThanOrEqualTo(expected), lessThanOrEqualTo((long) (expected * 1.125))));
+	}
+}
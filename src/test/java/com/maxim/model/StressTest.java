@@ -4,21 +4,27 @@ import com.maxim.TestConfiguration;
 import com.maxim.controller.TransactionController;
 import com.maxim.dto.StatisticResponseDto;
 import com.maxim.dto.TransactionRequestDto;
+import com.maxim.service.ManualClock;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
@@ -30,14 +36,27 @@ import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 
 @RunWith(SpringJUnit4ClassRunner.class)
-@ContextConfiguration(classes = TestConfiguration.class)
+@ContextConfiguration(classes = StressTest.ManualClockConfiguration.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @WebAppConfiguration
 public class StressTest {
 	@Autowired
 	private TransactionController transactionController;
+	@Autowired
+	private TransactionService transactionService;
+	@Autowired
+	private ManualClock clock;
+
+	@Configuration
+	@Import(TestConfiguration.class)
+	static class ManualClockConfiguration {
+		@Bean
+		public ManualClock transactionClock() {
+			return new ManualClock(Instant.parse("2017-03-26T12:00:00Z"));
+		}
+	}
 
-	@Test(timeout = 25000L)
+	@Test(timeout = 10000L)
 	public void shouldBeThreadSafe() throws InterruptedException {
 		final int firstBatchInitialTransactionAmountValue = 1;
 		final int numberOfTransactions = 10000;
@@ -46,7 +65,7 @@ public class StressTest {
 
 		final AtomicInteger nextTransactionAmount = new AtomicInteger(firstBatchInitialTransactionAmountValue);
 
-		final Instant initialSubmitTimestamp = Instant.now().minusSeconds(50);
+		final Instant initialSubmitTimestamp = clock.instant().minusSeconds(50);
 
 		// Submit first batch of transactions
 		final List<Future<?>> firstBatchTasks = sendBatchOfTransactions(numberOfTransactions, initialSubmitTimestamp, nextTransactionAmount, executorService);
@@ -69,12 +88,12 @@ public class StressTest {
 
 		assertTransactionStatistic((long) numberOfTransactions, (double) numberOfTransactions, (double) firstBatchInitialTransactionAmountValue, expectedSumAfterFirstBatch);
 
-		// After waiting eviction of first batch is about to start
-		TimeUnit.SECONDS.sleep(10);
+		// Eviction of first batch is about to start
+		clock.advance(Duration.ofSeconds(10));
 
-		// Submit second batch of transactions
+		// Submit second batch of transactions while the first one is evicted
 		final int secondBatchInitialTransactionAmountValue = nextTransactionAmount.get();
-		final List<Future<?>> secondBatchTasks = sendBatchOfTransactions(numberOfTransactions, Instant.now(), nextTransactionAmount, executorService);
+		final List<Future<?>> secondBatchTasks = sendBatchOfTransactions(numberOfTransactions, clock.instant(), nextTransactionAmount, executorService);
 		final double expectedSumAfterSecondBatch = getSum(numberOfTransactions + 1, numberOfTransactions * 2);
 
 		do {
@@ -91,11 +110,16 @@ public class StressTest {
 
 			assertThat(statistic.getSum(), lessThanOrEqualTo(expectedSumAfterFirstBatch + expectedSumAfterSecondBatch));
 
+			if (statistic.getMax() > numberOfTransactions) {
+				// Once part of the second batch is in, the first batch may start expiring underneath the writers
+				clock.advance(Duration.ofMillis(1));
+				transactionService.removeTransactionsOlderThan60Seconds();
+			}
 		} while (!secondBatchTasks.isEmpty());
 
-		while (transactionController.getStatistic().getCount() != numberOfTransactions) {
-			TimeUnit.SECONDS.sleep(1);
-		}
+		// The first batch spans 3ms, so one more second evicts what is left of it
+		clock.advance(Duration.ofSeconds(1));
+		transactionService.removeTransactionsOlderThan60Seconds();
 
 		assertTransactionStatistic((long) numberOfTransactions, (double) nextTransactionAmount.get() - 1, (double) secondBatchInitialTransactionAmountValue, expectedSumAfterSecondBatch);
 	}
@@ -0,0 +1,134 @@
+package com.maxim.persistence;
+
+import com.maxim.model.Statistic;
+import com.maxim.service.engine.BucketStatisticEngine;
+import com.maxim.service.engine.KeyedStatisticStore;
+import com.maxim.service.engine.SortedStatisticEngine;
+import com.maxim.service.engine.StatisticEngine;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class WriteAheadJournalTest {
+	private static final long WINDOW = 60_000;
+	private static final long RESOLUTION = 1_000;
+	private static final int SEGMENT_BYTES = 4096;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final long now = 1_500_000_000_000L;
+
+	@Test
+	public void shouldReplayOnlyTransactionsInsideTheWindow() throws IOException {
+		try (WriteAheadJournal journal = journal(new SortedStatisticEngine(), keyedStore())) {
+			journal.append(now - WINDOW - 1, 100, null);
+			journal.append(now - 1_000, 2, "merchant");
+			journal.append(now, 4, null);
+		}
+
+		final SortedStatisticEngine engine = new SortedStatisticEngine();
+		final KeyedStatisticStore keyed = keyedStore();
+		try (WriteAheadJournal journal = journal(engine, keyed)) {
+			assertEquals(2, journal.recover(now));
+		}
+
+		assertStatistic(engine.getStatistic(), 2, 6, 4, 2);
+		assertStatistic(keyed.getStatistic("merchant"), 1, 2, 2, 2);
+	}
+
+	@Test
+	public void shouldRestoreFromSnapshotWithoutCountingTwice() throws IOException {
+		final BucketStatisticEngine original = new BucketStatisticEngine(WINDOW, RESOLUTION);
+		try (WriteAheadJournal journal = journal(original, keyedStore())) {
+			record(journal, original, now - 2_000, 1);
+			record(journal, original, now - 1_000, 2);
+			journal.snapshot(now);
+			record(journal, original, now, 3);
+		}
+
+		final BucketStatisticEngine engine = new BucketStatisticEngine(WINDOW, RESOLUTION);
+		try (WriteAheadJournal journal = journal(engine, keyedStore())) {
+			journal.recover(now);
+		}
+
+		assertStatistic(engine.getStatistic(), 3, 6, 3, 1);
+	}
+
+	@Test
+	public void shouldStopReplayAtTornRecord() throws IOException {
+		try (WriteAheadJournal journal = journal(new SortedStatisticEngine(), keyedStore())) {
+			journal.append(now, 1, null);
+			journal.append(now, 2, null);
+		}
+		corruptLastByteOfSecondRecord();
+
+		final SortedStatisticEngine engine = new SortedStatisticEngine();
+		try (WriteAheadJournal journal = journal(engine, keyedStore())) {
+			assertEquals(1, journal.recover(now));
+			journal.append(now, 5, null);
+		}
+
+		final SortedStatisticEngine reopened = new SortedStatisticEngine();
+		try (WriteAheadJournal journal = journal(reopened, keyedStore())) {
+			journal.recover(now);
+		}
+		assertStatistic(reopened.getStatistic(), 2, 6, 5, 1);
+	}
+
+	@Test
+	public void shouldDeleteSegmentsThatLeftTheWindow() throws IOException {
+		try (WriteAheadJournal journal = journal(new SortedStatisticEngine(), keyedStore())) {
+			for (int i = 0; i < 500; i++) {
+				journal.append(now - 2 * WINDOW, 1, null);
+			}
+			journal.append(now, 1, null);
+			journal.snapshot(now);
+		}
+
+		assertEquals(1, segmentFiles().count());
+	}
+
+	private WriteAheadJournal journal(final StatisticEngine engine, final KeyedStatisticStore keyed) throws IOException {
+		final Path directory = folder.getRoot().toPath();
+		return new WriteAheadJournal(new WriteAheadLog(directory.resolve("wal"), SEGMENT_BYTES), new SnapshotStore(directory), engine, keyed, WINDOW);
+	}
+
+	private KeyedStatisticStore keyedStore() {
+		return new KeyedStatisticStore(WINDOW, RESOLUTION, 1);
+	}
+
+	private void record(final WriteAheadJournal journal, final StatisticEngine engine, final long timestamp, final double amount) {
+		journal.append(timestamp, amount, null);
+		engine.record(timestamp, amount);
+	}
+
+	private void corruptLastByteOfSecondRecord() throws IOException {
+		final Path segment = segmentFiles().findFirst().orElseThrow(IllegalStateException::new);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final int recordBytes = 8 + 8 + 8 + 4;
+			channel.write(ByteBuffer.wrap(new byte[]{42}), 2L * recordBytes - 1);
+		}
+	}
+
+	private Stream<Path> segmentFiles() throws IOException {
+		return Files.list(folder.getRoot().toPath().resolve("wal")).filter(path -> path.toString().endsWith(".wal"));
+	}
+
+	private void assertStatistic(final Statistic statistic, final long count, final double sum, final double max, final double min) {
+		assertEquals(count, statistic.getCount());
+		assertEquals(sum, statistic.getSum(), 0.0);
+		assertEquals(max, statistic.getMax(), 0.0);
+		assertEquals(min, statistic.getMin(), 0.0);
+	}
+}
@@ -0,0 +1,138 @@
+package com.maxim.server;
+
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.service.ManualClock;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.FixedPoint;
+import com.maxim.service.engine.SortedStatisticEngine;
+import com.maxim.service.engine.StripedStatisticEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+
+public class BinaryIngestionServerTest {
+	private final ManualClock clock = new ManualClock(Instant.parse("2017-03-26T12:00:00Z"));
+	private final TransactionService transactionService = TransactionService.builder(new SortedStatisticEngine()).clock(clock).build();
+	private final TransactionMetrics transactionMetrics = new TransactionMetrics(true, 1);
+	private BinaryIngestionServer server;
+	private Socket socket;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new BinaryIngestionServer(new InetSocketAddress("localhost", 0), 1, transactionService, transactionMetrics, clock);
+		socket = new Socket("localhost", server.getPort());
+		socket.setSoTimeout(5000);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		socket.close();
+		server.close();
+	}
+
+	@Test
+	public void shouldRecordFramesUnderTheAgeRulesAndAcknowledgeThemInBatches() throws IOException {
+		final long now = clock.millis();
+		final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+		frame(output, now, 12.5);
+		frame(output, now - 1_000, 2.5);
+		frame(output, now - 61_000, 100);
+		frame(output, now + 600_000, 100);
+		output.flush();
+
+		final int[] counts = acknowledgements(socket, 4);
+
+		assertEquals(2, counts[0]);
+		assertEquals(1, counts[1]);
+		assertEquals(1, counts[2]);
+		assertEquals(0, counts[3]);
+		assertEquals(0, counts[4]);
+		assertEquals(2, transactionService.getLatestStatistic().getCount());
+		assertEquals(15.0, transactionService.getLatestStatistic().getSum(), 0.0);
+		assertEquals(1, transactionMetrics.getRejectedTooOld());
+		assertEquals(1, transactionMetrics.getRejectedFuture());
+	}
+
+	@Test
+	public void shouldCloseTheConnectionOnAFrameOfAnotherLength() throws IOException {
+		final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+		output.writeInt(8);
+		output.writeLong(clock.millis());
+		output.writeLong(0);
+		output.flush();
+
+		assertEquals(-1, socket.getInputStream().read());
+		assertEquals(0, transactionService.getLatestStatistic().getCount());
+	}
+
+	@Test
+	public void shouldAcknowledgeTheFramesBeforeOneOfAnotherLengthBeforeClosing() throws IOException {
+		final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+		frame(output, clock.millis(), 10);
+		frame(output, clock.millis(), 20);
+		output.writeInt(8);
+		output.writeLong(clock.millis());
+		output.writeLong(0);
+		output.flush();
+
+		final DataInputStream input = new DataInputStream(socket.getInputStream());
+		assertEquals(2, input.readLong());
+		assertEquals(2, input.readInt());
+		input.skipBytes(BinaryIngestionServer.ACK_BYTES - 8 - 4);
+		assertEquals(-1, input.read());
+		assertEquals(2, transactionService.getLatestStatistic().getCount());
+	}
+
+	@Test
+	public void shouldCountNonFiniteAmountsAndAmountsTheEngineRefusesAsInvalid() throws IOException {
+		final TransactionService cents = TransactionService.builder(new StripedStatisticEngine(60_000, 1_000, 1, new FixedPoint(2))).clock(clock).build();
+		try (BinaryIngestionServer centsServer = new BinaryIngestionServer(new InetSocketAddress("localhost", 0), 1, cents, transactionMetrics, clock);
+		     Socket producer = new Socket("localhost", centsServer.getPort())) {
+			producer.setSoTimeout(5000);
+			final DataOutputStream output = new DataOutputStream(producer.getOutputStream());
+			frame(output, clock.millis(), Double.NaN);
+			frame(output, clock.millis(), Double.POSITIVE_INFINITY);
+			frame(output, clock.millis(), 1e300);
+			frame(output, clock.millis(), 10);
+			output.flush();
+
+			final int[] counts = acknowledgements(producer, 4);
+			assertEquals(1, counts[0]);
+			assertEquals(3, counts[4]);
+			assertEquals(1, cents.getLatestStatistic().getCount());
+			assertEquals(10.0, cents.getLatestStatistic().getSum(), 0.0);
+		}
+	}
+
+	/**
+	 * @return created, too old, too far in future, shed and invalid frames summed over the acknowledgements up to the
+	 * given running count
+	 */
+	private static int[] acknowledgements(final Socket socket, final long frames) throws IOException {
+		final DataInputStream input = new DataInputStream(socket.getInputStream());
+		final int[] counts = new int[5];
+		long acknowledged = 0;
+		while (acknowledged < frames) {
+			acknowledged = input.readLong();
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += input.readInt();
+			}
+		}
+		return counts;
+	}
+
+	private static void frame(final DataOutputStream output, final long timestampMillis, final double amount) throws IOException {
+		output.writeInt(BinaryIngestionServer.PAYLOAD_BYTES);
+		output.writeLong(timestampMillis);
+		output.writeDouble(amount);
+	}
+}
@@ -0,0 +1,158 @@
+package com.maxim.server;
+
+import com.maxim.dto.Mapper;
+import com.maxim.metrics.TransactionMetrics;
+import com.maxim.service.TransactionClock;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.SortedStatisticEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+
+public class LightweightServerTest {
+	private final TransactionMetrics metrics = new TransactionMetrics(true, 1);
+	private final TransactionService service = TransactionService.builder(new SortedStatisticEngine()).build();
+	private LightweightServer server;
+	private Socket socket;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new LightweightServer(new InetSocketAddress("localhost", 0), 1, service, metrics, new Mapper(),
+				TransactionClock.system());
+		socket = new Socket("localhost", server.getPort());
+		socket.setSoTimeout(5000);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		socket.close();
+		server.close();
+	}
+
+	@Test
+	public void shouldRecordTransactionAndServeStatisticOnOneConnection() throws IOException {
+		assertThat(exchange(post("/transactions", transaction(12.5, Instant.now()))), startsWith("HTTP/1.1 201 Created"));
+		assertThat(exchange(post("/transactions", transaction(3, Instant.now().minusSeconds(61)))), startsWith("HTTP/1.1 204 No Content"));
+
+		final String response = exchange(get("/statistics"));
+
+		assertThat(response, startsWith("HTTP/1.1 200 OK"));
+		assertThat(response, containsString("{\"sum\":12.5,\"avg\":12.5,\"max\":12.5,\"min\":12.5,\"count\":1}"));
+	}
+
+	@Test
+	public void shouldCountRejectedTransactionsLikeTheController() throws IOException {
+		assertThat(exchange(post("/transactions", transaction(3, Instant.now().minusSeconds(61)))), startsWith("HTTP/1.1 204 No Content"));
+		assertThat(exchange(post("/transactions", transaction(3, Instant.now().plusSeconds(3600)))), startsWith("HTTP/1.1 422 Unprocessable Entity"));
+		assertThat(exchange(post("/transactions", "{\"amount\":3,\"timestamp\":" + Instant.now().minusSeconds(61).toEpochMilli() + ",\"key\":\"a\"}")),
+				startsWith("HTTP/1.1 204 No Content"));
+
+		assertEquals(2, metrics.getRejectedTooOld());
+		assertEquals(1, metrics.getRejectedFuture());
+	}
+
+	@Test
+	public void shouldAnswerPipelinedRequestsInOrder() throws IOException {
+		send(post("/transactions", transaction(1, Instant.now())) + post("/transactions", transaction(2, Instant.now())) + get("/statistics"));
+
+		assertThat(receive(), startsWith("HTTP/1.1 201 Created"));
+		assertThat(receive(), startsWith("HTTP/1.1 201 Created"));
+		assertThat(receive(), containsString("\"count\":2"));
+	}
+
+	@Test
+	public void shouldRecordKeysOfPipelinedTransactions() throws IOException {
+		final long now = System.currentTimeMillis();
+		send(post("/transactions", "{\"amount\":1,\"timestamp\":" + now + ",\"key\":\"caf\u00e9\"}")
+				+ post("/transactions", "{\"amount\":2,\"timestamp\":" + now + ",\"key\":null}")
+				+ post("/transactions", "{\"amount\":4,\"timestamp\":" + now + ",\"key\":\"caf\\u00e9\"}"));
+
+		assertThat(receive(), startsWith("HTTP/1.1 201 Created"));
+		assertThat(receive(), startsWith("HTTP/1.1 201 Created"));
+		assertThat(receive(), startsWith("HTTP/1.1 201 Created"));
+		assertEquals(5, service.getKeyedStatistic("caf\u00e9").getSum(), 0.0);
+		assertEquals(7, service.getLatestStatistic().getSum(), 0.0);
+	}
+
+	@Test
+	public void shouldAnswerUnchangedStatisticWithNotModified() throws IOException {
+		final String response = exchange(get("/statistics"));
+		final int etagStart = response.indexOf("ETag: ") + "ETag: ".length();
+		final String etag = response.substring(etagStart, response.indexOf("\r\n", etagStart));
+
+		assertThat(exchange(get("/statistics", "If-None-Match: " + etag)), startsWith("HTTP/1.1 304 Not Modified"));
+		exchange(post("/transactions", transaction(1, Instant.now())));
+		assertThat(exchange(get("/statistics", "If-None-Match: " + etag)), startsWith("HTTP/1.1 200 OK"));
+	}
+
+	@Test
+	public void shouldRejectMalformedJsonAndUnknownPaths() throws IOException {
+		assertThat(exchange(post("/transactions", "{\"amount\":")), startsWith("HTTP/1.1 400 Bad Request"));
+		assertThat(exchange(get("/unknown")), startsWith("HTTP/1.1 404 Not Found"));
+		assertThat(exchange(get("/statistics?window=7x")), startsWith("HTTP/1.1 400 Bad Request"));
+	}
+
+	@Test
+	public void shouldAnswerRequestsThatFailUnexpectedlyAndKeepServing() throws IOException {
+		assertThat(exchange(get("/statistics?window=99999999999999999999s")), startsWith("HTTP/1.1 400 Bad Request"));
+		assertThat(exchange(get("/statistics")), startsWith("HTTP/1.1 200 OK"));
+	}
+
+	private String exchange(final String request) throws IOException {
+		send(request);
+		return receive();
+	}
+
+	private void send(final String request) throws IOException {
+		final OutputStream output = socket.getOutputStream();
+		output.write(request.getBytes(StandardCharsets.UTF_8));
+		output.flush();
+	}
+
+	private String receive() throws IOException {
+		final InputStream input = socket.getInputStream();
+		final ByteArrayOutputStream head = new ByteArrayOutputStream();
+		while (!head.toString("ISO-8859-1").endsWith("\r\n\r\n")) {
+			head.write(input.read());
+		}
+		final String headText = head.toString("ISO-8859-1");
+		final int lengthStart = headText.indexOf("Content-Length: ") + "Content-Length: ".length();
+		final int length = Integer.parseInt(headText.substring(lengthStart, headText.indexOf("\r\n", lengthStart)));
+		final byte[] body = new byte[length];
+		for (int read = 0; read < length; ) {
+			read += input.read(body, read, length - read);
+		}
+		return headText + new String(body, StandardCharsets.UTF_8);
+	}
+
+	private static String transaction(final double amount, final Instant timestamp) {
+		return "{\"amount\":" + amount + ",\"timestamp\":" + timestamp.toEpochMilli() + "}";
+	}
+
+	private static String post(final String path, final String body) {
+		return "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+				+ body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body;
+	}
+
+	private static String get(final String path) {
+		return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+	}
+
+	private static String get(final String path, final String header) {
+		return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n" + header + "\r\n\r\n";
+	}
+}
@@ -0,0 +1,22 @@
+package com.maxim.service;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class CachedClockTest {
+	@Test
+	public void shouldFollowTheSystemClockWithinItsResolution() throws InterruptedException {
+		try (CachedClock clock = new CachedClock(1)) {
+			final long first = clock.millis();
+			assertThat(first, lessThanOrEqualTo(System.currentTimeMillis()));
+
+			Thread.sleep(20);
+
+			assertThat(clock.millis(), greaterThan(first));
+			assertThat(clock.millis(), lessThanOrEqualTo(System.currentTimeMillis()));
+		}
+	}
+}
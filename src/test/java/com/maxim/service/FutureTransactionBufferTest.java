@@ -0,0 +1,128 @@
+package com.maxim.service;
+
+import com.maxim.model.TransactionBatch;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FutureTransactionBufferTest {
+	private static final long NOW = 1_000_000;
+
+	@Test
+	public void shouldReleaseHeldTransactionsInTimeOrderOnceWithinTolerance() {
+		final FutureTransactionBuffer buffer = new FutureTransactionBuffer(1_000, 60_000, 100);
+		for (long ahead : new long[]{30_000, 5_000, 50_000, 20_000, 5_000}) {
+			assertTrue(buffer.offer(NOW + ahead, ahead, "key-" + ahead, NOW));
+		}
+
+		final RecordingPipeline pipeline = new RecordingPipeline(Integer.MAX_VALUE);
+		assertEquals(0, buffer.release(NOW, pipeline));
+		assertEquals(3, buffer.release(NOW + 20_000, pipeline));
+
+		assertEquals(Arrays.asList(NOW + 5_000, NOW + 5_000, NOW + 20_000), pipeline.timestamps);
+		assertEquals(Arrays.asList("key-5000", "key-5000", "key-20000"), pipeline.keys);
+		assertEquals(2, buffer.size());
+	}
+
+	@Test
+	public void shouldKeepHoldingWhatThePipelineSheds() {
+		final FutureTransactionBuffer buffer = new FutureTransactionBuffer(1_000, 60_000, 100);
+		for (long ahead : new long[]{2_000, 3_000, 4_000}) {
+			assertTrue(buffer.offer(NOW + ahead, ahead, null, NOW));
+		}
+
+		assertEquals(1, buffer.release(NOW + 10_000, new RecordingPipeline(1)));
+		assertEquals(2, buffer.size());
+
+		final RecordingPipeline pipeline = new RecordingPipeline(Integer.MAX_VALUE);
+		assertEquals(2, buffer.release(NOW + 10_000, pipeline));
+		assertEquals(Arrays.asList(NOW + 3_000, NOW + 4_000), pipeline.timestamps);
+	}
+
+	@Test(timeout = 10000L)
+	public void shouldTakeOffersWhileReleasedTransactionsAreSubmitted() throws Exception {
+		final FutureTransactionBuffer buffer = new FutureTransactionBuffer(1_000, 60_000, 100);
+		assertTrue(buffer.offer(NOW + 2_000, 1, null, NOW));
+		final AtomicBoolean offered = new AtomicBoolean();
+		final RecordingPipeline pipeline = new RecordingPipeline(Integer.MAX_VALUE) {
+			@Override
+			public boolean submit(final long timestampMillis, final double amount, final String key) {
+				// The lock is reentrant, so only another thread shows whether release still holds it
+				final Thread producer = new Thread(() -> offered.set(buffer.offer(NOW + 30_000, 2, null, NOW)));
+				producer.start();
+				try {
+					producer.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.submit(timestampMillis, amount, key);
+			}
+		};
+
+		assertEquals(1, buffer.release(NOW + 1_000, pipeline));
+		assertTrue(offered.get());
+		assertEquals(1, buffer.size());
+	}
+
+	@Test
+	public void shouldRefuseTransactionsBeyondTheHorizonOrCapacity() {
+		final FutureTransactionBuffer buffer = new FutureTransactionBuffer(1_000, 60_000, 2);
+
+		assertFalse(buffer.offer(NOW + 60_001, 1, null, NOW));
+		assertTrue(buffer.offer(NOW + 60_000, 1, null, NOW));
+		assertTrue(buffer.offer(NOW + 2_000, 1, null, NOW));
+		assertTrue(buffer.isFull());
+		assertFalse(buffer.offer(NOW + 2_000, 1, null, NOW));
+
+		buffer.release(NOW + 1_000, new RecordingPipeline(Integer.MAX_VALUE));
+		assertTrue(buffer.offer(NOW + 2_000, 1, null, NOW));
+	}
+
+	@Test
+	public void shouldHoldNothingWhenHorizonDoesNotExceedTolerance() {
+		final FutureTransactionBuffer buffer = new FutureTransactionBuffer(5_000, 0, 100);
+
+		assertEquals(5_000, buffer.getHorizonMillis());
+		assertFalse(buffer.offer(NOW + 5_001, 1, null, NOW));
+	}
+
+	private static class RecordingPipeline implements TransactionPipeline {
+		private final List<Long> timestamps = new ArrayList<>();
+		private final List<String> keys = new ArrayList<>();
+		private final int room;
+
+		private RecordingPipeline(final int room) {
+			this.room = room;
+		}
+
+		@Override
+		public void start(final Sink sink) {
+		}
+
+		@Override
+		public boolean submit(final long timestampMillis, final double amount, final String key) {
+			if (timestamps.size() == room) {
+				return false;
+			}
+			timestamps.add(timestampMillis);
+			keys.add(key);
+			return true;
+		}
+
+		@Override
+		public boolean submitAll(final TransactionBatch batch) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.maxim.service;
+
+import com.maxim.model.TransactionBatch;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferPipelineTest {
+	@Test
+	public void shouldApplyEverySubmittedTransactionInOrderFromOneThread() throws Exception {
+		final List<Long> applied = new ArrayList<>();
+		final List<Thread> writers = new ArrayList<>();
+		final RingBufferPipeline pipeline = new RingBufferPipeline(1024, 1024, 64, TimeUnit.MICROSECONDS.toNanos(100));
+		pipeline.start(new RecordingSink() {
+			@Override
+			public void recordAll(final TransactionBatch batch) {
+				if (!writers.contains(Thread.currentThread())) {
+					writers.add(Thread.currentThread());
+				}
+				for (int i = 0; i < batch.size(); i++) {
+					applied.add(batch.getTimestamp(i));
+				}
+			}
+		});
+
+		for (long i = 0; i < 100_000; i++) {
+			while (!pipeline.submit(i, 1, null)) {
+				Thread.yield();
+			}
+		}
+		pipeline.close();
+
+		assertEquals(100_000, applied.size());
+		for (int i = 0; i < applied.size(); i++) {
+			assertEquals(i, (long) applied.get(i));
+		}
+		assertEquals(1, writers.size());
+	}
+
+	@Test
+	public void shouldShedOnceThresholdIsQueued() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger applied = new AtomicInteger();
+		final RingBufferPipeline pipeline = new RingBufferPipeline(16, 8, 4, TimeUnit.MICROSECONDS.toNanos(100));
+		pipeline.start(new RecordingSink() {
+			@Override
+			public void recordAll(final TransactionBatch batch) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				applied.addAndGet(batch.size());
+			}
+		});
+
+		for (int i = 0; i < 8; i++) {
+			assertTrue(pipeline.submit(i, 1, "key"));
+		}
+		assertFalse(pipeline.submit(8, 1, "key"));
+		assertEquals(8, pipeline.getQueued());
+
+		release.countDown();
+		pipeline.close();
+		assertEquals(8, applied.get());
+		assertEquals(0, pipeline.getQueued());
+	}
+
+	@Test
+	public void shouldQueueOrShedBatchesWhole() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Long> applied = new ArrayList<>();
+		final RingBufferPipeline pipeline = new RingBufferPipeline(16, 8, 4, TimeUnit.MICROSECONDS.toNanos(100));
+		pipeline.start(new RecordingSink() {
+			@Override
+			public void recordAll(final TransactionBatch batch) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (int i = 0; i < batch.size(); i++) {
+					applied.add(batch.getTimestamp(i));
+				}
+			}
+		});
+
+		assertTrue(pipeline.submitAll(batchOf(0, 5)));
+		assertFalse(pipeline.submitAll(batchOf(5, 9)));
+		assertEquals(5, pipeline.getQueued());
+		assertTrue(pipeline.submitAll(batchOf(5, 8)));
+
+		release.countDown();
+		pipeline.close();
+		assertEquals(8, applied.size());
+		for (int i = 0; i < applied.size(); i++) {
+			assertEquals(i, (long) applied.get(i));
+		}
+	}
+
+	@Test
+	public void shouldNotLoseTransactionsFromConcurrentProducers() throws Exception {
+		final AtomicInteger applied = new AtomicInteger();
+		final double[] sum = new double[1];
+		final RingBufferPipeline pipeline = new RingBufferPipeline(256, 256, 32, TimeUnit.MICROSECONDS.toNanos(10));
+		pipeline.start(new RecordingSink() {
+			@Override
+			public void recordAll(final TransactionBatch batch) {
+				applied.addAndGet(batch.size());
+				for (int i = 0; i < batch.size(); i++) {
+					sum[0] += batch.getAmount(i);
+				}
+			}
+		});
+
+		final Thread[] producers = new Thread[4];
+		for (int p = 0; p < producers.length; p++) {
+			producers[p] = new Thread(() -> {
+				for (int i = 0; i < 50_000; i++) {
+					while (!pipeline.submit(i, 2, null)) {
+						Thread.yield();
+					}
+				}
+			});
+			producers[p].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		pipeline.close();
+
+		assertEquals(200_000, applied.get());
+		assertEquals(400_000, sum[0], 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectCapacityThatIsNotAPowerOfTwo() {
+		new RingBufferPipeline(1000, 900, 64, 1000);
+	}
+
+	private static TransactionBatch batchOf(final long fromTimestamp, final long toTimestamp) {
+		final TransactionBatch batch = new TransactionBatch();
+		for (long timestamp = fromTimestamp; timestamp < toTimestamp; timestamp++) {
+			batch.add(timestamp, 1);
+		}
+		return batch;
+	}
+
+	private abstract static class RecordingSink implements TransactionPipeline.Sink {
+		@Override
+		public void record(final long timestampMillis, final double amount, final String key) {
+			throw new AssertionError("The ring buffer pipeline only applies batches");
+		}
+	}
+}
@@ -1,32 +1,23 @@
 package com.maxim.service;
 
+import com.maxim.metrics.TransactionMetrics;
 import com.maxim.model.Statistic;
 import com.maxim.model.Transaction;
-import org.junit.Before;
+import com.maxim.service.engine.BucketStatisticEngine;
+import com.maxim.service.engine.SortedStatisticEngine;
+import com.maxim.service.engine.StatisticEngine;
+import com.maxim.service.engine.StripedStatisticEngine;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.time.Duration;
 import java.time.Instant;
 
 import static org.junit.Assert.*;
 
-@RunWith(PowerMockRunner.class)
-@PrepareForTest(TransactionService.class)
 public class TransactionServiceTest {
-	private final TransactionService transactionService = new TransactionService();
-	private Instant frozenTime;
-
-	@Before
-	public void freezeCurrentTime() {
-		frozenTime = Instant.now();
-
-		PowerMockito.mockStatic(Instant.class);
-		PowerMockito.when(Instant.now()).thenReturn(frozenTime);
-	}
+	private final Instant frozenTime = Instant.parse("2017-03-26T12:00:00.123Z");
+	private final ManualClock clock = new ManualClock(frozenTime);
+	private final TransactionService transactionService = TransactionService.builder(new SortedStatisticEngine()).clock(clock).build();
 
 	@Test
 	public void shouldConsiderInstancesAsOlder() {
@@ -101,16 +92,89 @@ public class TransactionServiceTest {
 		forwardCurrentTime(Duration.ofSeconds(60 + 4));
 
 		final int newTransactionAmount = 7;
-		transactionService.recordTransaction(new Transaction(frozenTime, newTransactionAmount));
+		transactionService.recordTransaction(new Transaction(clock.instant(), newTransactionAmount));
 
 		final double expectedSum = 4 + 5 + 6 + newTransactionAmount;
 		final int expectedCount = 4;
 		assertTransactionStatistic(expectedCount, (double) newTransactionAmount, 4.0, expectedSum);
 	}
 
+	@Test
+	public void shouldHoldTransactionsDatedAheadUntilTheirTimeAndRefuseThoseBeyondTheHorizon() {
+		assertTrue(transactionService.recordTransaction(new Transaction(frozenTime.plusSeconds(30), 10)));
+		assertTrue(transactionService.isTooFarInFuture(frozenTime.plus(Duration.ofMinutes(5)).plusMillis(1)));
+		assertFalse(transactionService.recordTransaction(new Transaction(frozenTime.plus(Duration.ofMinutes(5)).plusMillis(1), 99)));
+
+		assertTransactionStatistic(0, 0, 0, 0);
+		assertEquals(1, transactionService.getFutureTransactionCount());
+
+		forwardCurrentTime(Duration.ofSeconds(20));
+
+		assertTransactionStatistic(1, 10, 10, 10);
+		assertEquals(0, transactionService.getFutureTransactionCount());
+	}
+
+	@Test
+	public void shouldEvictOnReadWithoutTheSweepWhenLazy() {
+		final TransactionService lazyService = TransactionService.builder(new SortedStatisticEngine())
+				.transactionMetrics(new TransactionMetrics(false, 1)).futureTransactions(new FutureTransactionBuffer(10_000, 300_000, 10))
+				.lazyEviction(true).clock(clock).build();
+		for (int i = 1; i <= 6; i++) {
+			lazyService.recordTransaction(new Transaction(frozenTime.plusSeconds(i), i, "key"));
+		}
+		assertTrue(lazyService.recordTransaction(new Transaction(frozenTime.plusSeconds(70), 10)));
+
+		clock.advance(Duration.ofSeconds(60 + 4));
+
+		final Statistic statistic = lazyService.getLatestStatistic();
+		assertEquals(4, statistic.getCount());
+		assertEquals(4 + 5 + 6 + 10, statistic.getSum(), 0.0);
+		assertEquals(10, statistic.getMax(), 0.0);
+		assertEquals(3, lazyService.getKeyedStatistic("key").getCount());
+	}
+
+	@Test
+	public void shouldReleaseDueFutureTransactionsOnWriteWhenLazy() {
+		final SortedStatisticEngine engine = new SortedStatisticEngine();
+		final TransactionService lazyService = TransactionService.builder(engine)
+				.transactionMetrics(new TransactionMetrics(false, 1)).futureTransactions(new FutureTransactionBuffer(10_000, 300_000, 10))
+				.lazyEviction(true).clock(clock).build();
+		assertTrue(lazyService.recordTransaction(new Transaction(frozenTime.plusSeconds(70), 10)));
+		assertEquals(1, lazyService.getFutureTransactionCount());
+
+		clock.advance(Duration.ofSeconds(65));
+		assertTrue(lazyService.recordTransaction(new Transaction(clock.instant(), 1)));
+
+		// Checked on the engine, since reading through the service would release them as well
+		assertEquals(0, lazyService.getFutureTransactionCount());
+		assertEquals(2, engine.getStatistic().getCount());
+		assertEquals(11, engine.getStatistic().getSum(), 0.0);
+	}
+
+	@Test
+	public void shouldCountExactlyTheTransactionsEachSweepEvicts() {
+		final StatisticEngine[] engines = {new SortedStatisticEngine(), new BucketStatisticEngine(60_000, 1000), new StripedStatisticEngine(60_000, 1000, 2)};
+		for (StatisticEngine engine : engines) {
+			final ManualClock engineClock = new ManualClock(frozenTime);
+			final TransactionMetrics metrics = new TransactionMetrics(true, 1);
+			final TransactionService service = TransactionService.builder(engine).transactionMetrics(metrics).clock(engineClock).build();
+			for (int i = 1; i <= 6; i++) {
+				service.recordTransaction(new Transaction(frozenTime.plusSeconds(i), i));
+			}
+
+			engineClock.advance(Duration.ofSeconds(60 + 4));
+			service.removeTransactionsOlderThan60Seconds();
+			service.removeTransactionsOlderThan60Seconds();
+
+			final String name = engine.getClass().getSimpleName();
+			assertEquals(name, 3, metrics.getEvicted());
+			assertEquals(name, 0, metrics.getLastEvictionBatch());
+			assertEquals(name, 3, service.getLatestStatistic().getCount());
+		}
+	}
+
 	private void forwardCurrentTime(Duration delta) {
-		frozenTime = frozenTime.plus(delta);
-		PowerMockito.when(Instant.now()).thenReturn(frozenTime);
+		clock.advance(delta);
 		transactionService.removeTransactionsOlderThan60Seconds(); // Manual invoke here, full e2e scenario is converted in AppTest
 	}
 
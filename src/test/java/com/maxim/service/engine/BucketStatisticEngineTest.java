@@ -0,0 +1,155 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Percentiles;
+import com.maxim.model.Statistic;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BucketStatisticEngineTest {
+	private static final long WINDOW = 60_000;
+	private static final long RESOLUTION = 1_000;
+
+	private final long now = 1_500_000_000_123L;
+	private final BucketStatisticEngine engine = new BucketStatisticEngine(WINDOW, RESOLUTION);
+
+	@Test
+	public void shouldReturnZeroStatisticWhenEmpty() {
+		assertStatistic(0, 0.0, 0.0, 0.0);
+	}
+
+	@Test
+	public void shouldAccumulateStatisticAcrossBuckets() {
+		for (int i = 1; i <= 6; i++) {
+			engine.record(now + i * RESOLUTION, i);
+		}
+		engine.record(now + RESOLUTION, 10);
+
+		assertStatistic(7, 10.0, 1.0, 1 + 2 + 3 + 4 + 5 + 6 + 10);
+	}
+
+	@Test
+	public void shouldEvictBucketsEntirelyOlderThanThreshold() {
+		for (int i = 1; i <= 6; i++) {
+			engine.record(now + i * RESOLUTION, i);
+		}
+
+		engine.evictOlderThan(now + 4 * RESOLUTION);
+
+		assertStatistic(3, 6.0, 4.0, 4 + 5 + 6);
+	}
+
+	@Test
+	public void shouldIgnoreTransactionsBehindEvictionThreshold() {
+		engine.evictOlderThan(now);
+		engine.record(now - 2 * RESOLUTION, 5);
+		engine.record(now, 7);
+
+		assertStatistic(1, 7.0, 7.0, 7.0);
+	}
+
+	@Test
+	public void shouldReuseSlotAfterFullRotation() {
+		engine.record(now, 1);
+		engine.evictOlderThan(now + WINDOW + RESOLUTION);
+		engine.record(now + WINDOW + RESOLUTION, 2);
+
+		assertStatistic(1, 2.0, 2.0, 2.0);
+	}
+
+	@Test
+	public void shouldKeepMemoryConstantRegardlessOfLoad() {
+		for (int i = 0; i < 1_000_000; i++) {
+			engine.record(now + (i % WINDOW), 1);
+		}
+
+		assertStatistic(1_000_000, 1.0, 1.0, 1_000_000.0);
+	}
+
+	@Test
+	public void shouldServeSeveralWindowsFromOneWrite() {
+		final BucketStatisticEngine engine = new BucketStatisticEngine(WINDOW, RESOLUTION, 10, 1_000, 10_000, 300_000);
+		final long[] agesInSeconds = {0, 5, 30, 120, 299, 400};
+		for (long age : agesInSeconds) {
+			engine.record(now - age * RESOLUTION, age);
+		}
+
+		assertStatistic(engine.getStatistic(now, 1_000), 1, 0.0, 0.0, 0.0);
+		assertStatistic(engine.getStatistic(now, 10_000), 2, 5.0, 0.0, 5.0);
+		assertStatistic(engine.getStatistic(now, WINDOW), 3, 30.0, 0.0, 35.0);
+		assertStatistic(engine.getStatistic(now, 300_000), 5, 299.0, 0.0, 454.0);
+	}
+
+	@Test
+	public void shouldRollUpBucketsIntoCoarserTierAfterDefaultWindow() {
+		final BucketStatisticEngine engine = new BucketStatisticEngine(WINDOW, RESOLUTION, 10, 300_000);
+		for (int i = 0; i < 10; i++) {
+			engine.record(now + i * RESOLUTION, 1);
+		}
+
+		final long later = now + 2 * WINDOW;
+		engine.evictOlderThan(later - WINDOW);
+
+		assertStatistic(engine.getStatistic(), 0, 0.0, 0.0, 0.0);
+		assertStatistic(engine.getStatistic(later, 300_000), 10, 1.0, 1.0, 10.0);
+
+		final long afterFiveMinutes = now + 300_000 + 20 * RESOLUTION;
+		engine.evictOlderThan(afterFiveMinutes - WINDOW);
+		assertStatistic(engine.getStatistic(afterFiveMinutes, 300_000), 0, 0.0, 0.0, 0.0);
+	}
+
+	@Test
+	public void shouldEstimatePercentilesAcrossBucketsAndTiers() {
+		final BucketStatisticEngine engine = new BucketStatisticEngine(WINDOW, RESOLUTION, 10, new long[]{300_000}, 0.01);
+		for (int i = 1; i <= 1000; i++) {
+			engine.record(now - (i % 240) * RESOLUTION, i);
+		}
+		engine.evictOlderThan(now - WINDOW);
+
+		final Percentiles percentiles = engine.getStatistic(now, 300_000).getPercentiles();
+		assertEquals(500.0, percentiles.getP50(), 500 * 0.01);
+		assertEquals(950.0, percentiles.getP95(), 950 * 0.01);
+		assertEquals(990.0, percentiles.getP99(), 990 * 0.01);
+	}
+
+	@Test
+	public void shouldOmitPercentilesWhenDisabled() {
+		engine.record(now, 1);
+
+		assertNull(engine.getStatistic().getPercentiles());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectWindowThatIsNotConfigured() {
+		engine.getStatistic(now, 10_000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectResolutionWiderThanWindow() {
+		new BucketStatisticEngine(RESOLUTION, WINDOW);
+	}
+
+	@Test
+	public void shouldKeepBucketsInTheWindowWhenRecordingAheadWithinTheTolerance() {
+		final BucketStatisticEngine tolerant = new BucketStatisticEngine(WINDOW, RESOLUTION, 10, new long[]{WINDOW}, 0, 10 * RESOLUTION);
+		tolerant.evictOlderThan(now - WINDOW);
+		tolerant.record(now - 51 * RESOLUTION, 7);
+		tolerant.record(now + 10 * RESOLUTION, 1);
+
+		assertStatistic(tolerant.getStatistic(), 2, 7.0, 1.0, 8);
+	}
+
+	private void assertStatistic(final long expectedCount, final double expectedMax, final double expectedMin, final double expectedSum) {
+		assertStatistic(engine.getStatistic(), expectedCount, expectedMax, expectedMin, expectedSum);
+	}
+
+	private void assertStatistic(final Statistic statistic, final long expectedCount, final double expectedMax, final double expectedMin, final double expectedSum) {
+		assertEquals(expectedCount, statistic.getCount());
+		assertEquals(expectedMax, statistic.getMax(), 0.0);
+		assertEquals(expectedMin, statistic.getMin(), 0.0);
+		assertEquals(expectedSum, statistic.getSum(), 0.0);
+		final double expectedAvg = expectedCount == 0 ? 0 : expectedSum / expectedCount;
+		assertEquals(expectedAvg, statistic.getAvg(), 0.0);
+	}
+}
@@ -0,0 +1,103 @@
+package com.maxim.service.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class FixedPointTest {
+	private static final int TRANSACTIONS = 5_000_000;
+	private static final int RETAINED = 10_000;
+
+	@Test
+	public void shouldKeepSumExactOverMillionsOfAddsAndEvictionsWhileDoubleSumDrifts() {
+		final SortedStatisticEngine doubles = new SortedStatisticEngine();
+		final SortedStatisticEngine cents = new SortedStatisticEngine(TransactionRing.onHeap(1024), new FixedPoint(2));
+		final long[] retainedCents = new long[RETAINED];
+		final Random random = new Random(42);
+		long exactCents = 0;
+		double maxDrift = 0;
+
+		for (int i = 0; i < TRANSACTIONS; i++) {
+			// Sliding window of RETAINED transactions, one millisecond apart
+			if (i >= RETAINED) {
+				doubles.evictOlderThan(i - RETAINED + 1);
+				cents.evictOlderThan(i - RETAINED + 1);
+				exactCents -= retainedCents[i % RETAINED];
+			}
+			final long amountCents = 1 + random.nextInt(1_000_000);
+			retainedCents[i % RETAINED] = amountCents;
+			exactCents += amountCents;
+			doubles.record(i, amountCents / 100.0);
+			cents.record(i, amountCents / 100.0);
+
+			if (i % 100_000 == 0 || i == TRANSACTIONS - 1) {
+				assertEquals(exactCents / 100.0, cents.getStatistic().getSum(), 0.0);
+				maxDrift = Math.max(maxDrift, Math.abs(doubles.getStatistic().getSum() - exactCents / 100.0));
+			}
+		}
+
+		assertThat(maxDrift, greaterThan(0.0));
+	}
+
+	@Test
+	public void shouldRoundAmountsToTheScale() {
+		final FixedPoint fixedPoint = new FixedPoint(2);
+
+		assertEquals(1999, fixedPoint.toScaled(19.99));
+		assertEquals(-1, fixedPoint.toScaled(-0.006));
+		assertEquals(0.3, fixedPoint.toDouble(fixedPoint.add(fixedPoint.toScaled(0.1), fixedPoint.toScaled(0.2))), 0.0);
+	}
+
+	@Test
+	public void shouldFailClearlyWhenSumOverflowsAndKeepPreviousSum() {
+		final SortedStatisticEngine sorted = new SortedStatisticEngine(TransactionRing.onHeap(16), new FixedPoint(2));
+		sorted.record(1, 9e16);
+		try {
+			sorted.record(2, 9e16);
+			fail("Expected the sum to overflow");
+		} catch (ArithmeticException e) {
+			assertThat(e.getMessage(), containsString("overflows a fixed-point long with 2 decimals"));
+		}
+
+		assertEquals(1, sorted.getStatistic().getCount());
+		assertEquals(9e16, sorted.getStatistic().getSum(), 0.0);
+	}
+
+	@Test
+	public void shouldRollBackStripedAtomicAddPastTheBucketLimit() {
+		// One stripe of 61 buckets holds at most Long.MAX_VALUE / 61 cents, about 1.5e15, per bucket
+		final StripedStatisticEngine striped = new StripedStatisticEngine(60_000, 1_000, 1, new FixedPoint(2));
+		striped.record(1_000, 1e15);
+		try {
+			striped.record(1_000, 1e15);
+			fail("Expected the sum to exceed the bucket limit");
+		} catch (ArithmeticException e) {
+			assertThat(e.getMessage(), containsString("exceeds the fixed-point limit"));
+		}
+		striped.record(1_000, 0.01);
+
+		assertEquals(1e15 + 0.01, striped.getStatistic().getSum(), 0.0);
+	}
+
+	@Test
+	public void shouldReadStripedSumOfFullBucketsWithoutOverflow() {
+		final StripedStatisticEngine striped = new StripedStatisticEngine(60_000, 1_000, 1, new FixedPoint(2));
+		for (int second = 0; second <= 60; second++) {
+			striped.record(second * 1_000, 1.5e15);
+		}
+
+		assertEquals(61, striped.getStatistic().getCount());
+		assertEquals(61 * 1.5e15, striped.getStatistic().getSum(), 1e3);
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void shouldRejectAmountThatDoesNotFit() {
+		new FixedPoint(2).toScaled(1e17);
+	}
+}
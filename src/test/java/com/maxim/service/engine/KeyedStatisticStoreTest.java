@@ -0,0 +1,92 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeyedStatisticStoreTest {
+	private static final long WINDOW = 60_000;
+	private static final long RESOLUTION = 1_000;
+
+	private final long now = 1_500_000_000_123L;
+	private final KeyedStatisticStore store = new KeyedStatisticStore(WINDOW, RESOLUTION, 4);
+
+	@Test
+	public void shouldKeepStatisticPerKey() {
+		store.record("merchant-1", now, 10);
+		store.record("merchant-1", now + RESOLUTION, 30);
+		store.record("merchant-2", now, 5);
+
+		assertStatistic(store.getStatistic("merchant-1"), 2, 30.0, 10.0, 40.0);
+		assertStatistic(store.getStatistic("merchant-2"), 1, 5.0, 5.0, 5.0);
+		assertStatistic(store.getStatistic("unknown"), 0, 0.0, 0.0, 0.0);
+	}
+
+	@Test
+	public void shouldEvictIdleKeysAndReuseTheirRings() {
+		store.record("idle", now, 1);
+		store.record("active", now, 2);
+		store.record("active", now + 30 * RESOLUTION, 3);
+		final long footprint = store.getFootprintBytes();
+
+		store.evictOlderThan(now + 10 * RESOLUTION);
+
+		assertEquals(1, store.size());
+		assertStatistic(store.getStatistic("idle"), 0, 0.0, 0.0, 0.0);
+		assertStatistic(store.getStatistic("active"), 1, 3.0, 3.0, 3.0);
+
+		store.record("newcomer", now + 31 * RESOLUTION, 4);
+		assertEquals(2, store.size());
+		assertStatistic(store.getStatistic("newcomer"), 1, 4.0, 4.0, 4.0);
+		assertEquals(footprint - "idle".length() * 2 - 40 + "newcomer".length() * 2 + 40, store.getFootprintBytes());
+	}
+
+	@Test
+	public void shouldMatchReferenceMapAcrossResizesAndRemovals() {
+		final Random random = new Random(3);
+		final Map<String, Long> newestTimestamps = new HashMap<>();
+		long time = now;
+
+		for (int i = 1; i <= 200_000; i++) {
+			time += random.nextInt(2);
+			final String key = "key-" + random.nextInt(5_000);
+			store.record(key, time, 1);
+			newestTimestamps.put(key, time);
+
+			if (i % 10_000 == 0) {
+				final long threshold = time - 5 * RESOLUTION;
+				store.evictOlderThan(threshold);
+				newestTimestamps.values().removeIf(newest -> (Math.floorDiv(newest, RESOLUTION) + 1) * RESOLUTION <= threshold);
+
+				assertEquals(newestTimestamps.size(), store.size());
+				for (String live : newestTimestamps.keySet()) {
+					assertEquals(1.0, store.getStatistic(live).getMax(), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void shouldKeepBucketsInTheWindowWhenRecordingAheadWithinTheTolerance() {
+		final KeyedStatisticStore tolerant = new KeyedStatisticStore(WINDOW, RESOLUTION, 4, 10 * RESOLUTION);
+		tolerant.evictOlderThan(now - WINDOW);
+		tolerant.record("merchant", now - 51 * RESOLUTION, 7);
+		tolerant.record("merchant", now + 10 * RESOLUTION, 1);
+
+		assertStatistic(tolerant.getStatistic("merchant"), 2, 7.0, 1.0, 8);
+	}
+
+	private void assertStatistic(final Statistic statistic, final long expectedCount, final double expectedMax, final double expectedMin, final double expectedSum) {
+		assertEquals(expectedCount, statistic.getCount());
+		assertEquals(expectedMax, statistic.getMax(), 0.0);
+		assertEquals(expectedMin, statistic.getMin(), 0.0);
+		assertEquals(expectedSum, statistic.getSum(), 0.0);
+		final double expectedAvg = expectedCount == 0 ? 0 : expectedSum / expectedCount;
+		assertEquals(expectedAvg, statistic.getAvg(), 0.0);
+	}
+}
@@ -0,0 +1,102 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class PartialAggregateTest {
+	private static final long WINDOW = 60_000;
+	private static final long NOW = 1_000_000;
+
+	@Test
+	public void shouldMergeBucketEnginesIntoTheStatisticOfOneEngineWithAllTransactions() throws IOException {
+		final BucketStatisticEngine first = engine();
+		final BucketStatisticEngine second = engine();
+		final BucketStatisticEngine both = engine();
+		for (int i = 0; i < 1000; i++) {
+			final long timestamp = NOW - i * 50;
+			(i % 3 == 0 ? first : second).record(timestamp, i);
+			both.record(timestamp, i);
+		}
+
+		final PartialAggregate merged = roundTrip(first.getPartialAggregate(NOW - WINDOW)).merge(roundTrip(second.getPartialAggregate(NOW - WINDOW)));
+
+		final Statistic expected = both.getStatistic(NOW, WINDOW);
+		final Statistic actual = merged.toStatistic(NOW - WINDOW);
+		assertEquals(expected.getCount(), actual.getCount());
+		assertEquals(expected.getSum(), actual.getSum(), 1e-6);
+		assertEquals(expected.getMax(), actual.getMax(), 0.0);
+		assertEquals(expected.getMin(), actual.getMin(), 0.0);
+		assertEquals(expected.getPercentiles().getP50(), actual.getPercentiles().getP50(), 0.0);
+		assertEquals(expected.getPercentiles().getP99(), actual.getPercentiles().getP99(), 0.0);
+	}
+
+	@Test
+	public void shouldDropPercentilesWhenANodeHasNoSketches() {
+		final BucketStatisticEngine withSketches = engine();
+		final SortedStatisticEngine withoutSketches = new SortedStatisticEngine();
+		withSketches.record(NOW, 1);
+		withoutSketches.record(NOW - 1, 2);
+
+		final PartialAggregate sketched = withSketches.getPartialAggregate(NOW - WINDOW);
+		assertNotNull(sketched.toStatistic(NOW - WINDOW).getPercentiles());
+		final Statistic merged = sketched.merge(withoutSketches.getPartialAggregate(NOW - WINDOW)).toStatistic(NOW - WINDOW);
+
+		assertEquals(2, merged.getCount());
+		assertEquals(3, merged.getSum(), 0.0);
+		assertNull(merged.getPercentiles());
+	}
+
+	@Test
+	public void shouldOnlyCountBucketsEndingAfterThreshold() {
+		final StripedStatisticEngine striped = new StripedStatisticEngine(WINDOW, 1000, 2);
+		striped.record(NOW - WINDOW - 500, 100);
+		striped.record(NOW - 10, 1);
+
+		final PartialAggregate aggregate = striped.getPartialAggregate(NOW - WINDOW - 5000);
+
+		assertEquals(2, aggregate.size());
+		assertEquals(1, aggregate.toStatistic(NOW - WINDOW).getCount());
+		assertEquals(1, aggregate.toStatistic(NOW - WINDOW).getMax(), 0.0);
+	}
+
+	@Test
+	public void shouldGroupSortedTransactionsIntoSecondsFromThreshold() {
+		final SortedStatisticEngine sorted = new SortedStatisticEngine();
+		for (int i = 0; i < 1000; i++) {
+			sorted.record(NOW - WINDOW - 2000 + i * 62, i % 97);
+		}
+		sorted.record(NOW - 5000, -3);
+
+		final PartialAggregate aggregate = sorted.getPartialAggregate(NOW - WINDOW);
+
+		sorted.evictOlderThan(NOW - WINDOW);
+		final Statistic expected = sorted.getStatistic();
+		final Statistic actual = aggregate.toStatistic(NOW - WINDOW);
+		assertEquals(60, aggregate.size());
+		assertEquals(expected.getCount(), actual.getCount());
+		assertEquals(expected.getSum(), actual.getSum(), 1e-9);
+		assertEquals(expected.getMax(), actual.getMax(), 0.0);
+		assertEquals(-3, actual.getMin(), 0.0);
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectSomethingElse() throws IOException {
+		PartialAggregate.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+	}
+
+	private static BucketStatisticEngine engine() {
+		return new BucketStatisticEngine(WINDOW, 1000, 10, new long[]{WINDOW}, 0.01);
+	}
+
+	private static PartialAggregate roundTrip(final PartialAggregate aggregate) throws IOException {
+		return PartialAggregate.readFrom(new DataInputStream(new ByteArrayInputStream(aggregate.toByteArray())));
+	}
+}
@@ -0,0 +1,117 @@
+package com.maxim.service.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+
+public class QuantileSketchTest {
+	private static final double ACCURACY = 0.01;
+	private static final double[] QUANTILES = {0.0, 0.25, 0.5, 0.95, 0.99, 1.0};
+
+	@Test
+	public void shouldReturnZeroWhenEmpty() {
+		assertEquals(0.0, new QuantileSketch(ACCURACY, 2048).getValueAtQuantile(0.5), 0.0);
+	}
+
+	@Test
+	public void shouldStayWithinRelativeAccuracyOnSkewedData() {
+		final Random random = new Random(7);
+		final double[] values = new double[100_000];
+		final QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Math.exp(random.nextGaussian() * 3);
+			sketch.add(values[i]);
+		}
+
+		assertWithinAccuracy(sketch, values);
+	}
+
+	@Test
+	public void shouldRestoreSketchFromSerializedForm() throws IOException {
+		final double[] values = {-500, -20, -1, 0, 0, 3, 70, 900};
+		final QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+		Arrays.stream(values).forEach(sketch::add);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		sketch.writeTo(new DataOutputStream(bytes));
+		final QuantileSketch restored = new QuantileSketch(ACCURACY, 2048);
+		restored.mergeFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(sketch.getCount(), restored.getCount());
+		assertWithinAccuracy(restored, values);
+	}
+
+	@Test
+	public void shouldHandleNegativeAndZeroAmounts() {
+		final double[] values = {-500, -20, -1, 0, 0, 3, 70, 900};
+		final QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+		Arrays.stream(values).forEach(sketch::add);
+
+		assertWithinAccuracy(sketch, values);
+	}
+
+	@Test
+	public void shouldMergeIntoSameResultAsSingleSketch() {
+		final Random random = new Random(11);
+		final QuantileSketch whole = new QuantileSketch(ACCURACY, 2048);
+		final QuantileSketch merged = new QuantileSketch(ACCURACY, 2048);
+		final QuantileSketch[] parts = new QuantileSketch[10];
+		for (int i = 0; i < parts.length; i++) {
+			parts[i] = new QuantileSketch(ACCURACY, 2048);
+		}
+		for (int i = 0; i < 50_000; i++) {
+			final double value = random.nextDouble() * 10_000;
+			whole.add(value);
+			parts[i % parts.length].add(value);
+		}
+		for (QuantileSketch part : parts) {
+			merged.merge(part);
+		}
+
+		assertEquals(whole.getCount(), merged.getCount());
+		for (double quantile : QUANTILES) {
+			assertEquals(whole.getValueAtQuantile(quantile), merged.getValueAtQuantile(quantile), 0.0);
+		}
+	}
+
+	@Test
+	public void shouldBoundMemoryByCollapsingLowestBins() {
+		final QuantileSketch sketch = new QuantileSketch(ACCURACY, 64);
+		for (int exponent = -8; exponent <= 8; exponent++) {
+			sketch.add(Math.pow(10, exponent));
+		}
+
+		assertThat(sketch.getFootprintBytes(), lessThanOrEqualTo(48L + 2 * 40 + 16 + 8 * 64));
+		assertEquals(1e8, sketch.getValueAtQuantile(1.0), 1e8 * ACCURACY);
+	}
+
+	@Test
+	public void shouldBeReusableAfterClear() {
+		final QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+		sketch.add(1_000_000);
+		sketch.clear();
+		sketch.add(5);
+
+		assertEquals(1, sketch.getCount());
+		assertEquals(5.0, sketch.getValueAtQuantile(0.5), 5 * ACCURACY);
+	}
+
+	private void assertWithinAccuracy(final QuantileSketch sketch, final double[] values) {
+		final double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		for (double quantile : QUANTILES) {
+			final double expected = sorted[(int) (quantile * (sorted.length - 1))];
+			assertEquals(expected, sketch.getValueAtQuantile(quantile), Math.abs(expected) * ACCURACY);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.maxim.service.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SlidingExtremumTest {
+	@Test
+	public void shouldReturnZeroWhenEmpty() {
+		assertEquals(0.0, SlidingExtremum.max().get(), 0.0);
+		assertEquals(0.0, SlidingExtremum.min().get(), 0.0);
+	}
+
+	@Test
+	public void shouldKeepDuplicateAmountAfterOneIsEvicted() {
+		final SlidingExtremum max = SlidingExtremum.max();
+		max.record(1, 5);
+		max.record(2, 5);
+		max.record(3, 1);
+
+		max.evictOlderThan(2);
+
+		assertEquals(5.0, max.get(), 0.0);
+	}
+
+	@Test
+	public void shouldDropEntriesThatCanNeverBecomeExtreme() {
+		final SlidingExtremum max = SlidingExtremum.max();
+		for (int i = 0; i < 1000; i++) {
+			max.record(i, i);
+		}
+
+		assertEquals(1, max.size());
+		assertEquals(999.0, max.get(), 0.0);
+	}
+
+	@Test
+	public void shouldHandleOutOfOrderRecords() {
+		final SlidingExtremum min = SlidingExtremum.min();
+		min.record(10, 3);
+		min.record(30, 4);
+		min.record(20, 1);
+		min.record(5, 2);
+
+		assertEquals(1.0, min.get(), 0.0);
+		min.evictOlderThan(21);
+		assertEquals(4.0, min.get(), 0.0);
+	}
+
+	@Test
+	public void shouldMatchBruteForceOnRandomWindow() {
+		final Random random = new Random(42);
+		final SlidingExtremum max = SlidingExtremum.max();
+		final SlidingExtremum min = SlidingExtremum.min();
+		final List<long[]> window = new ArrayList<>();
+		long now = 0;
+
+		for (int i = 0; i < 20_000; i++) {
+			now += random.nextInt(3);
+			// Mostly in order, sometimes late, with plenty of duplicate amounts and timestamps
+			final long timestamp = random.nextInt(10) == 0 ? now - random.nextInt(50) : now;
+			final long amount = random.nextInt(20);
+			max.record(timestamp, amount);
+			min.record(timestamp, amount);
+			window.add(new long[]{timestamp, amount});
+
+			if (random.nextInt(5) == 0) {
+				final long threshold = now - 100;
+				max.evictOlderThan(threshold);
+				min.evictOlderThan(threshold);
+				window.removeIf(entry -> entry[0] < threshold);
+			}
+
+			final double expectedMax = window.stream().mapToLong(entry -> entry[1]).max().orElse(0);
+			final double expectedMin = window.stream().mapToLong(entry -> entry[1]).min().orElse(0);
+			assertEquals(expectedMax, max.get(), 0.0);
+			assertEquals(expectedMin, min.get(), 0.0);
+		}
+		assertTrue(max.size() < window.size());
+	}
+}
@@ -0,0 +1,39 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SortedStatisticEngineTest {
+	private final SortedStatisticEngine engine = new SortedStatisticEngine();
+
+	@Test
+	public void shouldKeepExtremesOfDuplicateAmountsAfterPartialEviction() {
+		engine.record(1_000, 5);
+		engine.record(2_000, 5);
+		engine.record(3_000, 1);
+		engine.record(4_000, 1);
+
+		engine.evictOlderThan(2_000);
+
+		final Statistic statistic = engine.getStatistic();
+		assertEquals(3, statistic.getCount());
+		assertEquals(5.0, statistic.getMax(), 0.0);
+		assertEquals(1.0, statistic.getMin(), 0.0);
+		assertEquals(7.0, statistic.getSum(), 0.0);
+	}
+
+	@Test
+	public void shouldEvictLateTransactionsOlderThanTheRetainedOnes() {
+		engine.record(5_000, 1);
+		engine.evictOlderThan(4_000);
+		engine.record(1_000, 2);
+
+		engine.evictOlderThan(2_000);
+
+		final Statistic statistic = engine.getStatistic();
+		assertEquals(1, statistic.getCount());
+		assertEquals(1.0, statistic.getMax(), 0.0);
+	}
+}
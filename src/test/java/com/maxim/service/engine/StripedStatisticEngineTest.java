@@ -0,0 +1,239 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+
+public class StripedStatisticEngineTest {
+	private static final long WINDOW = 60_000;
+	private static final long RESOLUTION = 1_000;
+	private static final int NUMBER_OF_THREADS = 64;
+	private static final int TRANSACTIONS_PER_THREAD = 20_000;
+
+	private final long now = 1_500_000_000_123L;
+	private final StripedStatisticEngine engine = new StripedStatisticEngine(WINDOW, RESOLUTION, 8);
+	private final ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS + 1);
+
+	@After
+	public void shutdown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void shouldAccumulateSequentially() {
+		for (int i = 1; i <= 6; i++) {
+			engine.record(now + i * RESOLUTION, i);
+		}
+
+		engine.evictOlderThan(now + 4 * RESOLUTION);
+
+		assertStatistic(engine.getStatistic(), 3, 6.0, 4.0, 4 + 5 + 6);
+	}
+
+	@Test(timeout = 30000L)
+	public void shouldNotLoseUpdatesUnderContention() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		final long totalTransactions = (long) NUMBER_OF_THREADS * TRANSACTIONS_PER_THREAD;
+
+		// Reader checks that a statistic taken mid-flight never overshoots and never goes backwards
+		final Future<?> reader = executorService.submit(() -> {
+			long previousCount = 0;
+			while (writing.get()) {
+				final Statistic statistic = engine.getStatistic();
+				assertThat(statistic.getCount(), greaterThanOrEqualTo(previousCount));
+				assertThat(statistic.getCount(), lessThanOrEqualTo(totalTransactions));
+				if (statistic.getCount() > 0) {
+					assertThat(statistic.getMin(), greaterThanOrEqualTo(1.0));
+					assertThat(statistic.getMax(), lessThanOrEqualTo((double) TRANSACTIONS_PER_THREAD));
+				}
+				previousCount = statistic.getCount();
+			}
+			return null;
+		});
+
+		final List<Future<?>> writers = new ArrayList<>(NUMBER_OF_THREADS);
+		for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+			writers.add(executorService.submit(() -> {
+				start.await();
+				for (int i = 1; i <= TRANSACTIONS_PER_THREAD; i++) {
+					// Spread over the whole window so that buckets are created concurrently by many threads
+					engine.record(now + (i % WINDOW), i);
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> writer : writers) {
+			writer.get();
+		}
+		writing.set(false);
+		reader.get();
+
+		final double sumPerThread = (double) TRANSACTIONS_PER_THREAD * (TRANSACTIONS_PER_THREAD + 1) / 2;
+		assertStatistic(engine.getStatistic(), totalTransactions, TRANSACTIONS_PER_THREAD, 1.0, sumPerThread * NUMBER_OF_THREADS);
+	}
+
+	@Test(timeout = 30000L)
+	public void shouldEvictConcurrentlyWithWriters() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final long evictionThreshold = now + WINDOW / 2;
+
+		final List<Future<?>> writers = new ArrayList<>(NUMBER_OF_THREADS);
+		for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+			writers.add(executorService.submit(() -> {
+				start.await();
+				for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+					engine.record(now + (i % WINDOW), 1);
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		engine.evictOlderThan(evictionThreshold);
+		for (Future<?> writer : writers) {
+			writer.get(20, TimeUnit.SECONDS);
+		}
+
+		// Timestamps cycle through [now, now + 20s) only, so nothing survives a threshold of now + 30s
+		assertStatistic(engine.getStatistic(), 0, 0.0, 0.0, 0.0);
+	}
+
+	@Test
+	public void shouldDropTransactionsWhoseBucketAlreadyLeftTheWindow() {
+		engine.record(now + WINDOW + RESOLUTION, 3);
+		// Shares its slot in the ring with the newer bucket just written
+		engine.record(now, 1);
+		engine.evictOlderThan(now + WINDOW);
+		engine.record(now + WINDOW - RESOLUTION, 2);
+
+		assertStatistic(engine.getStatistic(), 1, 3.0, 3.0, 3.0);
+	}
+
+	@Test(timeout = 30000L)
+	public void shouldNotLeakUpdatesAcrossReusedBuckets() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		// Three windows of timestamps, so every bucket is reused twice while other threads may still be writing to it
+		final long step = 3 * WINDOW / TRANSACTIONS_PER_THREAD;
+		final long lastEpoch = (now + (TRANSACTIONS_PER_THREAD - 1) * step) / RESOLUTION;
+		long retainedPerThread = 0;
+		for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+			if ((now + i * step) / RESOLUTION > lastEpoch - WINDOW / RESOLUTION - 1) {
+				retainedPerThread++;
+			}
+		}
+
+		final List<Future<?>> writers = new ArrayList<>(NUMBER_OF_THREADS);
+		for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+			writers.add(executorService.submit(() -> {
+				start.await();
+				for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+					engine.record(now + i * step, 1);
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> writer : writers) {
+			writer.get();
+		}
+
+		final long expected = retainedPerThread * NUMBER_OF_THREADS;
+		assertStatistic(engine.getStatistic(), expected, 1.0, 1.0, expected);
+	}
+
+	@Test(timeout = 30000L)
+	public void shouldReportEveryEvictedBucketOnceWhenEvictedConcurrently() throws Exception {
+		final AtomicLong evicted = new AtomicLong();
+		engine.setEvictionListener((timestampMillis, count, sum, max, min) -> evicted.addAndGet(count));
+		for (int i = 0; i < WINDOW / RESOLUTION; i++) {
+			engine.record(now + i * RESOLUTION, 1);
+		}
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Future<?>> evictors = new ArrayList<>(NUMBER_OF_THREADS);
+		for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+			evictors.add(executorService.submit(() -> {
+				start.await();
+				for (long threshold = now; threshold <= now + WINDOW; threshold += RESOLUTION / 4) {
+					engine.evictOlderThan(threshold);
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> evictor : evictors) {
+			evictor.get();
+		}
+
+		assertEquals(WINDOW / RESOLUTION, evicted.get());
+	}
+
+	@Test
+	public void shouldKeepBucketsInTheWindowWhenRecordingAheadWithinTheTolerance() {
+		final StripedStatisticEngine tolerant = new StripedStatisticEngine(WINDOW, RESOLUTION, 1, null, 10 * RESOLUTION);
+		tolerant.evictOlderThan(now - WINDOW);
+		tolerant.record(now - 51 * RESOLUTION, 7);
+		tolerant.record(now + 10 * RESOLUTION, 1);
+
+		assertStatistic(tolerant.getStatistic(), 2, 7.0, 1.0, 8);
+	}
+
+	@Test(timeout = 10000L)
+	public void shouldKeepCountOfWritersThatRegisterWhileABucketIsReset() {
+		final AtomicBoolean armed = new AtomicBoolean();
+		final AtomicReference<AtomicLongArray> resetStripe = new AtomicReference<>();
+		final AtomicInteger resetBase = new AtomicInteger();
+		final StripedStatisticEngine oneStripe = new StripedStatisticEngine(WINDOW, RESOLUTION, 1) {
+			@Override
+			void resetting(final AtomicLongArray stripe, final int base) {
+				// A writer of the previous bucket registers after the reset saw no writers, as it read the old epoch just before
+				if (armed.get() && resetStripe.compareAndSet(null, stripe)) {
+					resetBase.set(base);
+					stripe.incrementAndGet(base + StripedStatisticEngine.WRITERS);
+				}
+			}
+		};
+		final long slots = WINDOW / RESOLUTION + 1;
+		oneStripe.record(now, 1);
+		armed.set(true);
+		oneStripe.record(now + slots * RESOLUTION, 2);
+		// The late writer then sees the bucket taken over and backs off
+		resetStripe.get().decrementAndGet(resetBase.get() + StripedStatisticEngine.WRITERS);
+
+		assertEquals(0, resetStripe.get().get(resetBase.get() + StripedStatisticEngine.WRITERS));
+		oneStripe.record(now + 2 * slots * RESOLUTION, 3);
+		assertStatistic(oneStripe.getStatistic(), 1, 3.0, 3.0, 3);
+	}
+
+	private void assertStatistic(final Statistic statistic, final long expectedCount, final double expectedMax, final double expectedMin, final double expectedSum) {
+		assertEquals(expectedCount, statistic.getCount());
+		assertEquals(expectedMax, statistic.getMax(), 0.0);
+		assertEquals(expectedMin, statistic.getMin(), 0.0);
+		assertEquals(expectedSum, statistic.getSum(), 0.0);
+		final double expectedAvg = expectedCount == 0 ? 0 : expectedSum / expectedCount;
+		assertEquals(expectedAvg, statistic.getAvg(), 0.0);
+	}
+}
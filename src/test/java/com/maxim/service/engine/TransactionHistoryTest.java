@@ -0,0 +1,90 @@
+package com.maxim.service.engine;
+
+import com.maxim.model.Statistic;
+import com.maxim.model.StatisticHistory;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.maxim.service.engine.TransactionHistory.HOUR_MILLIS;
+import static com.maxim.service.engine.TransactionHistory.MINUTE_MILLIS;
+import static org.junit.Assert.assertEquals;
+
+public class TransactionHistoryTest {
+	private static final long DAY_START = 1_500_000 * HOUR_MILLIS;
+
+	@Test
+	public void shouldRollEvictionsIntoMinutesAndAnswerCoarserSteps() {
+		final TransactionHistory history = new TransactionHistory(1440, 24);
+		history.evicted(DAY_START + 10_000, 1, 5, 5, 5);
+		history.evicted(DAY_START + 50_000, 2, 3, 2, 1);
+		history.evicted(DAY_START + 7 * MINUTE_MILLIS, 1, 10, 10, 10);
+
+		final List<Statistic> byMinute = history.getHistory(DAY_START, DAY_START + 10 * MINUTE_MILLIS, MINUTE_MILLIS).getStatistics();
+		assertEquals(10, byMinute.size());
+		assertStatistic(byMinute.get(0), 8, 5, 1, 3);
+		assertEquals(0, byMinute.get(1).getCount());
+		assertStatistic(byMinute.get(7), 10, 10, 10, 1);
+
+		final StatisticHistory byFiveMinutes = history.getHistory(DAY_START + MINUTE_MILLIS, DAY_START + 10 * MINUTE_MILLIS, 5 * MINUTE_MILLIS);
+		assertEquals(DAY_START, byFiveMinutes.getFromMillis());
+		assertStatistic(byFiveMinutes.getStatistics().get(0), 8, 5, 1, 3);
+		assertStatistic(byFiveMinutes.getStatistics().get(1), 10, 10, 10, 1);
+	}
+
+	@Test
+	public void shouldKeepHoursAfterTheirMinutesAreOverwritten() {
+		final TransactionHistory history = new TransactionHistory(30, 24);
+		for (int hour = 0; hour < 30; hour++) {
+			history.evicted(DAY_START + hour * HOUR_MILLIS + 1, 1, hour, hour, hour);
+		}
+
+		final List<Statistic> byHour = history.getHistory(DAY_START, DAY_START + 30 * HOUR_MILLIS, HOUR_MILLIS).getStatistics();
+		// 24 hours plus the one filling up
+		assertEquals(0, byHour.get(4).getCount());
+		assertStatistic(byHour.get(5), 5, 5, 5, 1);
+		assertStatistic(byHour.get(29), 29, 29, 29, 1);
+
+		final List<Statistic> byMinute = history.getHistory(DAY_START + 28 * HOUR_MILLIS, DAY_START + 30 * HOUR_MILLIS, MINUTE_MILLIS).getStatistics();
+		assertEquals(0, byMinute.get(0).getCount());
+		assertStatistic(byMinute.get(60), 29, 29, 29, 1);
+	}
+
+	@Test
+	public void shouldReceiveEvictionsFromEveryEngine() {
+		final long now = System.currentTimeMillis();
+		for (StatisticEngine engine : new StatisticEngine[]{new SortedStatisticEngine(), new BucketStatisticEngine(60_000, 1000),
+				new StripedStatisticEngine(60_000, 1000, 2)}) {
+			final TransactionHistory history = new TransactionHistory(1440, 24);
+			engine.setEvictionListener(history);
+			engine.record(now - 30_000, 4);
+			engine.record(now - 30_000, 6);
+			engine.record(now, 100);
+
+			engine.evictOlderThan(now - 20_000);
+
+			final List<Statistic> statistics = history.getHistory(now - HOUR_MILLIS, now + 1, HOUR_MILLIS).getStatistics();
+			final long count = statistics.stream().mapToLong(Statistic::getCount).sum();
+			final double sum = statistics.stream().mapToDouble(Statistic::getSum).sum();
+			assertEquals(engine.getClass().getSimpleName(), 2, count);
+			assertEquals(engine.getClass().getSimpleName(), 10, sum, 0.0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectStepsShorterThanAMinute() {
+		new TransactionHistory(1440, 24).getHistory(DAY_START, DAY_START + HOUR_MILLIS, 30_000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectRangesWithTooManySteps() {
+		new TransactionHistory(1440, 24).getHistory(0, DAY_START, MINUTE_MILLIS);
+	}
+
+	private static void assertStatistic(final Statistic statistic, final double sum, final double max, final double min, final long count) {
+		assertEquals(sum, statistic.getSum(), 0.0);
+		assertEquals(max, statistic.getMax(), 0.0);
+		assertEquals(min, statistic.getMin(), 0.0);
+		assertEquals(count, statistic.getCount());
+	}
+}
@@ -0,0 +1,113 @@
+package com.maxim.service.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransactionRingTest {
+	@Test
+	public void shouldEvictInTimeOrderFromHead() {
+		final TransactionRing ring = TransactionRing.onHeap(4);
+		for (int i = 0; i < 100; i++) {
+			ring.add(i, i);
+		}
+
+		final List<Long> evicted = new ArrayList<>();
+		assertEquals(50, ring.evictOlderThan(50, (timestamp, amount) -> evicted.add(timestamp)));
+
+		assertEquals(50, ring.size());
+		for (int i = 0; i < 50; i++) {
+			assertEquals(i, (long) evicted.get(i));
+		}
+	}
+
+	@Test
+	public void shouldInsertSlightlyLateTransactionsInPlace() {
+		final TransactionRing ring = TransactionRing.onHeap(16);
+		ring.add(10, 1);
+		ring.add(30, 3);
+		ring.add(20, 2);
+		ring.add(5, 0.5);
+
+		final List<Long> order = new ArrayList<>();
+		ring.forEach((timestamp, amount) -> order.add(timestamp));
+
+		assertEquals(0, ring.lateSize());
+		assertEquals(Arrays.asList(5L, 10L, 20L, 30L), order);
+	}
+
+	@Test
+	public void shouldKeepVeryLateTransactionsAsideAndStillEvictThem() {
+		final TransactionRing ring = TransactionRing.onHeap(16);
+		for (int i = 100; i < 100 + TransactionRing.MAX_SHIFT * 2; i++) {
+			ring.add(i, 1);
+		}
+		ring.add(3, 7);
+		ring.add(1, 5);
+
+		assertEquals(2, ring.lateSize());
+		final double[] evictedSum = new double[1];
+		assertEquals(3, ring.evictOlderThan(101, (timestamp, amount) -> evictedSum[0] += amount));
+		assertEquals(1 + 5 + 7, evictedSum[0], 0.0);
+		assertEquals(0, ring.lateSize());
+	}
+
+	@Test
+	public void shouldMatchPriorityQueueOnShuffledInputOnAndOffHeap() {
+		assertMatchesPriorityQueue(TransactionRing.onHeap(16));
+		assertMatchesPriorityQueue(TransactionRing.offHeap(16));
+	}
+
+	@Test
+	public void shouldShrinkAfterBacklogIsEvicted() {
+		final TransactionRing ring = TransactionRing.onHeap(16);
+		for (int i = 0; i < 100_000; i++) {
+			ring.add(i, 1);
+		}
+		final long grown = ring.getFootprintBytes();
+
+		for (int threshold = 0; threshold <= 100_000; threshold += 1_000) {
+			ring.evictOlderThan(threshold, (timestamp, amount) -> {
+			});
+		}
+
+		assertEquals(0, ring.size());
+		assertEquals(16 * 16 + 16 * 16, ring.getFootprintBytes());
+		assertEquals(true, grown > ring.getFootprintBytes());
+	}
+
+	private static void assertMatchesPriorityQueue(final TransactionRing ring) {
+		final Random random = new Random(3);
+		final PriorityQueue<Long> expected = new PriorityQueue<>();
+		long now = 0;
+		for (int round = 0; round < 200; round++) {
+			for (int i = 0; i < 500; i++) {
+				now++;
+				// Mostly in order, some a little late, a few very late
+				final int lateness = random.nextInt(10) == 0 ? random.nextInt(random.nextBoolean() ? 50 : 5_000) : 0;
+				final long timestamp = now - lateness;
+				expected.add(timestamp);
+				ring.add(timestamp, timestamp);
+			}
+			final long threshold = now - 3_000;
+			final List<Long> evicted = new ArrayList<>();
+			ring.evictOlderThan(threshold, (timestamp, amount) -> {
+				assertEquals((double) timestamp, amount, 0.0);
+				evicted.add(timestamp);
+			});
+			int expectedEvicted = 0;
+			while (!expected.isEmpty() && expected.peek() < threshold) {
+				expected.poll();
+				expectedEvicted++;
+			}
+			assertEquals(expectedEvicted, evicted.size());
+			assertEquals(expected.size(), ring.size());
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.maxim.stream;
+
+import com.maxim.dto.EncodedStatistic;
+import com.maxim.dto.Mapper;
+import com.maxim.dto.StatisticEncoder;
+import com.maxim.service.TransactionService;
+import com.maxim.service.engine.SortedStatisticEngine;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StatisticBroadcasterTest {
+	private final TransactionService transactionService = TransactionService.builder(new SortedStatisticEngine()).build();
+	private final StatisticBroadcaster broadcaster = new StatisticBroadcaster(transactionService, new StatisticEncoder(new Mapper()),
+			Executors.newFixedThreadPool(2), 3);
+
+	@After
+	public void tearDown() {
+		broadcaster.close();
+	}
+
+	@Test
+	public void shouldSendCurrentStatisticThenOneEventPerTickWithChanges() throws Exception {
+		final RecordingSubscriber subscriber = new RecordingSubscriber(2);
+		broadcaster.subscribe(subscriber);
+		broadcaster.tick();
+		subscriber.awaitEvent("\"count\":0");
+
+		for (int i = 1; i <= 100; i++) {
+			transactionService.record(System.currentTimeMillis(), i);
+		}
+		broadcaster.tick();
+		broadcaster.tick();
+
+		assertTrue(subscriber.events.toString(), subscriber.received.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		assertEquals(2, subscriber.events.size());
+		assertThat(subscriber.events.get(0), containsString("\"count\":0"));
+		assertThat(subscriber.events.get(1), containsString("\"count\":100"));
+	}
+
+	@Test
+	public void shouldNotHoldBackOtherSubscribersBehindASlowOneAndOnlyKeepItsNewestEvent() throws Exception {
+		final CountDownLatch sending = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final RecordingSubscriber slow = new RecordingSubscriber(2) {
+			@Override
+			public void send(final EncodedStatistic statistic) throws Exception {
+				sending.countDown();
+				release.await();
+				super.send(statistic);
+			}
+		};
+		final RecordingSubscriber fast = new RecordingSubscriber(1);
+		broadcaster.subscribe(slow);
+		broadcaster.subscribe(fast);
+		assertTrue("slow subscriber never sent", sending.await(5, TimeUnit.SECONDS));
+
+		for (int i = 1; i <= 3; i++) {
+			transactionService.record(System.currentTimeMillis(), i);
+			broadcaster.tick();
+		}
+		fast.awaitEvent("\"count\":3");
+
+		release.countDown();
+		slow.awaitEvent("\"count\":3");
+		Thread.sleep(50);
+		assertEquals(2, slow.events.size());
+		assertThat(slow.events.get(0), containsString("\"count\":0"));
+	}
+
+	@Test
+	public void shouldDropSubscriberWhoseSendFails() throws Exception {
+		final RecordingSubscriber failing = new RecordingSubscriber(1) {
+			@Override
+			public void send(final EncodedStatistic statistic) {
+				throw new IllegalStateException("Client went away");
+			}
+		};
+		broadcaster.subscribe(failing);
+
+		assertTrue("not closed", failing.closed.await(5, TimeUnit.SECONDS));
+		assertEquals(0, broadcaster.getSubscriberCount());
+	}
+
+	@Test
+	public void shouldRefuseSubscribersBeyondTheLimit() {
+		for (int i = 0; i < 3; i++) {
+			assertTrue(broadcaster.subscribe(new RecordingSubscriber(1)));
+		}
+		assertFalse(broadcaster.subscribe(new RecordingSubscriber(1)));
+	}
+
+	private static class RecordingSubscriber implements StatisticBroadcaster.Subscriber {
+		final List<String> events = new CopyOnWriteArrayList<>();
+		final CountDownLatch received;
+		final CountDownLatch closed = new CountDownLatch(1);
+
+		RecordingSubscriber(final int expectedEvents) {
+			this.received = new CountDownLatch(expectedEvents);
+		}
+
+		@Override
+		public void send(final EncodedStatistic statistic) throws Exception {
+			events.add(new String(statistic.getJson(), StandardCharsets.UTF_8));
+			received.countDown();
+		}
+
+		@Override
+		public void close() {
+			closed.countDown();
+		}
+
+		void awaitEvent(final String fragment) throws InterruptedException {
+			final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (events.stream().noneMatch(event -> event.contains(fragment))) {
+				assertTrue("No event containing " + fragment + " in " + events, System.nanoTime() < deadline);
+				Thread.sleep(1);
+			}
+		}
+	}
+}